@@ -0,0 +1,50 @@
+package nq.solver;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to solve big boards with the heuristic and constructive solvers, with the
+ * 3-queens-in-a-line check disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LargeBoardSolverBenchmark {
+    @Param({ "gradient", "minconflicts", "annealing", "constructive" })
+    String algorithm;
+
+    @Param({ "1000", "10000", "100000" })
+    int boardSize;
+
+    Solver solver;
+
+    @Setup
+    public void setUp() {
+        // The gradient solver is O(N^2) per pass, so it's not worth running on the biggest boards.
+        if (this.algorithm.equals("gradient") && this.boardSize > 10000) {
+            throw new IllegalStateException("Skipping gradient solver for N=" + this.boardSize);
+        }
+        this.solver = SolverFactory.create(this.algorithm, this.boardSize, false, 1);
+    }
+
+    @Benchmark
+    public List<Integer> solve() {
+        return this.solver.solve();
+    }
+}
@@ -0,0 +1,46 @@
+package nq.solver;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to solve the boards with the 3-queens-in-a-line check that are out of reach
+ * of the plain backtracking solvers, with the solvers that propagate the constraints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LineCheckSolverBenchmark {
+    @Param({ "propagation", "sat" })
+    String algorithm;
+
+    @Param({ "24", "32", "40" })
+    int boardSize;
+
+    Solver solver;
+
+    @Setup
+    public void setUp() {
+        this.solver = SolverFactory.create(this.algorithm, this.boardSize, true, 1);
+    }
+
+    @Benchmark
+    public List<Integer> solve() {
+        return this.solver.solve();
+    }
+}
@@ -0,0 +1,51 @@
+package nq.solver;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to solve a small board with each of the solvers. The grid of board sizes is
+ * kept small enough for the exhaustive solvers; use `LargeBoardSolverBenchmark` for the rest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+    @Param({ "backtracking", "bitmask", "parallel", "gradient", "minconflicts", "annealing",
+            "propagation", "sat" })
+    String algorithm;
+
+    @Param({ "8", "12", "16" })
+    int boardSize;
+
+    @Param({ "false", "true" })
+    boolean enable3QueensInLineCheck;
+
+    Solver solver;
+
+    @Setup
+    public void setUp() {
+        this.solver = SolverFactory.create(this.algorithm, this.boardSize, this.enable3QueensInLineCheck,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public List<Integer> solve() {
+        return this.solver.solve();
+    }
+}
@@ -0,0 +1,91 @@
+package nq.solver.utils;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.primitives.Ints;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the queries and updates of `CollisionsTracker` on a random permutation board. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionsTrackerBenchmark {
+    @Param({ "64", "1024", "16384" })
+    int boardSize;
+
+    int[] positions;
+    List<Integer> positionsList;
+    CollisionsTracker tracker;
+
+    /** The row that is queried next, so that every call hits a different queen. */
+    int row;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(42);
+        this.positions = new int[this.boardSize];
+        for (int i = 0; i < this.boardSize; i++) {
+            int j = random.nextInt(i + 1);
+            this.positions[i] = this.positions[j];
+            this.positions[j] = i;
+        }
+        this.positionsList = Ints.asList(this.positions);
+        this.tracker = new CollisionsTracker(this.boardSize, true);
+        this.tracker.recalculateAttacksTables(this.positions, this.boardSize);
+    }
+
+    private int nextRow() {
+        this.row = this.row + 1 == this.boardSize ? 0 : this.row + 1;
+        return this.row;
+    }
+
+    @Benchmark
+    public int countDiagAttacksAgainst() {
+        int y = this.nextRow();
+        return this.tracker.countDiagAttacksAgainst(this.positions[y], y);
+    }
+
+    @Benchmark
+    public int countDiagAttacksAgainstPair() {
+        int y = this.nextRow();
+        return this.tracker.countDiagAttacksAgainst(Pair.of(this.positions[y], y));
+    }
+
+    @Benchmark
+    public int countLineAttacksAgainst() {
+        int y = this.nextRow();
+        return this.tracker.countLineAttacksAgainst(this.positions[y], y);
+    }
+
+    @Benchmark
+    public int countLineAttacksAgainstList() {
+        int y = this.nextRow();
+        return this.tracker.countLineAttacksAgainst(this.positionsList, Pair.of(this.positions[y], y));
+    }
+
+    @Benchmark
+    public int recordDiagCollision() {
+        // Remove and place back the same queen, so that the board stays the same.
+        int y = this.nextRow();
+        this.tracker.recordDiagCollision(this.positions[y], y, -1);
+        this.tracker.recordDiagCollision(this.positions[y], y, +1);
+        return this.tracker.countAllDiagCollisions();
+    }
+}
@@ -11,12 +11,44 @@ import picocli.CommandLine.Spec;
 import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.ParameterException;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
 
-import nq.solver.BacktrackingSolver;
-import nq.solver.GradientHeuristicSolver;
+import nq.batch.BatchRunner;
+import nq.batch.BatchServer;
+import nq.solver.AnnealingSolver;
+import nq.solver.CachingSolver;
+import nq.solver.CompletionSolver;
+import nq.solver.DeadlineSolver;
+import nq.solver.OffHeapMinConflictsSolver;
+import nq.solver.PartialBoard;
+import nq.solver.SolutionCache;
+import nq.solver.SolutionCounter;
+import nq.solver.SolutionEnumerator;
+import nq.solver.SolveResult;
 import nq.solver.Solver;
-import nq.solver.utils.Utils;
+import nq.solver.SolverFactory;
+import nq.solver.sat.QueensEncoding;
+import nq.solver.utils.BinarySolutionReader;
+import nq.solver.utils.BinarySolutionWriter;
+import nq.solver.utils.BoardValidator;
+import nq.solver.utils.Checkpoint;
+import nq.solver.utils.OffHeapBoard;
+import nq.solver.utils.SolutionWriter;
+import nq.solver.utils.SolverMetrics;
+import nq.solver.utils.TextSolutionWriter;
 
 @Command(name = "nq", mixinStandardHelpOptions = true, version = "0.1", description = """
         Solves n-queens problem with additional constraint that no 3 queens in a straight line should exist.
@@ -31,10 +63,7 @@ public class App implements Callable<Integer> {
             Size of the board to solve. Must be >= 8 (or >= 4 if 3-queens-in-a-line check is disabled).
             """)
     public void setBoardSize(int boardSize) {
-        int sizeRequirement = 8;
-        if (this.disable3QueensCheck) {
-            sizeRequirement = 4;
-        }
+        int sizeRequirement = SolverFactory.minBoardSize(!this.disable3QueensCheck);
         if (boardSize < sizeRequirement) {
             throw new ParameterException(spec.commandLine(), String
                     .format("Invalid board size '%d'. The board size must be >= %d.", boardSize, sizeRequirement));
@@ -42,40 +71,500 @@ public class App implements Callable<Integer> {
         this.boardSize = boardSize;
     }
 
-    @Option(names = { "-a", "--algorithm" }, description = "backtracking|gradient")
-    private String algorithm = "backtracking";
+    @Option(names = { "-a", "--algorithm" }, description = """
+            backtracking|bitmask|parallel|gradient|minconflicts|annealing|propagation|sat|constructive|portfolio. Defaults to constructive \
+            with -x, or backtracking otherwise.
+            """)
+    private String algorithm;
+
+    @Option(names = { "--portfolio" }, split = ",", description = """
+            Comma separated algorithms raced by the portfolio algorithm. Repeat an algorithm to run several copies.
+            """)
+    private List<String> portfolio = SolverFactory.DEFAULT_PORTFOLIO;
 
     @Option(names = { "-x", "--no-3queens-check" }, description = "Disables 3-queens-in-a-line check.")
     private boolean disable3QueensCheck = false;
 
+    @Option(names = { "-t", "--threads" }, description = "Number of threads for the parallel algorithms.")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = { "--seed" }, description = "Seed for the randomized algorithms, to replay a run.")
+    private Long seed;
+
+    @Option(names = { "--timeout" }, paramLabel = "<ms>", description = """
+            Stops solving after this many milliseconds, and prints the best board found so far. Also applies \
+            to the batch jobs without a timeout.
+            """)
+    private Long timeout;
+
+    @Option(names = { "--replicas" }, description = """
+            Number of replicas of the annealing, each on its own thread. Defaults to --threads.
+            """)
+    private Integer replicas;
+
+    @Option(names = { "--temperatures" }, split = ",", paramLabel = "<min>,<max>", description = """
+            Lowest and highest temperatures of the annealing schedule. Defaults to 0.1,2.
+            """)
+    private List<Double> temperatures;
+
+    @Option(names = { "--off-heap" }, description = """
+            Keeps the board and the tables of minconflicts outside of the heap, for boards with hundreds of \
+            millions of queens. Needs -x.
+            """)
+    private boolean offHeap = false;
+
+    @Option(names = { "--checkpoint" }, paramLabel = "<file>", description = """
+            Saves the search to this file every 30s and when it stops: the stack of backtracking, the \
+            board of gradient, the counted prefixes of --count, the finished subtrees of --all, or the \
+            mapped --off-heap board.
+            """)
+    private Path checkpoint;
+
+    @Option(names = { "--resume" }, description = "Resumes the search from the --checkpoint file.")
+    private boolean resume = false;
+
+    @Option(names = { "--queens" }, paramLabel = "<row:col,...>", description = """
+            Completes a board with these queens already placed, instead of an empty one.
+            """)
+    private String queens;
+
+    @Option(names = { "--forbid" }, paramLabel = "<row:col,...>", description = """
+            Completes a board where these cells must stay empty, instead of an empty one.
+            """)
+    private String forbidden;
+
+    @Option(names = { "-c", "--count" }, description = "Counts all the solutions instead of finding one.")
+    private boolean countSolutions = false;
+
+    @Option(names = { "--all" }, description = "Prints all the solutions as they are found.")
+    private boolean allSolutions = false;
+
+    @Option(names = { "--limit" }, description = "Stops after printing this many solutions. Implies --all.")
+    private Long limit;
+
+    @Option(names = { "-f", "--format" }, description = """
+            board|list|binary. Defaults to board, or list if --print-board=false. Binary needs --output.
+            """)
+    private String format;
+
+    @Option(names = { "-o", "--output" }, description = "Writes the solutions to this file instead of the output.")
+    private Path output;
+
+    @Option(names = { "--batch" }, paramLabel = "<file>", description = """
+            Runs the jobs in the file (or - for stdin), one per line like `12 minconflicts -x --seed=7`.
+            """)
+    private String batch;
+
+    @Option(names = { "--serve" }, paramLabel = "<port>", description = """
+            Serves the batch jobs posted to http://localhost:<port>/solve until stopped.
+            """)
+    private Integer servePort;
+
+    @Option(names = { "--max-board-size" }, paramLabel = "<n>", description = """
+            Rejects the batch jobs with larger boards, to bound the memory of the solvers.
+            """)
+    private Integer maxBoardSize;
+
+    @Option(names = { "--cache-dir" }, paramLabel = "<dir>", description = """
+            Keeps the solutions in this directory, and looks them up before solving again.
+            """)
+    private Path cacheDir;
+
+    @Option(names = { "--validate" }, paramLabel = "<file>", description = """
+            Validates the solutions in the file (binary, or one list per line) instead of solving.
+            """)
+    private Path validate;
+
+    @Option(names = { "--dump-cnf" }, paramLabel = "<file>", description = """
+            Writes the SAT encoding of the board in DIMACS CNF (or - for the output) instead of solving.
+            """)
+    private String dumpCnf;
+
+    @Option(names = { "-s", "--stats" }, description = "Prints the solver counters, timings and throughput.")
+    private boolean printStats = false;
+
     @Option(names = { "-p", "--print-board" }, description = "Prints the solution as a board in the output.")
     private boolean printSolutionBoard = true;
 
     @Override
     public Integer call() throws Exception {
-        Solver solver;
+        var metrics = this.printStats ? new SolverMetrics() : SolverMetrics.DISABLED;
+
+        if (this.batch != null) {
+            this.rejectCheckpoint();
+            try (var runner = this.createBatchRunner()) {
+                var in = this.batch.equals("-") ? new BufferedReader(new InputStreamReader(System.in))
+                        : Files.newBufferedReader(Path.of(this.batch));
+                runner.run(in, new PrintWriter(System.out));
+                if (this.printStats) {
+                    System.out.println(runner.summary());
+                }
+                runner.getCache().close();
+            }
+            return 0;
+        }
+
+        if (this.servePort != null) {
+            this.rejectCheckpoint();
+            var server = new BatchServer(this.createBatchRunner(), this.servePort);
+            server.start();
+            System.out.println("Serving on http://localhost:" + server.getPort() + "/solve");
+            Thread.currentThread().join();
+            return 0;
+        }
+
+        if (this.validate != null) {
+            this.rejectCheckpoint();
+            return this.validateSolutions(metrics);
+        }
+
+        if (this.dumpCnf != null) {
+            this.rejectCheckpoint();
+            var formula = new QueensEncoding(this.boardSize, !this.disable3QueensCheck).getFormula();
+            if (this.dumpCnf.equals("-")) {
+                formula.writeDimacs(new PrintWriter(System.out));
+            } else {
+                try (var out = Files.newBufferedWriter(Path.of(this.dumpCnf))) {
+                    formula.writeDimacs(out);
+                }
+            }
+            return 0;
+        }
+
+        if (this.queens != null || this.forbidden != null) {
+            this.rejectCheckpoint();
+            return this.completeBoard(metrics);
+        }
+
+        if (this.countSolutions) {
+            var counter = new SolutionCounter(this.boardSize, !this.disable3QueensCheck, this.threads);
+            counter.setMetrics(metrics);
+            if (this.checkpoint != null || this.resume) {
+                counter.setCheckpoint(this.openCheckpoint("count"));
+            }
+            metrics.start();
+            var counts = counter.count();
+            metrics.stop();
+            System.out.println("Total solutions: " + counts.total);
+            System.out.println("Unique solutions: " + counts.unique);
+            this.printStats(metrics);
+            return 0;
+        }
+
+        if (this.allSolutions || this.limit != null) {
+            var enumerator = new SolutionEnumerator(this.boardSize, !this.disable3QueensCheck);
+            if (this.checkpoint != null || this.resume) {
+                // The solutions past the limit are dropped, possibly after their subtree was finished.
+                if (this.limit != null) {
+                    this.rejectCheckpoint();
+                }
+                enumerator.setCheckpoint(this.openCheckpoint("all"));
+            }
+            var solutions = enumerator.stream(this.threads > 1);
+            if (this.threads > 1) {
+                // Any solutions will do, so don't wait for the workers to keep them in order.
+                solutions = solutions.unordered();
+            }
+            if (this.limit != null) {
+                solutions = solutions.limit(this.limit);
+            }
+
+            var writer = this.openWriter();
+            metrics.start();
+            var found = new AtomicLong();
+            try {
+                solutions.forEach(solution -> {
+                    synchronized (writer) {
+                        try {
+                            writer.write(solution);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        found.incrementAndGet();
+                    }
+                });
+            } finally {
+                enumerator.saveCheckpoint();
+            }
+            metrics.stop();
+            this.closeWriter(writer);
+            System.out.println("Solutions: " + found.get());
+            this.printStats(metrics);
+            return 0;
+        }
+
+        // Pick a seed anyway, so that it can be printed and the run replayed.
+        long seed = this.seed != null ? this.seed : new SplittableRandom().nextLong();
+        var random = new SplittableRandom(seed);
+
+        var writer = this.openWriter();
 
         // Select algorithm to use for the solver.
-        switch (this.algorithm) {
-            case "gradient":
-                solver = new GradientHeuristicSolver(this.boardSize, !this.disable3QueensCheck);
-                break;
-            case "backtracking":
-            default:
-                solver = new BacktrackingSolver(this.boardSize, !this.disable3QueensCheck);
+        var algorithm = this.algorithm != null ? this.algorithm
+                : this.offHeap ? "minconflicts" : SolverFactory.defaultAlgorithm(!this.disable3QueensCheck);
+        Solver solver;
+        OffHeapBoard offHeapBoard = null;
+        try {
+            if (this.offHeap) {
+                offHeapBoard = this.openOffHeapBoard(algorithm);
+                solver = new OffHeapMinConflictsSolver(offHeapBoard, random);
+            } else if (algorithm.equals("portfolio")) {
+                solver = SolverFactory.createPortfolio(this.portfolio, this.boardSize, !this.disable3QueensCheck,
+                        this.threads, random);
+            } else if (algorithm.equals("annealing") && (this.replicas != null || this.temperatures != null)) {
+                solver = this.createAnnealing(random);
+            } else {
+                solver = SolverFactory.create(algorithm, this.boardSize, !this.disable3QueensCheck, this.threads,
+                        random);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ParameterException(spec.commandLine(), e.getMessage());
+        }
+        if (!this.offHeap && (this.checkpoint != null || this.resume)
+                && !solver.setCheckpoint(this.openCheckpoint(algorithm))) {
+            this.rejectCheckpoint();
+        }
+
+        SolutionCache cache = null;
+        if (this.cacheDir != null) {
+            cache = new SolutionCache(1, this.cacheDir);
+            solver = new CachingSolver(solver, this.boardSize, !this.disable3QueensCheck, this.seed, cache);
         }
 
         // Do the magic.
-        var solution = solver.solve();
+        solver.setMetrics(metrics);
+        metrics.start();
+        SolveResult result;
+        if (this.timeout != null) {
+            result = new DeadlineSolver(solver, this.boardSize, !this.disable3QueensCheck, this.getTimeout())
+                    .solveWithDeadline();
+        } else {
+            result = SolveResult.of(solver.solveInto(new int[this.boardSize]));
+        }
+        metrics.stop();
+
+        // Output the solution, or why there's none.
+        if (result.isSolved()) {
+            writer.write(result.board, result.board.length);
+        } else if (!result.timedOut) {
+            System.out.println("No solution found for N=" + this.boardSize);
+        } else {
+            System.out.println(String.format("No solution found for N=%d within %dms", this.boardSize, this.timeout));
+            if (result.board != null) {
+                System.out.println(String.format("Best board so far, with %d conflicts:", result.conflicts));
+                writer.write(result.board, result.board.length);
+            }
+        }
+        this.closeWriter(writer);
+        if (offHeapBoard != null) {
+            offHeapBoard.close();
+        }
+        if (this.printStats) {
+            System.out.println("Seed:            " + seed);
+        }
+        this.printStats(metrics);
+        if (cache != null) {
+            if (this.printStats) {
+                System.out.println(cache.summary());
+            }
+            cache.close();
+        }
+
+        return result.timedOut && !result.isSolved() ? 1 : 0;
+    }
+
+    /**
+     * Validates all the solutions in the file, and prints the problems of the first invalid ones.
+     * Returns 1 if any of them is invalid.
+     */
+    private int validateSolutions(SolverMetrics metrics) throws IOException {
+        var check = !this.disable3QueensCheck;
+        var validators = new HashMap<Integer, BoardValidator>();
+        long valid = 0;
+        long invalid = 0;
+
+        metrics.start();
+        try {
+            if (BinarySolutionReader.isBinarySolutionFile(this.validate)) {
+                try (var reader = new BinarySolutionReader(this.validate)) {
+                    var validator = new BoardValidator(reader.getBoardSize(), check, this.threads);
+                    validators.put(reader.getBoardSize(), validator);
+                    var solution = new int[reader.getBoardSize()];
+                    for (long i = 0; i < reader.size(); i++) {
+                        var violation = validator.findViolation(reader.get(i, solution));
+                        if (violation == null) {
+                            valid++;
+                        } else if (invalid++ < 10) {
+                            System.out.println(String.format("Solution %d: %s", i, violation));
+                        }
+                    }
+                }
+            } else {
+                try (var lines = Files.newBufferedReader(this.validate)) {
+                    String line;
+                    for (long i = 0; (line = lines.readLine()) != null; i++) {
+                        var columns = line.replaceAll("[\\[\\],]", " ").trim();
+                        if (columns.isEmpty()) {
+                            continue;
+                        }
+                        var solution = Arrays.stream(columns.split("\\s+")).mapToInt(Integer::parseInt).toArray();
+                        var validator = validators.computeIfAbsent(solution.length,
+                                n -> new BoardValidator(n, check, this.threads));
+                        var violation = validator.findViolation(solution);
+                        if (violation == null) {
+                            valid++;
+                        } else if (invalid++ < 10) {
+                            System.out.println(String.format("Solution %d: %s", i, violation));
+                        }
+                    }
+                }
+            }
+        } finally {
+            validators.values().forEach(BoardValidator::close);
+        }
+        metrics.stop();
+
+        System.out.println("Valid solutions: " + valid);
+        System.out.println("Invalid solutions: " + invalid);
+        this.printStats(metrics);
+        return invalid > 0 ? 1 : 0;
+    }
+
+    /** Completes the board with the queens and forbidden cells from the command line. */
+    private int completeBoard(SolverMetrics metrics) throws IOException {
+        PartialBoard board;
+        try {
+            board = PartialBoard.parse(this.boardSize, this.queens, this.forbidden);
+        } catch (IllegalArgumentException e) {
+            throw new ParameterException(spec.commandLine(), e.getMessage());
+        }
+
+        var solver = new CompletionSolver(this.boardSize, !this.disable3QueensCheck);
+        solver.setMetrics(metrics);
+        metrics.start();
+        var solution = solver.complete(board, new int[this.boardSize]);
+        metrics.stop();
+
+        var writer = this.openWriter();
+        if (solution != null) {
+            writer.write(solution, solution.length);
+        } else {
+            System.out.println("No completion found for N=" + this.boardSize);
+        }
+        this.closeWriter(writer);
+        this.printStats(metrics);
+        return solution != null ? 0 : 1;
+    }
+
+    /** Creates the annealing solver with the replicas and temperatures from the command line. */
+    private AnnealingSolver createAnnealing(SplittableRandom random) {
+        int replicas = this.replicas != null ? this.replicas : this.threads;
+        if (this.temperatures == null) {
+            return new AnnealingSolver(this.boardSize, !this.disable3QueensCheck, replicas, random);
+        }
+        if (this.temperatures.size() != 2) {
+            throw new IllegalArgumentException("Expected the temperatures as <min>,<max>.");
+        }
+        return new AnnealingSolver(this.boardSize, !this.disable3QueensCheck, replicas, this.temperatures.get(0),
+                this.temperatures.get(1), random);
+    }
+
+    /** Rejects --checkpoint and --resume, for the modes that can't save their search. */
+    private void rejectCheckpoint() {
+        if (this.checkpoint != null || this.resume) {
+            throw new ParameterException(spec.commandLine(),
+                    "--checkpoint only works with backtracking, gradient, --count, --all without --limit, or "
+                            + "--off-heap.");
+        }
+    }
+
+    /** Opens the checkpoint file of a search on the heap, and reads it if it's resumed. */
+    private Checkpoint openCheckpoint(String kind) throws IOException {
+        if (this.checkpoint == null) {
+            throw new ParameterException(spec.commandLine(), "--resume needs a --checkpoint file.");
+        }
+        var checkpoint = Checkpoint.open(this.checkpoint, kind, this.boardSize, !this.disable3QueensCheck,
+                this.resume);
+        if (checkpoint.isResuming()) {
+            System.out.println("Resuming from " + this.checkpoint);
+        }
+        return checkpoint;
+    }
+
+    /** Allocates the board of the off-heap search, or maps it to the checkpoint file. */
+    private OffHeapBoard openOffHeapBoard(String algorithm) throws IOException {
+        if (!algorithm.equals("minconflicts")) {
+            throw new ParameterException(spec.commandLine(), "--off-heap only works with minconflicts.");
+        }
+        if (!this.disable3QueensCheck) {
+            throw new ParameterException(spec.commandLine(), "--off-heap only solves the traditional problem (-x).");
+        }
+        if (this.resume && this.checkpoint == null) {
+            throw new ParameterException(spec.commandLine(), "--resume needs a --checkpoint file.");
+        }
+        if (this.checkpoint == null) {
+            return OffHeapBoard.allocate(this.boardSize);
+        }
+        var board = OffHeapBoard.map(this.checkpoint, this.boardSize, this.resume);
+        if (board.isResumed()) {
+            System.out.println(String.format("Resuming from %s, after %d restarts and %d steps", this.checkpoint,
+                    board.getRestarts(), board.getSteps()));
+        }
+        return board;
+    }
 
-        // Output the solution.
-        if (this.printSolutionBoard) {
-            Utils.printChessboard(solution, this.boardSize);
+    private BatchRunner createBatchRunner() throws IOException {
+        var runner = this.cacheDir == null ? new BatchRunner(this.threads)
+                : new BatchRunner(this.threads, new SolutionCache(1024, this.cacheDir));
+        if (this.timeout != null) {
+            runner.setTimeout(this.getTimeout());
+        }
+        if (this.maxBoardSize != null) {
+            runner.setMaxBoardSize(this.maxBoardSize);
+        }
+        return runner;
+    }
+
+    private Duration getTimeout() {
+        if (this.timeout <= 0) {
+            throw new ParameterException(spec.commandLine(),
+                    String.format("Invalid timeout '%d'. The timeout must be > 0.", this.timeout));
+        }
+        return Duration.ofMillis(this.timeout);
+    }
+
+    /** Opens the writer for the selected output format and file. */
+    private SolutionWriter openWriter() throws IOException {
+        var format = this.format != null ? this.format : this.printSolutionBoard ? "board" : "list";
+        switch (format) {
+            case "board":
+            case "list":
+                var out = this.output != null ? Files.newOutputStream(this.output) : System.out;
+                return new TextSolutionWriter(out, this.boardSize, format.equals("board"));
+            case "binary":
+                if (this.output == null) {
+                    throw new ParameterException(spec.commandLine(), "The binary format needs an --output file.");
+                }
+                return new BinarySolutionWriter(this.output, this.boardSize);
+            default:
+                throw new ParameterException(spec.commandLine(),
+                        String.format("Unknown format '%s'. Expected one of board|list|binary.", format));
+        }
+    }
+
+    /** Closes the writer, but only flushes it when writing to the output, which stays open. */
+    private void closeWriter(SolutionWriter writer) throws IOException {
+        if (this.output != null) {
+            writer.close();
         } else {
-            System.out.println(solution);
+            writer.flush();
+        }
+    }
+
+    private void printStats(SolverMetrics metrics) {
+        if (this.printStats) {
+            System.out.println(metrics.summary());
         }
-        
-        return 0;
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,284 @@
+package nq.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import nq.solver.CachingSolver;
+import nq.solver.CompletionSolver;
+import nq.solver.DeadlineSolver;
+import nq.solver.SolutionCache;
+import nq.solver.SolveResult;
+import nq.solver.Solver;
+import nq.solver.SolverFactory;
+
+/**
+ * Runs solve jobs on a `JobExecutor`, so that many small solves share a single warmed up JVM. The
+ * jobs of every input (e.g. every request of the server) are queued apart, and the inputs take
+ * turns, up to `MAX_QUEUED_PER_THREAD` queued jobs per thread in total.
+ *
+ * The idle solvers are kept in a pool, keyed by algorithm and board size, and reused by the next
+ * jobs with the same key, whichever thread runs them. The jobs with a fixed seed get a fresh solver,
+ * so that they can be replayed. So do the algorithms that run on threads of their own (see
+ * `SolverFactory.THREADED_ALGORITHMS`), since a solver that was interrupted may still have threads
+ * running when its job ends, and the next job must not share it with them.
+ *
+ * The solutions are also kept in a `SolutionCache`, so repeated jobs are only looked up. The jobs
+ * that complete a partial board share a `CompletionSolver` per board size instead, which caches the
+ * completions by itself.
+ *
+ * At most `MAX_PENDING_PER_THREAD` jobs per worker are read ahead of the results being written, so
+ * that arbitrarily long inputs run in bounded memory. The jobs over `maxBoardSize` are rejected
+ * before any solver is created, since the memory of the solvers grows with the board size.
+ *
+ * Every job produces one result line, like `n=12 algorithm=bitmask check=true time=0.123ms
+ * solution=[...]`, or `error=...` instead of the solution if the job failed. The jobs that run out
+ * of time end with `timeout=true conflicts=<conflicts> best=[...]` instead, with the best board
+ * that the solver found (if any).
+ */
+public class BatchRunner implements AutoCloseable {
+    /** Number of keys with idle solvers kept, evicting the least recently used ones. */
+    static final int CACHED_SOLVERS = 16;
+    /** Number of solutions kept in memory by the default cache. */
+    static final int CACHED_SOLUTIONS = 1024;
+    /** Number of jobs per worker that may be waiting for their results to be written. */
+    static final int MAX_PENDING_PER_THREAD = 64;
+    /**
+     * Number of jobs per worker that may be queued, across all the inputs. It's a few times the
+     * jobs pending for a single input, so that only concurrent inputs can be rejected.
+     */
+    static final int MAX_QUEUED_PER_THREAD = 4 * MAX_PENDING_PER_THREAD;
+
+    final int threads;
+    final JobExecutor executor;
+    final SolutionCache cache;
+    /** The timeout of the jobs that don't set one, or null to let them run until they are done. */
+    Duration timeout;
+    /** The largest board size accepted. */
+    int maxBoardSize = Integer.MAX_VALUE;
+
+    /**
+     * The idle solvers, keyed by algorithm, board size and line check. There are never more than
+     * `threads` of them per key, since there are no more jobs running at once.
+     */
+    final Map<String, ArrayDeque<Solver>> idleSolvers = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ArrayDeque<Solver>> eldest) {
+            return this.size() > CACHED_SOLVERS;
+        }
+    };
+
+    /** The completion solvers shared by all the workers, keyed by board size and line check. */
+    final Map<String, CompletionSolver> completionSolvers = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompletionSolver> eldest) {
+            return this.size() > CACHED_SOLVERS;
+        }
+    };
+
+    public BatchRunner(int threads) {
+        this(threads, new SolutionCache(CACHED_SOLUTIONS));
+    }
+
+    public BatchRunner(int threads, SolutionCache cache) {
+        this(threads, cache, MAX_QUEUED_PER_THREAD * threads);
+    }
+
+    BatchRunner(int threads, SolutionCache cache, int capacity) {
+        this.threads = threads;
+        this.cache = cache;
+        this.executor = new JobExecutor(threads, capacity);
+    }
+
+    /** Submits a job line to the pool, and returns its future result line. */
+    public Future<String> submit(String line) {
+        return this.submit(line, this);
+    }
+
+    /**
+     * Submits a job line of the client to the pool, and returns its future result line. If the
+     * queue is full, the result is an error line right away.
+     */
+    Future<String> submit(String line, Object client) {
+        try {
+            return this.executor.submit(client, () -> this.run(line));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(String.format("job=\"%s\" error=\"%s\"", line.trim(),
+                    e.getMessage()));
+        }
+    }
+
+    /**
+     * Runs all the jobs read from `in`, one per line, and writes their result lines to `out` in the
+     * same order. Empty lines and lines starting with `#` are skipped. The results are written as
+     * soon as all the jobs before them are done, without waiting for the end of the input. Once too
+     * many jobs are pending, the input is only read further after the oldest one is written.
+     */
+    public void run(BufferedReader in, Writer out) throws IOException {
+        this.run(in, out, in);
+    }
+
+    /** Same as `run(in, out)`, but the jobs are queued as the client's, which take turns with the others. */
+    public void run(BufferedReader in, Writer out, Object client) throws IOException {
+        var pending = new ArrayDeque<Future<String>>();
+        int maxPending = MAX_PENDING_PER_THREAD * this.threads;
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            if (pending.size() >= maxPending) {
+                this.writeResult(pending.poll(), out);
+            }
+            pending.add(this.submit(line, client));
+            while (!pending.isEmpty() && pending.peek().isDone()) {
+                this.writeResult(pending.poll(), out);
+            }
+        }
+        while (!pending.isEmpty()) {
+            this.writeResult(pending.poll(), out);
+        }
+        out.flush();
+    }
+
+    private void writeResult(Future<String> result, Writer out) throws IOException {
+        try {
+            out.write(result.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a job", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Job failed unexpectedly", e.getCause());
+        }
+        out.write('\n');
+        out.flush();
+    }
+
+    /** Runs a single job line in the current thread, and returns its result line. */
+    String run(String line) {
+        Job job;
+        try {
+            job = Job.parse(line);
+        } catch (IllegalArgumentException e) {
+            return String.format("job=\"%s\" error=\"%s\"", line.trim(), e.getMessage());
+        }
+
+        if (job.boardSize > this.maxBoardSize) {
+            return String.format("%s error=\"Board size %d is over the limit of %d.\"", job, job.boardSize,
+                    this.maxBoardSize);
+        }
+        if (job.board != null) {
+            return this.complete(job);
+        }
+
+        var timeout = job.timeout != null ? job.timeout : this.timeout;
+        Solver pooled = null;
+        try {
+            if (job.seed == null && !SolverFactory.THREADED_ALGORITHMS.contains(job.algorithm)) {
+                pooled = this.borrowSolver(job);
+            }
+            Solver solver = pooled != null ? pooled : job.createSolver(this.threads);
+            solver = new CachingSolver(solver, job.boardSize, job.enable3QueensInLineCheck, job.seed, this.cache);
+
+            long start = System.nanoTime();
+            SolveResult result;
+            if (timeout != null) {
+                result = new DeadlineSolver(solver, job.boardSize, job.enable3QueensInLineCheck, timeout)
+                        .solveWithDeadline();
+            } else {
+                result = SolveResult.of(solver.solveInto(new int[job.boardSize]));
+            }
+            long elapsed = System.nanoTime() - start;
+
+            return String.format("%s time=%.3fms %s", job, elapsed / 1e6, result);
+        } catch (RuntimeException e) {
+            return String.format("%s error=\"%s\"", job, e);
+        } finally {
+            if (pooled != null) {
+                this.releaseSolver(job, pooled);
+            }
+        }
+    }
+
+    /** Takes an idle solver for the job out of the pool, or creates one. */
+    private Solver borrowSolver(Job job) {
+        synchronized (this.idleSolvers) {
+            var idle = this.idleSolvers.get(job.solverKey());
+            if (idle != null && !idle.isEmpty()) {
+                return idle.pop();
+            }
+        }
+        return job.createSolver(this.threads);
+    }
+
+    /** Puts the solver back into the pool, unless the pool has enough of them. */
+    private void releaseSolver(Job job, Solver solver) {
+        synchronized (this.idleSolvers) {
+            var idle = this.idleSolvers.computeIfAbsent(job.solverKey(), key -> new ArrayDeque<>());
+            if (idle.size() < this.threads) {
+                idle.push(solver);
+            }
+        }
+    }
+
+    /** Runs a job that completes a partial board, and returns its result line. */
+    private String complete(Job job) {
+        try {
+            CompletionSolver solver;
+            synchronized (this.completionSolvers) {
+                solver = this.completionSolvers.computeIfAbsent(job.boardSize + "/" + job.enable3QueensInLineCheck,
+                        key -> new CompletionSolver(job.boardSize, job.enable3QueensInLineCheck));
+            }
+
+            long start = System.nanoTime();
+            var solution = solver.complete(job.board, new int[job.boardSize]);
+            long elapsed = System.nanoTime() - start;
+
+            return String.format("%s time=%.3fms solution=%s", job, elapsed / 1e6,
+                    solution != null ? Arrays.toString(solution) : "[]");
+        } catch (RuntimeException e) {
+            return String.format("%s error=\"%s\"", job, e);
+        }
+    }
+
+    /** Sets the timeout of the jobs that don't set one, or null to let them run until they are done. */
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    /** Sets the largest board size accepted. The larger jobs only get an error line. */
+    public void setMaxBoardSize(int maxBoardSize) {
+        this.maxBoardSize = maxBoardSize;
+    }
+
+    public SolutionCache getCache() {
+        return this.cache;
+    }
+
+    public JobExecutor getExecutor() {
+        return this.executor;
+    }
+
+    /** Returns a human readable summary of the jobs, their latencies and the cache. */
+    public String summary() {
+        return this.executor.summary() + System.lineSeparator() + this.cache.summary();
+    }
+
+    @Override
+    public void close() {
+        this.executor.close();
+    }
+}
@@ -0,0 +1,88 @@
+package nq.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A small HTTP server on the loopback interface that runs the posted jobs with a `BatchRunner`.
+ *
+ * `POST /solve` takes the same job lines as the batch mode in its body, and streams back the
+ * result lines in the same order. The jobs of every request are queued apart, so concurrent
+ * requests take turns on the workers. `GET /stats` returns the summary of the runner, with the
+ * queue depth and the latency percentiles of the jobs:
+ *
+ * ```
+ * $ curl --data-binary $'12 bitmask\n20 minconflicts -x' http://localhost:8080/solve
+ * $ curl http://localhost:8080/stats
+ * ```
+ */
+public class BatchServer implements AutoCloseable {
+    final BatchRunner runner;
+    final HttpServer server;
+    final ExecutorService executor;
+
+    public BatchServer(BatchRunner runner, int port) throws IOException {
+        this.runner = runner;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/solve", this::handleSolve);
+        this.server.createContext("/stats", this::handleStats);
+        // The requests only wait for the runner, so they can run on cheap virtual threads.
+        this.executor = JobExecutor.newThreadPerTaskExecutor("nq-http");
+        this.server.setExecutor(this.executor);
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    /** Returns the port that the server listens to, which is useful if it was started on port 0. */
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    void handleSolve(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().add("Allow", "POST");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            var in = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+            var out = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8);
+            this.runner.run(in, out, exchange);
+        }
+    }
+
+    void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().add("Allow", "GET");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            var body = (this.runner.summary() + "\n").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+}
@@ -0,0 +1,146 @@
+package nq.batch;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+import nq.solver.PartialBoard;
+import nq.solver.Solver;
+import nq.solver.SolverFactory;
+
+/**
+ * A single solve request in batch mode, parsed from a line like `12 minconflicts -x --seed=7`.
+ *
+ * The board size comes first, optionally followed by the algorithm (the same default as `App`),
+ * `-x` to disable the 3-queens-in-a-line check, `--seed=<seed>` for the randomized algorithms, and
+ * `--timeout=<ms>` to give up and return the best board found so far after that long.
+ *
+ * Jobs with `--queens=<row>:<column>,...` or `--forbid=<row>:<column>,...` complete a partial board
+ * instead, with the `completion` algorithm.
+ */
+public class Job {
+    /** The algorithm of the jobs that complete a partial board. */
+    public static final String COMPLETION = "completion";
+
+    public final int boardSize;
+    public final String algorithm;
+    public final boolean enable3QueensInLineCheck;
+    /** The seed for the randomized algorithms, or null to pick a random one. */
+    public final Long seed;
+    /** The partial board to complete, or null to solve an empty board. */
+    public final PartialBoard board;
+    /** The time after which the job gives up, or null to use the default of the runner. */
+    public final Duration timeout;
+
+    public Job(int boardSize, String algorithm, boolean enable3QueensInLineCheck, Long seed) {
+        this(boardSize, algorithm, enable3QueensInLineCheck, seed, null, null);
+    }
+
+    public Job(int boardSize, String algorithm, boolean enable3QueensInLineCheck, Long seed, PartialBoard board,
+            Duration timeout) {
+        this.boardSize = boardSize;
+        this.algorithm = algorithm;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+        this.seed = seed;
+        this.board = board;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Parses a job from a line.
+     *
+     * @throws IllegalArgumentException if the line is not a valid job
+     */
+    public static Job parse(String line) {
+        var tokens = line.trim().split("\\s+");
+        int boardSize;
+        try {
+            boardSize = Integer.parseInt(tokens[0]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid board size '%s'.", tokens[0]));
+        }
+
+        String algorithm = null;
+        boolean enable3QueensInLineCheck = true;
+        Long seed = null;
+        String queens = null;
+        String forbidden = null;
+        Duration timeout = null;
+        for (int i = 1; i < tokens.length; i++) {
+            var token = tokens[i];
+            if (token.equals("-x") || token.equals("--no-3queens-check")) {
+                enable3QueensInLineCheck = false;
+            } else if (token.startsWith("--seed=")) {
+                try {
+                    seed = Long.parseLong(token.substring("--seed=".length()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(String.format("Invalid seed '%s'.", token));
+                }
+            } else if (token.startsWith("--timeout=")) {
+                long millis;
+                try {
+                    millis = Long.parseLong(token.substring("--timeout=".length()));
+                } catch (NumberFormatException e) {
+                    millis = 0;
+                }
+                if (millis <= 0) {
+                    throw new IllegalArgumentException(String.format("Invalid timeout '%s'.", token));
+                }
+                timeout = Duration.ofMillis(millis);
+            } else if (token.startsWith("--queens=")) {
+                queens = token.substring("--queens=".length());
+            } else if (token.startsWith("--forbid=")) {
+                forbidden = token.substring("--forbid=".length());
+            } else if (!token.startsWith("-") && i == 1) {
+                algorithm = token;
+            } else {
+                throw new IllegalArgumentException(String.format("Unknown job option '%s'.", token));
+            }
+        }
+
+        PartialBoard board = null;
+        if (queens != null || forbidden != null) {
+            if (algorithm != null || seed != null || timeout != null) {
+                throw new IllegalArgumentException("Completion jobs don't take an algorithm, a seed or a timeout.");
+            }
+            algorithm = COMPLETION;
+        }
+        if (algorithm == null) {
+            algorithm = SolverFactory.defaultAlgorithm(enable3QueensInLineCheck);
+        }
+        if (!algorithm.equals(COMPLETION) && !SolverFactory.ALGORITHMS.contains(algorithm)) {
+            throw new IllegalArgumentException(String.format("Unknown algorithm '%s'.", algorithm));
+        }
+        int sizeRequirement = SolverFactory.minBoardSize(enable3QueensInLineCheck);
+        if (boardSize < sizeRequirement) {
+            throw new IllegalArgumentException(String
+                    .format("Invalid board size '%d'. The board size must be >= %d.", boardSize, sizeRequirement));
+        }
+
+        if (algorithm.equals(COMPLETION)) {
+            board = PartialBoard.parse(boardSize, queens, forbidden);
+        }
+
+        return new Job(boardSize, algorithm, enable3QueensInLineCheck, seed, board, timeout);
+    }
+
+    /** Creates a new solver for this job. */
+    Solver createSolver(int threads) {
+        var random = this.seed != null ? new SplittableRandom(this.seed) : new SplittableRandom();
+        return SolverFactory.create(this.algorithm, this.boardSize, this.enable3QueensInLineCheck, threads, random);
+    }
+
+    /** Returns a key that identifies the solvers that can be reused for this job. */
+    String solverKey() {
+        return this.algorithm + "/" + this.boardSize + "/" + this.enable3QueensInLineCheck;
+    }
+
+    @Override
+    public String toString() {
+        var job = String.format("n=%d algorithm=%s check=%b", this.boardSize, this.algorithm,
+                this.enable3QueensInLineCheck);
+        if (this.board != null) {
+            job += String.format(" queens=%d forbidden=%d", this.board.countQueens(), this.board.countForbidden());
+        }
+        return job;
+    }
+}
@@ -0,0 +1,228 @@
+package nq.batch;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs jobs with a bounded concurrency, and queues the others fairly between the clients that
+ * submitted them.
+ *
+ * Every client has a queue of its own, and the queues take turns: whenever a job can start, it's
+ * taken from the client after the one that started a job last. So a client with a long batch only
+ * gets its share of the threads, and the short requests of the other clients don't wait behind it.
+ * At most `capacity` jobs may be queued at once, across all the clients. The jobs past that are
+ * rejected right away, instead of piling up in memory.
+ *
+ * Each job runs on a virtual thread of its own if the JVM has them (Java 21 and later), and on a
+ * fixed pool of carrier threads otherwise. Either way, only `parallelism` jobs run at the same
+ * time, since the solves are bound by the CPU. The latency of every job, from its submission to
+ * its end, is recorded in a `LatencyHistogram`.
+ */
+public class JobExecutor implements AutoCloseable {
+    final int parallelism;
+    final int capacity;
+    final ExecutorService executor;
+    final boolean virtualThreads;
+    final LatencyHistogram latencies = new LatencyHistogram();
+
+    /** The queues of the clients with queued jobs, in the order that they take turns. */
+    final Map<Object, ArrayDeque<Task<?>>> queues = new LinkedHashMap<>();
+    int queued;
+    int maxQueued;
+    int running;
+    long rejected;
+    boolean closed;
+
+    public JobExecutor(int parallelism, int capacity) {
+        if (parallelism < 1 || capacity < 1) {
+            throw new IllegalArgumentException(String.format("Invalid parallelism %d or capacity %d. Both must be > 0.",
+                    parallelism, capacity));
+        }
+        this.parallelism = parallelism;
+        this.capacity = capacity;
+        var executor = newVirtualThreadPerTaskExecutor();
+        this.virtualThreads = executor != null;
+        // The pool never queues anything, since it only gets a job when one of its threads is free.
+        this.executor = executor != null ? executor
+                : Executors.newFixedThreadPool(parallelism, daemonThreadFactory("nq-batch"));
+    }
+
+    /**
+     * Returns an executor that starts a virtual thread per task, or null if the JVM doesn't have
+     * virtual threads. It's looked up by reflection, so that the code still builds for Java 17.
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Either too old, or a preview that isn't enabled.
+            return null;
+        }
+    }
+
+    /**
+     * Returns an executor that runs every task on a thread of its own, for tasks that mostly wait,
+     * like requests. The threads are virtual if the JVM has them, and pooled daemon threads otherwise.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String name) {
+        var executor = newVirtualThreadPerTaskExecutor();
+        return executor != null ? executor : Executors.newCachedThreadPool(daemonThreadFactory(name));
+    }
+
+    static ThreadFactory daemonThreadFactory(String name) {
+        return runnable -> {
+            var thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Queues a job of the client, and returns its future result. The client may be any object with
+     * a proper `equals()` and `hashCode()`.
+     *
+     * @throws RejectedExecutionException if the queue is full or the executor is closed
+     */
+    public <T> CompletableFuture<T> submit(Object client, Callable<T> job) {
+        var task = new Task<>(job);
+        synchronized (this) {
+            if (this.closed) {
+                throw new RejectedExecutionException("The executor is closed.");
+            }
+            if (this.queued >= this.capacity) {
+                this.rejected++;
+                throw new RejectedExecutionException(String.format("Too many queued jobs (%d).", this.capacity));
+            }
+            this.queues.computeIfAbsent(client, key -> new ArrayDeque<>()).add(task);
+            this.queued++;
+            this.maxQueued = Math.max(this.maxQueued, this.queued);
+        }
+        this.dispatch();
+        return task.future;
+    }
+
+    /** Starts queued jobs until all the threads are busy or the queues are empty. */
+    private void dispatch() {
+        while (true) {
+            Task<?> task;
+            synchronized (this) {
+                if (this.closed || this.running >= this.parallelism || this.queued == 0) {
+                    return;
+                }
+                task = this.pollNextTask();
+                this.queued--;
+                this.running++;
+            }
+            try {
+                this.executor.execute(() -> this.run(task));
+            } catch (RejectedExecutionException e) {
+                // Only happens once the executor is closed.
+                synchronized (this) {
+                    this.running--;
+                }
+                task.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /** Takes the next job of the client whose turn it is, and sends the client to the back of the line. */
+    private Task<?> pollNextTask() {
+        var it = this.queues.entrySet().iterator();
+        var entry = it.next();
+        var queue = entry.getValue();
+        var task = queue.poll();
+        it.remove();
+        if (!queue.isEmpty()) {
+            this.queues.put(entry.getKey(), queue);
+        }
+        return task;
+    }
+
+    private void run(Task<?> task) {
+        try {
+            task.call();
+        } finally {
+            // Counted before the result is out, so that whoever waits for it sees the job as done.
+            this.latencies.record(System.nanoTime() - task.submitNanos);
+            synchronized (this) {
+                this.running--;
+            }
+            task.complete();
+            this.dispatch();
+        }
+    }
+
+    /** Returns the number of jobs waiting for a thread. */
+    public synchronized int getQueueDepth() {
+        return this.queued;
+    }
+
+    public LatencyHistogram getLatencies() {
+        return this.latencies;
+    }
+
+    /** Returns a human readable summary of the jobs, the queue and the latencies. */
+    public synchronized String summary() {
+        return String.format("Jobs:            %d done, %d running, %d queued (at most %d), %d rejected%n",
+                this.latencies.getCount(), this.running, this.queued, this.maxQueued, this.rejected)
+                + String.format("Threads:         %d at a time, on %s threads%n", this.parallelism,
+                        this.virtualThreads ? "virtual" : "carrier")
+                + this.latencies.summary();
+    }
+
+    /** Interrupts the running jobs, and cancels the queued ones. */
+    @Override
+    public void close() {
+        synchronized (this) {
+            this.closed = true;
+            for (var queue : this.queues.values()) {
+                for (var task : queue) {
+                    task.future.cancel(false);
+                }
+            }
+            this.queues.clear();
+            this.queued = 0;
+        }
+        this.executor.shutdownNow();
+    }
+
+    static class Task<T> {
+        final Callable<T> job;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final long submitNanos = System.nanoTime();
+        T result;
+        Throwable error;
+
+        Task(Callable<T> job) {
+            this.job = job;
+        }
+
+        /** Runs the job, unless it was cancelled while it was queued. */
+        void call() {
+            if (this.future.isDone()) {
+                return;
+            }
+            try {
+                this.result = this.job.call();
+            } catch (Throwable e) {
+                this.error = e;
+            }
+        }
+
+        void complete() {
+            if (this.error != null) {
+                this.future.completeExceptionally(this.error);
+            } else {
+                this.future.complete(this.result);
+            }
+        }
+    }
+}
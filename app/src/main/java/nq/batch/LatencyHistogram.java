@@ -0,0 +1,85 @@
+package nq.batch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Records latencies in nanoseconds, and estimates their percentiles. It's safe to record from many
+ * threads at once, and recording never allocates.
+ *
+ * The values go into log-linear buckets: every power of 2 is split into 16 buckets of the same
+ * width, so a percentile is off by at most 1/16 (about 6%) of its value. Values up to 2^63 fit in
+ * less than 1000 buckets.
+ */
+public class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    final AtomicLongArray counts = new AtomicLongArray(bucketOf(Long.MAX_VALUE) + 1);
+    final AtomicLong count = new AtomicLong();
+    final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /** Returns the bucket of a non-negative value. The values below 16 have a bucket each. */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /** Returns the highest value that falls in the bucket. */
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        this.counts.incrementAndGet(bucketOf(nanos));
+        this.count.incrementAndGet();
+        this.max.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Returns the latency that `percentile` percent of the values are at or below, rounded up to the
+     * end of its bucket (but never above the max). Returns 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        long total = this.count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max((long) Math.ceil(percentile / 100 * total), 1);
+        long seen = 0;
+        for (int i = 0; i < this.counts.length(); i++) {
+            seen += this.counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), this.getMax());
+            }
+        }
+        // The count was bumped after the bucket of a value that is still being recorded.
+        return this.getMax();
+    }
+
+    /** Returns a human readable summary of the percentiles. */
+    public String summary() {
+        return String.format("Latency:         p50=%.3fms p90=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms",
+                this.getPercentile(50) / 1e6, this.getPercentile(90) / 1e6, this.getPercentile(99) / 1e6,
+                this.getPercentile(99.9) / 1e6, this.getMax() / 1e6);
+    }
+}
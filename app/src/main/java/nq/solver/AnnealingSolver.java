@@ -0,0 +1,355 @@
+package nq.solver;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import nq.solver.utils.BestSoFar;
+import nq.solver.utils.CollisionsTracker;
+import nq.solver.utils.SolverMetrics;
+import nq.solver.utils.Utils;
+
+/**
+ * Implements simulated annealing over permutations, with an optional parallel tempering mode.
+ *
+ * The energy of a board is the number of diagonal collisions, plus the number of queens in excess
+ * of 2 on every line. Both are zero only for valid solutions. A move swaps a queen that may be in
+ * conflict with a random queen, and its energy delta comes from `CollisionsTracker` by lifting and
+ * placing back both queens. A move is accepted if it doesn't make things worse, or else with the
+ * Metropolis probability exp(-delta / temperature), so the search can climb out of the local
+ * minima that stall `GradientHeuristicSolver`.
+ *
+ * With a single replica, the temperature cools geometrically from the max to the min temperature
+ * over each cycle of `CYCLE_STEPS_PER_QUEEN * N` moves, and is then reheated. With more replicas,
+ * each one runs on its own thread at a fixed temperature of a geometric ladder between the min and
+ * the max. Every `EXCHANGE_INTERVAL` moves, the replicas wait for each other and the neighboring
+ * temperatures are swapped with the usual replica exchange probability, which moves the better
+ * boards towards the cold end.
+ */
+public class AnnealingSolver implements Solver {
+    static final double DEFAULT_MIN_TEMPERATURE = 0.1;
+    static final double DEFAULT_MAX_TEMPERATURE = 2.0;
+    /** Length of a cooling cycle of the single replica, per queen. */
+    static final int CYCLE_STEPS_PER_QUEEN = 256;
+    /** Number of moves each replica makes between the exchanges of the parallel tempering. */
+    static final int EXCHANGE_INTERVAL = 512;
+
+    int boardSize;
+    boolean enable3QueensInLineCheck = false;
+    int replicas;
+    double minTemperature;
+    double maxTemperature;
+
+    SolverMetrics metrics = SolverMetrics.DISABLED;
+    SplittableRandom random;
+    /** The board with the lowest energy of any replica, since the last solve started. */
+    final BestSoFar best;
+
+    public AnnealingSolver(int boardSize, boolean enable3QueensInLineCheck) {
+        this(boardSize, enable3QueensInLineCheck, 1, new SplittableRandom());
+    }
+
+    /** Creates a solver with the default temperatures, where the replicas draw from the random stream. */
+    public AnnealingSolver(int boardSize, boolean enable3QueensInLineCheck, int replicas, SplittableRandom random) {
+        this(boardSize, enable3QueensInLineCheck, replicas, DEFAULT_MIN_TEMPERATURE, DEFAULT_MAX_TEMPERATURE,
+                random);
+    }
+
+    /**
+     * Creates a solver with the given temperature range. With more than one replica, it runs the
+     * parallel tempering with a thread per replica.
+     */
+    public AnnealingSolver(int boardSize, boolean enable3QueensInLineCheck, int replicas, double minTemperature,
+            double maxTemperature, SplittableRandom random) {
+        if (replicas < 1) {
+            throw new IllegalArgumentException("The number of replicas must be >= 1.");
+        }
+        if (!(minTemperature > 0 && minTemperature <= maxTemperature)) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid temperatures %s..%s. They must be > 0, with min <= max.", minTemperature, maxTemperature));
+        }
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+        this.replicas = replicas;
+        this.minTemperature = minTemperature;
+        this.maxTemperature = maxTemperature;
+        this.random = random;
+        this.best = new BestSoFar(boardSize);
+    }
+
+    @Override
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public List<Integer> solve() {
+        return Utils.asList(this.solveInto(new int[this.boardSize]));
+    }
+
+    @Override
+    public int[] bestSoFar(int[] out) {
+        return this.best.copyInto(out);
+    }
+
+    @Override
+    public int[] solveInto(int[] out) {
+        this.best.reset();
+        int[] solution = this.replicas == 1 ? this.anneal() : this.temper();
+        System.arraycopy(solution, 0, out, 0, this.boardSize);
+        return out;
+    }
+
+    /** Runs a single replica with a cooling schedule that's reheated after every cycle. */
+    int[] anneal() {
+        var replica = new Replica(this.random.split(), this.metrics);
+        long cycle = (long) CYCLE_STEPS_PER_QUEEN * this.boardSize;
+        double ratio = this.minTemperature / this.maxTemperature;
+
+        for (long step = 0; replica.energy > 0; step++) {
+            if ((step & 0xfff) == 0) {
+                Utils.checkInterrupted();
+                // Only sampled here, since copying the board on every improvement costs O(N) per move.
+                this.best.offer(replica.solution, replica.energy);
+            }
+            long phase = step % cycle;
+            if (phase == 0 && step > 0) {
+                this.metrics.restart();
+            }
+            replica.step(this.maxTemperature * Math.pow(ratio, (double) phase / cycle));
+        }
+        this.best.offer(replica.solution, 0);
+        return replica.solution;
+    }
+
+    /** Runs the replicas on their own threads, exchanging their temperatures periodically. */
+    int[] temper() {
+        int count = this.replicas;
+        var temperatures = new double[count];
+        for (int i = 0; i < count; i++) {
+            temperatures[i] = this.minTemperature
+                    * Math.pow(this.maxTemperature / this.minTemperature, (double) i / (count - 1));
+        }
+
+        var replicas = new Replica[count];
+        for (int i = 0; i < count; i++) {
+            var local = this.metrics.isEnabled() ? new SolverMetrics() : SolverMetrics.DISABLED;
+            replicas[i] = new Replica(this.random.split(), local);
+        }
+        // The replica at each temperature of the ladder, starting from the coldest.
+        var ladder = new int[count];
+        var levels = new int[count];
+        for (int i = 0; i < count; i++) {
+            ladder[i] = i;
+            levels[i] = i;
+        }
+
+        var solved = new AtomicBoolean(false);
+        // Only changed by the barrier action, so that all the replicas stop after the same round.
+        var done = new AtomicBoolean(false);
+        var solution = new int[this.boardSize];
+        var exchangeRandom = this.random.split();
+        var round = new int[1];
+        var barrier = new CyclicBarrier(count, () -> {
+            done.set(solved.get());
+            // Alternate between the even and the odd pairs of neighbors on each round.
+            for (int level = round[0]++ & 1; level + 1 < count; level += 2) {
+                var cold = replicas[ladder[level]];
+                var hot = replicas[ladder[level + 1]];
+                double exponent = (1 / temperatures[level] - 1 / temperatures[level + 1]) * (cold.energy - hot.energy);
+                if (exponent >= 0 || exchangeRandom.nextDouble() < Math.exp(exponent)) {
+                    int tmp = ladder[level];
+                    ladder[level] = ladder[level + 1];
+                    ladder[level + 1] = tmp;
+                    levels[ladder[level]] = level;
+                    levels[ladder[level + 1]] = level + 1;
+                }
+            }
+        });
+
+        var pool = Executors.newFixedThreadPool(count);
+        var completion = new ExecutorCompletionService<Void>(pool);
+        try {
+            for (int i = 0; i < count; i++) {
+                int index = i;
+                completion.submit(() -> {
+                    var replica = replicas[index];
+                    // Every replica waits on each round, even if it's already solved.
+                    do {
+                        double temperature = temperatures[levels[index]];
+                        for (int step = 0; step < EXCHANGE_INTERVAL; step++) {
+                            if (replica.energy == 0) {
+                                if (solved.compareAndSet(false, true)) {
+                                    System.arraycopy(replica.solution, 0, solution, 0, boardSize);
+                                }
+                                break;
+                            }
+                            replica.step(temperature);
+                        }
+                        best.offer(replica.solution, replica.energy);
+                        Utils.checkInterrupted();
+                        try {
+                            barrier.await();
+                        } catch (InterruptedException | BrokenBarrierException e) {
+                            throw new CancellationException("Replica was interrupted");
+                        }
+                    } while (!done.get());
+                    return null;
+                });
+            }
+            // Fail as soon as any replica fails, since the others would wait for it forever.
+            for (int i = 0; i < count; i++) {
+                completion.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Solver was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            // The replicas only stop at their next interrupt check or barrier, and must not be
+            // merged, or run alongside the next solve, before that.
+            Utils.awaitTermination(pool);
+            for (var replica : replicas) {
+                this.metrics.merge(replica.metrics);
+            }
+        }
+        return solution;
+    }
+
+    /** A board being annealed, with its energy and the rows that may be in conflict. */
+    class Replica {
+        final int[] solution;
+        final CollisionsTracker collisionsTracker;
+        final SplittableRandom random;
+        final SolverMetrics metrics;
+        int energy;
+        /** The number of queens in excess of 2 on every line. */
+        int lineExcess;
+
+        /**
+         * The rows to pick queens from. Same as `MinConflictsSolver.conflicted`: the queens that a
+         * move puts in conflict are only found once the set runs empty, while `energy` is exact.
+         */
+        final int[] conflicted;
+        final int[] conflictedIndex;
+        int conflictedCount;
+
+        Replica(SplittableRandom random, SolverMetrics metrics) {
+            this.random = random;
+            this.metrics = metrics;
+            this.solution = new int[boardSize];
+            this.conflicted = new int[boardSize];
+            this.conflictedIndex = new int[boardSize];
+            this.collisionsTracker = new CollisionsTracker(boardSize, enable3QueensInLineCheck);
+            this.collisionsTracker.setMetrics(metrics);
+
+            for (int i = 0; i < boardSize; i++) {
+                this.solution[i] = i;
+            }
+            Utils.shuffle(this.solution, boardSize, random);
+            // Place the queens one by one, so that the excess grows by the lines each one completes.
+            for (int row = 0; row < boardSize; row++) {
+                this.lineExcess += this.collisionsTracker.countLinesThrough(this.solution[row], row);
+                this.collisionsTracker.recordDiagCollision(this.solution[row], row, +1);
+            }
+            this.energy = this.collisionsTracker.countAllDiagCollisions() + this.lineExcess;
+            this.markAllConflicted();
+        }
+
+        /** Proposes a swap of a possibly conflicted queen, and accepts or rejects it. */
+        void step(double temperature) {
+            if (this.conflictedCount == 0) {
+                this.markAllConflicted();
+            }
+            int index = this.random.nextInt(this.conflictedCount);
+            int row = this.conflicted[index];
+            this.metrics.node();
+            if (!this.isConflicted(row)) {
+                this.unmark(row);
+                return;
+            }
+            int partner = this.random.nextInt(boardSize);
+            if (partner == row) {
+                return;
+            }
+
+            int before = this.energy;
+            this.swap(row, partner);
+            int delta = this.energy - before;
+            this.metrics.swapTried();
+            if (delta > 0 && this.random.nextDouble() >= Math.exp(-delta / temperature)) {
+                this.swap(row, partner);
+                this.metrics.swapReverted();
+                return;
+            }
+            this.mark(row);
+            this.mark(partner);
+        }
+
+        /** Swaps the queens in both rows, and updates the energy. */
+        void swap(int qaIndex, int qbIndex) {
+            int qa = this.solution[qaIndex];
+            int qb = this.solution[qbIndex];
+            var tracker = this.collisionsTracker;
+
+            this.lineExcess -= tracker.countLinesThrough(qa, qaIndex);
+            tracker.recordDiagCollision(qa, qaIndex, -1);
+            this.lineExcess -= tracker.countLinesThrough(qb, qbIndex);
+            tracker.recordDiagCollision(qb, qbIndex, -1);
+
+            this.solution[qaIndex] = qb;
+            this.solution[qbIndex] = qa;
+
+            this.lineExcess += tracker.countLinesThrough(qb, qaIndex);
+            tracker.recordDiagCollision(qb, qaIndex, +1);
+            this.lineExcess += tracker.countLinesThrough(qa, qbIndex);
+            tracker.recordDiagCollision(qa, qbIndex, +1);
+
+            this.energy = tracker.countAllDiagCollisions() + this.lineExcess;
+        }
+
+        private boolean isConflicted(int row) {
+            int x = this.solution[row];
+            return this.collisionsTracker.countDiagAttacksAgainst(x, row) > 0
+                    || this.collisionsTracker.countLinesThrough(x, row) > 0;
+        }
+
+        private void markAllConflicted() {
+            this.conflictedCount = 0;
+            for (int row = 0; row < boardSize; row++) {
+                this.conflictedIndex[row] = -1;
+                this.mark(row);
+            }
+            // With a positive energy, some row is always in conflict.
+            if (this.conflictedCount == 0 && this.energy > 0) {
+                throw new IllegalStateException("No conflicted rows with energy " + this.energy);
+            }
+        }
+
+        private void mark(int row) {
+            if (this.conflictedIndex[row] < 0 && this.isConflicted(row)) {
+                this.conflictedIndex[row] = this.conflictedCount;
+                this.conflicted[this.conflictedCount++] = row;
+            }
+        }
+
+        private void unmark(int row) {
+            // Move the last row into the removed slot to keep the set contiguous.
+            int index = this.conflictedIndex[row];
+            int last = this.conflicted[--this.conflictedCount];
+            this.conflicted[index] = last;
+            this.conflictedIndex[last] = index;
+            this.conflictedIndex[row] = -1;
+        }
+    }
+}
@@ -1,18 +1,20 @@
 package nq.solver;
 
 import java.util.List;
-import java.util.Stack;
-
-import org.apache.commons.lang3.tuple.Pair;
 
+import nq.solver.utils.Checkpoint;
 import nq.solver.utils.CollisionsTracker;
+import nq.solver.utils.SolverMetrics;
+import nq.solver.utils.Utils;
 
 public class BacktrackingSolver implements Solver {
     int boardSize;
     boolean enable3QueensInLineCheck = false;
-    List<Integer> solution;
 
     CollisionsTracker collisionsTracker;
+    SolverMetrics metrics = SolverMetrics.DISABLED;
+    /** Where the stack is saved, or null. */
+    Checkpoint checkpoint;
 
     public BacktrackingSolver(int boardSize, boolean enable3QueensInLineCheck) {
         this.boardSize = boardSize;
@@ -21,53 +23,109 @@ public class BacktrackingSolver implements Solver {
         this.collisionsTracker = new CollisionsTracker(boardSize, enable3QueensInLineCheck);
     }
 
+    @Override
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+        this.collisionsTracker.setMetrics(metrics);
+    }
+
     public List<Integer> solve() {
-        var stack = new Stack<Integer>();
-
-        // Initial position of first level / row.
-        stack.push(0);
-        this.collisionsTracker.recordDiagCollision(Pair.of(0, stack.size() - 1), +1);
-
-        while (true) {
-            // Check first if the queen at the latest/lowest row is in conflict with another.
-            int top = stack.peek();
-            int attacksAgainstTop = this.collisionsTracker.countDiagAttacksAgainst(Pair.of(top, stack.size() - 1))
-                    + this.collisionsTracker.countCrossAttacksAgainst(stack, Pair.of(top, stack.size() - 1))
-                    + this.collisionsTracker.countLineAttacksAgainst(stack, Pair.of(top, stack.size() - 1));
-
-            if (attacksAgainstTop > 0) {
-                // Pop until we can find a row where we can move the queen to the next column.
-                while (stack.peek() == this.boardSize - 1) {
-                    int prev = stack.peek();
-                    this.collisionsTracker.recordDiagCollision(Pair.of(prev, stack.size() - 1), -1);
-                    stack.pop();
-                    if (stack.empty()) {
-                        System.out.println("No solution found for N=" + this.boardSize);
-                        return new Stack<Integer>();
+        return Utils.asList(this.solveInto(new int[this.boardSize]));
+    }
+
+    /**
+     * Saves the stack to the checkpoint. The stack is at most N ints, so saving it is cheap, but
+     * it's still only done every 30s, at the interrupt checks.
+     */
+    @Override
+    public boolean setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        return true;
+    }
+
+    @Override
+    public int[] solveInto(int[] out) {
+        // The stack of queen positions, where rows [0, depth) are placed.
+        var stack = out;
+        int depth = 0;
+        Integer resumed = this.checkpoint != null
+                ? this.checkpoint.resume(in -> Checkpoint.readInts(in, stack, this.boardSize))
+                : null;
+        if (resumed != null) {
+            // An empty stack means that the search that was checkpointed is over.
+            depth = resumed;
+            if (depth == 0) {
+                return null;
+            }
+            this.collisionsTracker.recalculateAttacksTables(stack, depth);
+        } else {
+            this.collisionsTracker.recalculateAttacksTables(stack, depth);
+
+            // Initial position of first level / row.
+            stack[depth++] = 0;
+            this.collisionsTracker.recordDiagCollision(0, depth - 1, +1);
+            this.metrics.node();
+        }
+
+        try {
+            for (long iteration = 1;; iteration++) {
+                if ((iteration & 0xfff) == 0) {
+                    Utils.checkInterrupted();
+                    if (this.checkpoint != null && this.checkpoint.isDue()) {
+                        this.saveStack(stack, depth);
                     }
                 }
 
-                // Move the lowest queen in the board to the next position.
-                int prev = stack.peek();
-                this.collisionsTracker.recordDiagCollision(Pair.of(prev, stack.size() - 1), -1);
-                stack.pop();
-                int next = prev + 1;
-                stack.push(next);
-                this.collisionsTracker.recordDiagCollision(Pair.of(next, stack.size() - 1), +1);
-            } else {
-                // Termination condition. If the latest placed queen is valid and at the end of the
-                // board, then we found our solution.
-                if (stack.size() == this.boardSize) {
-                    break;
-                }
+                // Check first if the queen at the latest/lowest row is in conflict with another.
+                int top = stack[depth - 1];
+                int attacksAgainstTop = this.collisionsTracker.countDiagAttacksAgainst(top, depth - 1)
+                        + this.collisionsTracker.countCrossAttacksAgainst(top, depth - 1)
+                        + this.collisionsTracker.countLineAttacksAgainst(top, depth - 1);
+
+                if (attacksAgainstTop > 0) {
+                    // Pop until we can find a row where we can move the queen to the next column.
+                    while (stack[depth - 1] == this.boardSize - 1) {
+                        int prev = stack[depth - 1];
+                        this.collisionsTracker.recordDiagCollision(prev, depth - 1, -1);
+                        this.metrics.backtrack();
+                        depth--;
+                        if (depth == 0) {
+                            return null;
+                        }
+                    }
+
+                    // Move the lowest queen in the board to the next position.
+                    int prev = stack[depth - 1];
+                    this.collisionsTracker.recordDiagCollision(prev, depth - 1, -1);
+                    int next = prev + 1;
+                    stack[depth - 1] = next;
+                    this.collisionsTracker.recordDiagCollision(next, depth - 1, +1);
+                    this.metrics.node();
+                } else {
+                    // Termination condition. If the latest placed queen is valid and at the end of the
+                    // board, then we found our solution.
+                    if (depth == this.boardSize) {
+                        break;
+                    }
 
-                // Else, we push to the next row below and explore this branch.
-                int next = 0;
-                stack.push(next);
-                this.collisionsTracker.recordDiagCollision(Pair.of(next, stack.size() - 1), +1);
+                    // Else, we push to the next row below and explore this branch.
+                    int next = 0;
+                    stack[depth++] = next;
+                    this.collisionsTracker.recordDiagCollision(next, depth - 1, +1);
+                    this.metrics.node();
+                }
+            }
+        } finally {
+            // Either the solution, the empty stack of a finished search, or where it was interrupted.
+            if (this.checkpoint != null) {
+                this.saveStack(stack, depth);
             }
         }
 
         return stack;
     }
+
+    private void saveStack(int[] stack, int depth) {
+        this.checkpoint.write(out -> Checkpoint.writeInts(out, stack, depth));
+    }
 }
@@ -0,0 +1,47 @@
+package nq.solver;
+
+import java.util.List;
+
+import nq.solver.utils.SolverMetrics;
+import nq.solver.utils.Utils;
+
+/**
+ * Implements a backtracking solver that tracks the attacked columns and diagonals as bitmasks.
+ *
+ * Unlike `BacktrackingSolver`, the next free column in a row is found with a couple of bitwise
+ * operations instead of checking every column against the placed queens. The 3-queens-in-a-line
+ * check is still done against the rows placed so far, but only for the columns that survive the
+ * bitmasks.
+ */
+public class BitmaskBacktrackingSolver implements Solver {
+    int boardSize;
+    boolean enable3QueensInLineCheck = false;
+    SolverMetrics metrics = SolverMetrics.DISABLED;
+
+    public BitmaskBacktrackingSolver(int boardSize, boolean enable3QueensInLineCheck) {
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+    }
+
+    @Override
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public List<Integer> solve() {
+        return Utils.asList(this.solveInto(new int[this.boardSize]));
+    }
+
+    @Override
+    public int[] solveInto(int[] out) {
+        var search = new BitmaskSearch(this.boardSize, this.enable3QueensInLineCheck);
+        search.setMetrics(this.metrics);
+        if (!search.next()) {
+            Utils.checkInterrupted();
+            return null;
+        }
+
+        System.arraycopy(search.positions(), 0, out, 0, this.boardSize);
+        return out;
+    }
+}
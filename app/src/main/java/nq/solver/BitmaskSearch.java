@@ -0,0 +1,385 @@
+package nq.solver;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import nq.solver.utils.CollisionsTracker;
+import nq.solver.utils.SolverMetrics;
+
+/**
+ * A resumable depth-first search over the n-queens placements, which fills the rows from top to
+ * bottom and tracks the occupied columns and diagonals as bitmasks.
+ *
+ * Boards with N <= 64 use a single `long` per mask, with the diagonals shifted by one column on
+ * each row. Bigger boards keep the columns and both diagonals in `long[]` bitsets indexed the same
+ * way as in `CollisionsTracker`, and extract the 64 bit windows that apply to each row.
+ *
+ * The search only keeps O(N) state: the per-row masks (or the position cursors for bigger boards)
+ * and the placed positions. Calling `next()` again after a solution was found resumes the search
+ * from where it stopped.
+ */
+class BitmaskSearch {
+    final int boardSize;
+    final boolean enable3QueensInLineCheck;
+    /** Number of 64 bit words needed to store a row. */
+    final int words;
+
+    /** The column of the queen placed in each row, or -1 if the row is empty. */
+    final int[] positions;
+    /** Number of rows from the top that have a queen placed. */
+    int depth;
+    /** Number of rows from the top that are fixed, and never revisited by the search. */
+    int baseDepth;
+    /** Whether the search tree was fully explored. */
+    boolean exhausted;
+    /** Whether `next()` was called at least once since the last reset. */
+    boolean started;
+
+    /**
+     * When set, the search stops at the next check as if there were no more solutions. The search
+     * also stops if the thread is interrupted.
+     */
+    AtomicBoolean cancelled;
+    /** Number of visited nodes since the last cancellation check. */
+    int nodesSinceCheck;
+
+    SolverMetrics metrics = SolverMetrics.DISABLED;
+
+    /**
+     * Cells where no queen may be placed, as a bitmask per row (`words` longs per row). Allocated
+     * on the first call to `forbid()`.
+     */
+    long[] forbidden;
+
+    /** Only used for the 3-queens-in-a-line check, which can't be expressed as a bitmask. */
+    final CollisionsTracker collisionsTracker;
+
+    // Single word state. Entry `row` holds the attacked cells and the untried candidates of that
+    // row, given the queens placed above it.
+    final long fullRow;
+    final long[] attackedColumns;
+    final long[] attackedDiagPositive;
+    final long[] attackedDiagNegative;
+    final long[] candidates;
+
+    // Multi word state. The occupancy bitsets, plus the next column to try for each row.
+    final long[] columns;
+    final long[] diagPositive;
+    final long[] diagNegative;
+    final int[] cursors;
+
+    BitmaskSearch(int boardSize, boolean enable3QueensInLineCheck) {
+        this(boardSize, enable3QueensInLineCheck, boardSize > 64);
+    }
+
+    /** Creates a search which can be forced to use the multi word layout, even for N <= 64. */
+    BitmaskSearch(int boardSize, boolean enable3QueensInLineCheck, boolean multiWord) {
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+        this.words = multiWord ? Math.max((boardSize + 63) >>> 6, 2) : 1;
+        this.positions = new int[boardSize];
+
+        this.collisionsTracker = enable3QueensInLineCheck ? new CollisionsTracker(boardSize, true) : null;
+
+        if (this.words == 1) {
+            this.fullRow = boardSize == 64 ? -1L : (1L << boardSize) - 1;
+            this.attackedColumns = new long[boardSize];
+            this.attackedDiagPositive = new long[boardSize];
+            this.attackedDiagNegative = new long[boardSize];
+            this.candidates = new long[boardSize];
+            this.columns = null;
+            this.diagPositive = null;
+            this.diagNegative = null;
+            this.cursors = null;
+        } else {
+            // Leave an extra word at the end of the diagonals, so that windows never overflow.
+            int diagWords = ((2 * boardSize - 1 + 63) >>> 6) + 1;
+            this.fullRow = -1L;
+            this.attackedColumns = null;
+            this.attackedDiagPositive = null;
+            this.attackedDiagNegative = null;
+            this.candidates = null;
+            this.columns = new long[this.words];
+            this.diagPositive = new long[diagWords];
+            this.diagNegative = new long[diagWords];
+            this.cursors = new int[boardSize];
+        }
+
+        this.reset(new int[0], 0);
+    }
+
+    /**
+     * Restarts the search with the first `length` rows fixed to the given prefix. If the prefix is
+     * not a valid partial solution, the search is immediately exhausted.
+     */
+    void reset(int[] prefix, int length) {
+        Arrays.fill(this.positions, -1);
+        if (this.collisionsTracker != null) {
+            this.collisionsTracker.recalculateAttacksTables(this.positions, 0);
+        }
+        if (this.words == 1) {
+            this.attackedColumns[0] = 0;
+            this.attackedDiagPositive[0] = 0;
+            this.attackedDiagNegative[0] = 0;
+            this.candidates[0] = this.fullRow & ~this.forbiddenWord(0, 0);
+        } else {
+            Arrays.fill(this.columns, 0);
+            Arrays.fill(this.diagPositive, 0);
+            Arrays.fill(this.diagNegative, 0);
+            this.cursors[0] = 0;
+        }
+
+        this.depth = 0;
+        this.baseDepth = length;
+        this.exhausted = false;
+        this.started = false;
+
+        for (int row = 0; row < length; row++) {
+            int x = prefix[row];
+            if (x < 0 || x >= this.boardSize || !this.isFree(row, x) || this.completesLine(x, row)) {
+                this.exhausted = true;
+                return;
+            }
+            this.place(row, x);
+        }
+    }
+
+    /** Sets the metrics that count the nodes and backtracks of this search. */
+    void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+        if (this.collisionsTracker != null) {
+            this.collisionsTracker.setMetrics(metrics);
+        }
+    }
+
+    /** Forbids placing a queen in (x, y). Only takes effect on the next `reset()`. */
+    void forbid(int x, int y) {
+        if (this.forbidden == null) {
+            this.forbidden = new long[this.boardSize * this.words];
+        }
+        this.forbidden[y * this.words + (x >>> 6)] |= 1L << x;
+    }
+
+    /** Allows placing queens in every cell again. Only takes effect on the next `reset()`. */
+    void clearForbidden() {
+        if (this.forbidden != null) {
+            Arrays.fill(this.forbidden, 0);
+        }
+    }
+
+    private long forbiddenWord(int row, int word) {
+        return this.forbidden == null ? 0 : this.forbidden[row * this.words + word];
+    }
+
+    /** Returns the positions of the queens in the current (partial) board. */
+    int[] positions() {
+        return this.positions;
+    }
+
+    /**
+     * Advances the search to the next solution. Returns false once there are no more solutions
+     * within the fixed prefix.
+     */
+    boolean next() {
+        if (this.exhausted) {
+            return false;
+        }
+
+        if (!this.started) {
+            this.started = true;
+            // The prefix itself might already be a full solution.
+            if (this.depth == this.boardSize) {
+                return true;
+            }
+        } else if (this.depth == this.boardSize) {
+            // Resume from the last solution, by trying the next column in the last row.
+            if (this.depth == this.baseDepth) {
+                this.exhausted = true;
+                return false;
+            }
+            this.remove(this.depth - 1);
+        }
+
+        boolean found = this.words == 1 ? this.nextSingleWord() : this.nextMultiWord();
+        if (!found && !this.isCancelled()) {
+            this.exhausted = true;
+        }
+        return found;
+    }
+
+    /** Returns true if the search was cancelled through the shared flag, or interrupted. */
+    boolean isCancelled() {
+        return (this.cancelled != null && this.cancelled.get()) || Thread.currentThread().isInterrupted();
+    }
+
+    /** Checks the cancellation flag once every 4096 visited nodes, to keep it off the hot path. */
+    private boolean shouldStop() {
+        if (++this.nodesSinceCheck < 4096) {
+            return false;
+        }
+        this.nodesSinceCheck = 0;
+        return this.isCancelled();
+    }
+
+    private boolean nextSingleWord() {
+        while (true) {
+            if (this.shouldStop()) {
+                return false;
+            }
+            int row = this.depth;
+
+            long available = this.candidates[row];
+            if (available == 0) {
+                // No more columns in this row, so we revert the queen in the row above.
+                if (row == this.baseDepth) {
+                    return false;
+                }
+                this.remove(row - 1);
+                this.metrics.backtrack();
+                continue;
+            }
+
+            long bit = available & -available;
+            this.candidates[row] = available ^ bit;
+
+            int x = Long.numberOfTrailingZeros(bit);
+            this.metrics.node();
+            if (this.completesLine(x, row)) {
+                continue;
+            }
+
+            this.place(row, x);
+            if (this.depth == this.boardSize) {
+                return true;
+            }
+        }
+    }
+
+    private boolean nextMultiWord() {
+        while (true) {
+            if (this.shouldStop()) {
+                return false;
+            }
+            int row = this.depth;
+
+            int x = this.findFree(row, this.cursors[row]);
+            if (x < 0) {
+                // No more columns in this row, so we revert the queen in the row above.
+                if (row == this.baseDepth) {
+                    return false;
+                }
+                this.remove(row - 1);
+                this.metrics.backtrack();
+                continue;
+            }
+
+            this.cursors[row] = x + 1;
+            this.metrics.node();
+            if (this.completesLine(x, row)) {
+                continue;
+            }
+
+            this.place(row, x);
+            if (this.depth == this.boardSize) {
+                return true;
+            }
+        }
+    }
+
+    /** Places a queen in (x, row), where row is the first empty row, and prepares the next row. */
+    private void place(int row, int x) {
+        this.positions[row] = x;
+        this.depth = row + 1;
+        if (this.collisionsTracker != null) {
+            this.collisionsTracker.recordDiagCollision(x, row, +1);
+        }
+
+        if (this.words == 1) {
+            if (row + 1 == this.boardSize) {
+                return;
+            }
+            long bit = 1L << x;
+            long cols = this.attackedColumns[row] | bit;
+            long diagPositive = (this.attackedDiagPositive[row] | bit) << 1;
+            long diagNegative = (this.attackedDiagNegative[row] | bit) >>> 1;
+            this.attackedColumns[row + 1] = cols;
+            this.attackedDiagPositive[row + 1] = diagPositive;
+            this.attackedDiagNegative[row + 1] = diagNegative;
+            this.candidates[row + 1] = this.fullRow & ~(cols | diagPositive | diagNegative)
+                    & ~this.forbiddenWord(row + 1, 0);
+        } else {
+            this.flip(this.columns, x);
+            this.flip(this.diagPositive, x - row + this.boardSize - 1);
+            this.flip(this.diagNegative, x + row);
+            if (row + 1 < this.boardSize) {
+                this.cursors[row + 1] = 0;
+            }
+        }
+    }
+
+    /** Removes the queen in the given row, which must be the last placed row. */
+    private void remove(int row) {
+        int x = this.positions[row];
+        this.positions[row] = -1;
+        this.depth = row;
+        if (this.collisionsTracker != null) {
+            this.collisionsTracker.recordDiagCollision(x, row, -1);
+        }
+
+        if (this.words > 1) {
+            this.flip(this.columns, x);
+            this.flip(this.diagPositive, x - row + this.boardSize - 1);
+            this.flip(this.diagNegative, x + row);
+        }
+    }
+
+    /** Checks if (x, row) is not attacked by any placed queen, where row is the first empty row. */
+    private boolean isFree(int row, int x) {
+        if (this.words == 1) {
+            return (this.candidates[row] & (1L << x)) != 0;
+        }
+        return this.findFree(row, x) == x;
+    }
+
+    private boolean completesLine(int x, int row) {
+        return this.collisionsTracker != null && this.collisionsTracker.countLineAttacksAgainst(x, row) > 0;
+    }
+
+    /** Finds the first free column >= from in the given row, or -1 if there's none. */
+    private int findFree(int row, int from) {
+        for (int w = from >>> 6; w < this.words; w++) {
+            int base = w << 6;
+            if (base >= this.boardSize) {
+                break;
+            }
+            long occupied = this.columns[w] | window(this.diagPositive, base - row + this.boardSize - 1)
+                    | window(this.diagNegative, base + row);
+            long free = ~occupied & ~this.forbiddenWord(row, w);
+            if (w == from >>> 6) {
+                free &= -1L << (from & 63);
+            }
+            if (this.boardSize - base < 64) {
+                free &= (1L << (this.boardSize - base)) - 1;
+            }
+            if (free != 0) {
+                return base + Long.numberOfTrailingZeros(free);
+            }
+        }
+        return -1;
+    }
+
+    private void flip(long[] bitset, int index) {
+        bitset[index >>> 6] ^= 1L << index;
+    }
+
+    /** Returns the 64 bits of the bitset starting at the given offset. */
+    private static long window(long[] bitset, int offset) {
+        int word = offset >>> 6;
+        int shift = offset & 63;
+        long bits = bitset[word] >>> shift;
+        if (shift != 0) {
+            bits |= bitset[word + 1] << (64 - shift);
+        }
+        return bits;
+    }
+}
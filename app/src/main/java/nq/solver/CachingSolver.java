@@ -0,0 +1,64 @@
+package nq.solver;
+
+import java.util.List;
+
+import nq.solver.utils.BoardValidator;
+import nq.solver.utils.SolverMetrics;
+import nq.solver.utils.Utils;
+
+/**
+ * Decorates a solver with a `SolutionCache`, so that a board that was already solved is only
+ * looked up. Every cached solution is validated before it's returned, and solved again if it's
+ * invalid (e.g. if the on-disk store got corrupted).
+ */
+public class CachingSolver implements Solver {
+    int boardSize;
+    boolean enable3QueensInLineCheck = false;
+    /** The seed of the solver, or null if it's not seeded. */
+    Long seed;
+
+    Solver solver;
+    SolutionCache cache;
+
+    public CachingSolver(Solver solver, int boardSize, boolean enable3QueensInLineCheck, Long seed,
+            SolutionCache cache) {
+        this.solver = solver;
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+        this.seed = seed;
+        this.cache = cache;
+    }
+
+    @Override
+    public void setMetrics(SolverMetrics metrics) {
+        this.solver.setMetrics(metrics);
+    }
+
+    @Override
+    public int[] bestSoFar(int[] out) {
+        return this.solver.bestSoFar(out);
+    }
+
+    public List<Integer> solve() {
+        return Utils.asList(this.solveInto(new int[this.boardSize]));
+    }
+
+    @Override
+    public int[] solveInto(int[] out) {
+        var cached = this.cache.get(this.boardSize, this.enable3QueensInLineCheck, this.seed);
+        if (cached != null) {
+            if (BoardValidator.isValidSolution(this.boardSize, this.enable3QueensInLineCheck, cached)) {
+                System.arraycopy(cached, 0, out, 0, this.boardSize);
+                return out;
+            }
+            this.cache.reject(this.boardSize, this.enable3QueensInLineCheck, this.seed);
+        }
+
+        // There's nothing to validate for boards without solutions, so they are not cached.
+        var solution = this.solver.solveInto(out);
+        if (solution != null) {
+            this.cache.put(this.boardSize, this.enable3QueensInLineCheck, this.seed, solution.clone());
+        }
+        return solution;
+    }
+}
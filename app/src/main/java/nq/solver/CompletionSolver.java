@@ -0,0 +1,210 @@
+package nq.solver;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import nq.solver.utils.SolverMetrics;
+import nq.solver.utils.Utils;
+
+/**
+ * Completes partial boards of a fixed size: finds a solution that keeps the queens already placed
+ * and leaves the forbidden cells empty.
+ *
+ * Each query marks the columns and diagonals of the placed queens once, so that every cell is
+ * checked against them in O(1), and walks the line through every pair of them to rule out the cells
+ * that would make it a line of three, which takes O(k^2 * N) for k queens. The cells left become the
+ * initial domains of a `ConstraintPropagationSolver`, where the rows of the placed queens only allow
+ * their column. Since it branches on the rows with the fewest values first, those rows are filled
+ * before anything else. Every thread keeps its own solver, and reuses it for all its queries.
+ *
+ * The completions are cached by the canonical form of the board, so a board that is a rotation or
+ * reflection of an earlier one is answered by mapping the cached completion back. The solver is
+ * safe to share between threads.
+ */
+public class CompletionSolver {
+    /** Number of completions kept by default, evicting the least recently used ones. */
+    static final int CACHED_COMPLETIONS = 4096;
+    /** Stands for the boards without completions in the cache. */
+    private static final int[] NO_COMPLETION = new int[0];
+
+    final int boardSize;
+    final boolean enable3QueensInLineCheck;
+    final int capacity;
+
+    SolverMetrics metrics = SolverMetrics.DISABLED;
+
+    final ThreadLocal<ConstraintPropagationSolver> searches;
+    /** The completions of the canonical boards, or `NO_COMPLETION`. */
+    final Map<PartialBoard, int[]> cache;
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+
+    public CompletionSolver(int boardSize, boolean enable3QueensInLineCheck) {
+        this(boardSize, enable3QueensInLineCheck, CACHED_COMPLETIONS);
+    }
+
+    /** Creates a solver that caches up to `capacity` completions, or none if it's 0. */
+    public CompletionSolver(int boardSize, boolean enable3QueensInLineCheck, int capacity) {
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+        this.capacity = capacity;
+
+        this.searches = ThreadLocal.withInitial(() -> new ConstraintPropagationSolver(boardSize,
+                enable3QueensInLineCheck));
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PartialBoard, int[]> eldest) {
+                return this.size() > CompletionSolver.this.capacity;
+            }
+        };
+    }
+
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public List<Integer> complete(PartialBoard board) {
+        return Utils.asList(this.complete(board, new int[this.boardSize]));
+    }
+
+    /**
+     * Completes the board into `out`, and returns it. Returns null if the board can't be completed.
+     *
+     * @throws IllegalArgumentException if the board doesn't have the size of this solver
+     */
+    public int[] complete(PartialBoard board, int[] out) {
+        if (board.boardSize != this.boardSize) {
+            throw new IllegalArgumentException(String.format("Expected a board of size %d, but got %d.",
+                    this.boardSize, board.boardSize));
+        }
+
+        int symmetry = board.canonicalSymmetry();
+        var canonical = board.transform(symmetry);
+
+        int[] completion;
+        synchronized (this.cache) {
+            completion = this.cache.get(canonical);
+        }
+        if (completion != null) {
+            this.hits.incrementAndGet();
+        } else {
+            this.misses.incrementAndGet();
+            completion = this.search(canonical);
+            if (completion == null) {
+                completion = NO_COMPLETION;
+            }
+            if (this.capacity > 0) {
+                synchronized (this.cache) {
+                    this.cache.put(canonical, completion);
+                }
+            }
+        }
+
+        if (completion == NO_COMPLETION) {
+            return null;
+        }
+        return PartialBoard.transformSolution(completion, PartialBoard.inverse(symmetry), out);
+    }
+
+    /** Searches a completion of the board, and returns it, or null if there's none. */
+    int[] search(PartialBoard board) {
+        int n = this.boardSize;
+        var local = this.metrics.isEnabled() ? new SolverMetrics() : SolverMetrics.DISABLED;
+
+        try {
+            // Mark the columns and diagonals of the placed queens, and give up if they attack each other.
+            var columns = new boolean[n];
+            var descending = new boolean[2 * n - 1];
+            var ascending = new boolean[2 * n - 1];
+            var placedRows = new int[n];
+            int placed = 0;
+            for (int y = 0; y < n; y++) {
+                int x = board.queens[y];
+                if (x < 0) {
+                    continue;
+                }
+                if (board.isForbidden(x, y) || columns[x] || descending[x - y + n - 1] || ascending[x + y]) {
+                    return null;
+                }
+                columns[x] = true;
+                descending[x - y + n - 1] = true;
+                ascending[x + y] = true;
+                placedRows[placed++] = y;
+            }
+
+            // Allow the column of each placed queen in its row, and the cells nobody attacks elsewhere.
+            var search = this.searches.get();
+            var allowed = new long[n * search.words];
+            for (int y = 0; y < n; y++) {
+                int queen = board.queens[y];
+                for (int x = 0; x < n; x++) {
+                    if (queen >= 0 ? x != queen
+                            : board.isForbidden(x, y) || columns[x] || descending[x - y + n - 1] || ascending[x + y]) {
+                        continue;
+                    }
+                    allowed[y * search.words + (x >>> 6)] |= 1L << x;
+                }
+            }
+            if (this.enable3QueensInLineCheck) {
+                for (int i = 0; i < placed; i++) {
+                    for (int j = i + 1; j < placed; j++) {
+                        if (!this.ruleOutLine(board, allowed, search.words, placedRows[i], placedRows[j])) {
+                            return null;
+                        }
+                    }
+                }
+            }
+
+            search.setMetrics(local);
+            if (search.solveWithin(allowed)) {
+                return search.positions.clone();
+            }
+            return null;
+        } finally {
+            this.metrics.merge(local);
+        }
+    }
+
+    /**
+     * Removes the cells of the empty rows on the line through the queens of rows `ya` < `yb` from the
+     * allowed cells. Returns false if a third placed queen is on the line.
+     */
+    private boolean ruleOutLine(PartialBoard board, long[] allowed, int words, int ya, int yb) {
+        int n = this.boardSize;
+        int xa = board.queens[ya];
+        int dx = board.queens[yb] - xa;
+        int dy = yb - ya;
+        int g = Utils.gcd(Math.abs(dx), dy);
+        dx /= g;
+        dy /= g;
+
+        // Walk the line from its first row in the board down to the last one.
+        int steps = ya / dy;
+        int x = xa - steps * dx;
+        for (int y = ya - steps * dy; y < n; y += dy, x += dx) {
+            if (x < 0 || x >= n || y == ya || y == yb) {
+                continue;
+            }
+            if (board.queens[y] == x) {
+                return false;
+            }
+            if (board.queens[y] < 0) {
+                allowed[y * words + (x >>> 6)] &= ~(1L << x);
+            }
+        }
+        return true;
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+}
@@ -0,0 +1,328 @@
+package nq.solver;
+
+import java.util.Arrays;
+import java.util.List;
+
+import nq.solver.utils.SolverMetrics;
+import nq.solver.utils.Utils;
+
+/**
+ * Implements a backtracking solver with forward checking over the domain of every row.
+ *
+ * Each row keeps the bitset of the columns where a queen may still go. Placing a queen removes
+ * its column and diagonals from the domains of the empty rows, and with the 3-queens-in-a-line
+ * check, also every cell on the lines through the new queen and each queen placed before it. A
+ * branch is abandoned as soon as any domain becomes empty.
+ *
+ * The search always branches on the empty row with the fewest values left (MRV), and tries the
+ * values that remove the fewest columns and diagonal cells from the other rows first (LCV). Every
+ * removal is recorded in a trail, so backtracking restores the domains without recomputing them.
+ *
+ * The search keeps its own stack of the branched rows, so it doesn't overflow the thread's stack on
+ * big boards. The ordered values of every depth are kept on a shared stack of values as well.
+ */
+public class ConstraintPropagationSolver implements Solver {
+    int boardSize;
+    boolean enable3QueensInLineCheck = false;
+    /** Number of 64 bit words needed to store a row. */
+    final int words;
+
+    SolverMetrics metrics = SolverMetrics.DISABLED;
+
+    /** The columns still allowed in each row, as `words` longs per row. */
+    final long[] domains;
+    /** Number of columns still allowed in each row. */
+    final int[] domainSizes;
+    /** The column of the queen placed in each row, or -1 if the row is empty. */
+    final int[] positions;
+    /** The rows with a queen, in the order they were placed. */
+    final int[] placedRows;
+    int placed;
+
+    // The stack of the search: the row branched on at each depth, the trail mark before its queen was
+    // placed, and the range of its values in `values` that are still to be tried.
+    final int[] branchRows;
+    final int[] branchMarks;
+    final int[] branchNext;
+    final int[] branchEnd;
+    /** The ordered values of every depth, one range after the other. */
+    int[] values;
+    /** Scratch buffer of the scored values of a row, while they're sorted. */
+    final long[] scored;
+
+    // The trail of removals, as the index of the domain word and the bits removed from it.
+    int[] trailWords;
+    long[] trailBits;
+    int trailSize;
+
+    long nodes;
+
+    public ConstraintPropagationSolver(int boardSize, boolean enable3QueensInLineCheck) {
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+        this.words = (boardSize + 63) >>> 6;
+
+        this.domains = new long[boardSize * this.words];
+        this.domainSizes = new int[boardSize];
+        this.positions = new int[boardSize];
+        this.placedRows = new int[boardSize];
+
+        this.branchRows = new int[boardSize];
+        this.branchMarks = new int[boardSize];
+        this.branchNext = new int[boardSize];
+        this.branchEnd = new int[boardSize];
+        this.values = new int[Math.max(4 * boardSize, 16)];
+        this.scored = new long[boardSize];
+
+        this.trailWords = new int[Math.max(4 * boardSize, 16)];
+        this.trailBits = new long[this.trailWords.length];
+    }
+
+    @Override
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public List<Integer> solve() {
+        return Utils.asList(this.solveInto(new int[this.boardSize]));
+    }
+
+    @Override
+    public int[] solveInto(int[] out) {
+        int n = this.boardSize;
+        Arrays.fill(this.domains, 0);
+        for (int y = 0; y < n; y++) {
+            for (int x = 0; x < n; x++) {
+                this.domains[y * this.words + (x >>> 6)] |= 1L << x;
+            }
+        }
+
+        if (n == 0 || !this.searchDomains()) {
+            return null;
+        }
+
+        System.arraycopy(this.positions, 0, out, 0, n);
+        return out;
+    }
+
+    /**
+     * Searches a solution with queens only in the allowed cells, given as `words` longs per row like
+     * the domains. Returns false if there's none, and otherwise leaves the solution in `positions`.
+     */
+    boolean solveWithin(long[] allowed) {
+        System.arraycopy(allowed, 0, this.domains, 0, this.domains.length);
+        return this.searchDomains();
+    }
+
+    /** Searches a solution from the current domains, with all the rows empty. */
+    private boolean searchDomains() {
+        for (int y = 0; y < this.boardSize; y++) {
+            int size = 0;
+            for (int w = 0; w < this.words; w++) {
+                size += Long.bitCount(this.domains[y * this.words + w]);
+            }
+            this.domainSizes[y] = size;
+        }
+        Arrays.fill(this.positions, -1);
+        this.placed = 0;
+        this.trailSize = 0;
+        return this.search();
+    }
+
+    /** Fills the empty rows, and returns false if they can't be filled. */
+    boolean search() {
+        if (this.placed == this.boardSize) {
+            return true;
+        }
+        int depth = 0;
+        this.branch(depth);
+        while (true) {
+            if ((++this.nodes & 0xfff) == 0) {
+                Utils.checkInterrupted();
+            }
+
+            int row = this.branchRows[depth];
+            if (this.branchNext[depth] == this.branchEnd[depth]) {
+                // Every value of the row failed, so the queen of the row above is wrong too.
+                if (depth == 0) {
+                    return false;
+                }
+                depth--;
+                this.undo(this.branchRows[depth], this.branchMarks[depth]);
+                this.metrics.backtrack();
+                continue;
+            }
+
+            int x = this.values[this.branchNext[depth]++];
+            this.metrics.node();
+            this.branchMarks[depth] = this.trailSize;
+            if (!this.place(row, x)) {
+                this.undo(row, this.branchMarks[depth]);
+                this.metrics.backtrack();
+            } else if (this.placed == this.boardSize) {
+                return true;
+            } else {
+                this.branch(++depth);
+            }
+        }
+    }
+
+    /** Picks the row to branch on at the depth, and pushes its ordered values after the ones above. */
+    private void branch(int depth) {
+        int row = this.pickRow();
+        int start = depth == 0 ? 0 : this.branchEnd[depth - 1];
+        this.branchRows[depth] = row;
+        this.branchNext[depth] = start;
+        this.branchEnd[depth] = this.orderValues(row, start);
+    }
+
+    /** Returns the empty row with the fewest values left, preferring the rows closer to the middle. */
+    int pickRow() {
+        int best = -1;
+        int bestSize = Integer.MAX_VALUE;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int y = 0; y < this.boardSize; y++) {
+            if (this.positions[y] >= 0) {
+                continue;
+            }
+            int size = this.domainSizes[y];
+            int distance = Math.abs(2 * y - (this.boardSize - 1));
+            if (size < bestSize || (size == bestSize && distance < bestDistance)) {
+                best = y;
+                bestSize = size;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Writes the values of the row to `values` from `start`, sorted by the number of cells they
+     * remove from the domains of the other empty rows through their column and diagonals. Returns
+     * the index after the last one.
+     */
+    int orderValues(int row, int start) {
+        var scored = this.scored;
+        int count = 0;
+        for (int w = 0; w < this.words; w++) {
+            long bits = this.domains[row * this.words + w];
+            while (bits != 0) {
+                int x = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                scored[count++] = ((long) this.countRemovals(row, x) << 32) | x;
+            }
+        }
+        Arrays.sort(scored, 0, count);
+
+        if (start + count > this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(2 * this.values.length, start + count));
+        }
+        for (int i = 0; i < count; i++) {
+            this.values[start + i] = (int) scored[i];
+        }
+        return start + count;
+    }
+
+    private int countRemovals(int row, int x) {
+        int removals = 0;
+        for (int y = 0; y < this.boardSize; y++) {
+            if (this.positions[y] >= 0 || y == row) {
+                continue;
+            }
+            int d = Math.abs(y - row);
+            removals += this.has(y, x) + this.has(y, x - d) + this.has(y, x + d);
+        }
+        return removals;
+    }
+
+    /**
+     * Places a queen in (x, row) and removes the cells it rules out from the empty rows. Returns
+     * false if any empty row is left without values, in which case the caller must still `undo()`.
+     */
+    boolean place(int row, int x) {
+        this.positions[row] = x;
+        this.placedRows[this.placed++] = row;
+
+        boolean consistent = true;
+        for (int y = 0; y < this.boardSize; y++) {
+            if (this.positions[y] >= 0) {
+                continue;
+            }
+            int d = Math.abs(y - row);
+            this.remove(y, x);
+            this.remove(y, x - d);
+            this.remove(y, x + d);
+            consistent &= this.domainSizes[y] > 0;
+        }
+        if (!this.enable3QueensInLineCheck) {
+            return consistent;
+        }
+
+        // Remove the cells on the line through the new queen and each queen placed before it.
+        for (int i = 0; i < this.placed - 1 && consistent; i++) {
+            int other = this.placedRows[i];
+            int dx = this.positions[other] - x;
+            int dy = other - row;
+            int g = Utils.gcd(Math.abs(dx), Math.abs(dy));
+            dx /= g;
+            dy /= g;
+            if (dy < 0) {
+                dx = -dx;
+                dy = -dy;
+            }
+
+            // Walk the line from its first row in the board down to the last one.
+            int steps = row / dy;
+            int cx = x - steps * dx;
+            for (int y = row - steps * dy; y < this.boardSize; y += dy, cx += dx) {
+                if (this.positions[y] < 0 && cx >= 0 && cx < this.boardSize) {
+                    this.remove(y, cx);
+                    consistent &= this.domainSizes[y] > 0;
+                }
+            }
+        }
+        return consistent;
+    }
+
+    /** Restores the domains to the given trail mark, and removes the queen in the row. */
+    void undo(int row, int mark) {
+        while (this.trailSize > mark) {
+            this.trailSize--;
+            int word = this.trailWords[this.trailSize];
+            long bits = this.trailBits[this.trailSize];
+            this.domains[word] |= bits;
+            this.domainSizes[word / this.words] += Long.bitCount(bits);
+        }
+        this.positions[row] = -1;
+        this.placed--;
+    }
+
+    private int has(int y, int x) {
+        if (x < 0 || x >= this.boardSize) {
+            return 0;
+        }
+        return (int) (this.domains[y * this.words + (x >>> 6)] >>> x) & 1;
+    }
+
+    /** Removes x from the domain of row y if it's there, and records it in the trail. */
+    private void remove(int y, int x) {
+        if (x < 0 || x >= this.boardSize) {
+            return;
+        }
+        int word = y * this.words + (x >>> 6);
+        long bit = 1L << x;
+        if ((this.domains[word] & bit) == 0) {
+            return;
+        }
+        this.domains[word] &= ~bit;
+        this.domainSizes[y]--;
+
+        if (this.trailSize == this.trailWords.length) {
+            this.trailWords = Arrays.copyOf(this.trailWords, 2 * this.trailSize);
+            this.trailBits = Arrays.copyOf(this.trailBits, 2 * this.trailSize);
+        }
+        this.trailWords[this.trailSize] = word;
+        this.trailBits[this.trailSize] = bit;
+        this.trailSize++;
+    }
+}
@@ -0,0 +1,81 @@
+package nq.solver;
+
+import java.util.List;
+
+import nq.solver.utils.Utils;
+
+/**
+ * Builds a solution of the traditional n-queens problem directly, in O(N) time and without any
+ * search, so it's fast enough for boards with tens of millions of rows.
+ *
+ * The columns (counting from 1) are the even numbers in order, followed by the odd numbers, which
+ * never share a diagonal, except when N mod 6 is 2 or 3:
+ *
+ *  - if N mod 6 = 2, 1 and 3 are swapped in the odd numbers, and 5 is moved to the end,
+ *  - if N mod 6 = 3, 2 is moved to the end of the even numbers, and 1 and 3 to the end of the odd
+ *    numbers.
+ *
+ * Based on: Hoffman, Loessi & Moore, "Constructions for the Solution of the m Queens Problem"
+ * (1969). The construction doesn't avoid 3 queens in a straight line, so this solver only supports
+ * the traditional problem.
+ */
+public class ConstructiveSolver implements Solver {
+    int boardSize;
+
+    public ConstructiveSolver(int boardSize, boolean enable3QueensInLineCheck) {
+        if (enable3QueensInLineCheck) {
+            throw new IllegalArgumentException("The constructive algorithm doesn't support the 3-queens-in-a-line check.");
+        }
+        this.boardSize = boardSize;
+    }
+
+    public List<Integer> solve() {
+        return Utils.asList(this.solveInto(new int[this.boardSize]));
+    }
+
+    /**
+     * Writes the column of the queen in each row into `out`, and returns it. Returns null if the
+     * board has no solution (N = 2 or 3).
+     */
+    @Override
+    public int[] solveInto(int[] out) {
+        int n = this.boardSize;
+        if (n == 2 || n == 3) {
+            return null;
+        }
+
+        // Columns are 1-based while they are generated, to follow the construction.
+        int i = 0;
+        int remainder = n % 6;
+        if (remainder == 3) {
+            for (int x = 4; x <= n; x += 2) {
+                out[i++] = x - 1;
+            }
+            out[i++] = 2 - 1;
+            for (int x = 5; x <= n; x += 2) {
+                out[i++] = x - 1;
+            }
+            out[i++] = 1 - 1;
+            out[i++] = 3 - 1;
+        } else if (remainder == 2) {
+            for (int x = 2; x <= n; x += 2) {
+                out[i++] = x - 1;
+            }
+            out[i++] = 3 - 1;
+            out[i++] = 1 - 1;
+            for (int x = 7; x <= n; x += 2) {
+                out[i++] = x - 1;
+            }
+            out[i++] = 5 - 1;
+        } else {
+            for (int x = 2; x <= n; x += 2) {
+                out[i++] = x - 1;
+            }
+            for (int x = 1; x <= n; x += 2) {
+                out[i++] = x - 1;
+            }
+        }
+
+        return out;
+    }
+}
@@ -0,0 +1,179 @@
+package nq.solver;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import nq.solver.utils.SolverMetrics;
+import nq.solver.utils.Utils;
+
+/**
+ * Decorates a solver with a deadline. Once the time is up, the thread running the solve is
+ * interrupted, and the result falls back to the best board that the solver found so far (see
+ * `Solver.bestSoFar()`), with the number of conflicts left in it.
+ *
+ * The solve runs in the calling thread, so that the solvers kept by a worker can still be reused.
+ * The interrupts come from a single shared timer thread, and never outlive the solve they were
+ * meant for. `solveAsync()` runs the same solve on an executor instead, and cancelling its future
+ * interrupts the solve as well.
+ */
+public class DeadlineSolver implements Solver {
+    /** Interrupts the solves whose deadline passed. */
+    static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, runnable -> {
+        var thread = new Thread(runnable, "nq-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    int boardSize;
+    boolean enable3QueensInLineCheck = false;
+    long timeoutNanos;
+
+    Solver solver;
+
+    public DeadlineSolver(Solver solver, int boardSize, boolean enable3QueensInLineCheck, Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException(String.format("Invalid timeout %s. It must be > 0.", timeout));
+        }
+        this.solver = solver;
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    public void setMetrics(SolverMetrics metrics) {
+        this.solver.setMetrics(metrics);
+    }
+
+    public List<Integer> solve() {
+        return Utils.asList(this.solveInto(new int[this.boardSize]));
+    }
+
+    /** Returns the solution, or null if there's none or the time ran out first. */
+    @Override
+    public int[] solveInto(int[] out) {
+        var result = this.solveWithDeadline();
+        if (!result.isSolved()) {
+            return null;
+        }
+        System.arraycopy(result.board, 0, out, 0, this.boardSize);
+        return out;
+    }
+
+    @Override
+    public int[] bestSoFar(int[] out) {
+        return this.solver.bestSoFar(out);
+    }
+
+    /**
+     * Solves in the current thread until the deadline.
+     *
+     * @throws CancellationException if the thread is interrupted by someone else
+     */
+    public SolveResult solveWithDeadline() {
+        var deadline = new Deadline(Thread.currentThread());
+        var timer = TIMER.schedule(deadline::expire, this.timeoutNanos, TimeUnit.NANOSECONDS);
+
+        int[] solution = null;
+        CancellationException cancelled = null;
+        boolean expired;
+        try {
+            solution = this.solver.solveInto(new int[this.boardSize]);
+        } catch (CancellationException e) {
+            cancelled = e;
+        } finally {
+            timer.cancel(false);
+            expired = deadline.finish();
+        }
+
+        // A solution that was found right at the deadline still counts.
+        if (solution != null) {
+            return SolveResult.of(solution);
+        }
+        if (!expired) {
+            if (cancelled != null) {
+                throw cancelled;
+            }
+            return SolveResult.of(null);
+        }
+        return SolveResult.timedOut(this.solver.bestSoFar(new int[this.boardSize]), this.enable3QueensInLineCheck);
+    }
+
+    /**
+     * Solves on the executor until the deadline. Cancelling the future interrupts the solve, which
+     * then stops without a result.
+     */
+    public CompletableFuture<SolveResult> solveAsync(Executor executor) {
+        var future = new CompletableFuture<SolveResult>();
+        var runner = new AtomicReference<Thread>();
+        executor.execute(() -> {
+            synchronized (runner) {
+                if (future.isDone()) {
+                    return;
+                }
+                runner.set(Thread.currentThread());
+            }
+            try {
+                future.complete(this.solveWithDeadline());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                // Don't leave a late cancellation interrupt behind for the next task of the executor.
+                synchronized (runner) {
+                    runner.set(null);
+                    Thread.interrupted();
+                }
+            }
+        });
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled()) {
+                synchronized (runner) {
+                    if (runner.get() != null) {
+                        runner.get().interrupt();
+                    }
+                }
+            }
+        });
+        return future;
+    }
+
+    /** The deadline of a single solve, which interrupts the solving thread unless it's finished. */
+    static class Deadline {
+        final Thread thread;
+        boolean expired;
+        boolean finished;
+
+        Deadline(Thread thread) {
+            this.thread = thread;
+        }
+
+        synchronized void expire() {
+            if (!this.finished) {
+                this.expired = true;
+                this.thread.interrupt();
+            }
+        }
+
+        /**
+         * Marks the solve as finished, and returns true if the deadline passed before. In that case,
+         * the interrupt that stopped the solve is cleared.
+         */
+        synchronized boolean finish() {
+            this.finished = true;
+            if (this.expired) {
+                Thread.interrupted();
+            }
+            return this.expired;
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package nq.solver;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.DataInputStream;
+import java.io.IOException;
 import java.util.List;
+import java.util.SplittableRandom;
 
-import org.apache.commons.lang3.tuple.Pair;
-
+import nq.solver.utils.BestSoFar;
+import nq.solver.utils.Checkpoint;
 import nq.solver.utils.CollisionsTracker;
+import nq.solver.utils.SolverMetrics;
+import nq.solver.utils.Utils;
 
 /**
  * Implements a gradient-based heuristic solver for the n-queens problem.
@@ -16,88 +19,182 @@ import nq.solver.utils.CollisionsTracker;
 public class GradientHeuristicSolver implements Solver {
     int boardSize;
     boolean enable3QueensInLineCheck = false;
-    List<Integer> solution;
+    int[] solution;
 
     CollisionsTracker collisionsTracker;
+    SolverMetrics metrics = SolverMetrics.DISABLED;
+    SplittableRandom random;
+    /** The board with the fewest collisions after any pass, since the last solve started. */
+    final BestSoFar best;
+    /** Where the board, the row and the restarts are saved, or null. */
+    Checkpoint checkpoint;
+    /** The number of passes that didn't solve the board, including those before a resume. */
+    long restarts;
 
     public GradientHeuristicSolver(int boardSize, boolean enable3QueensInLineCheck) {
+        this(boardSize, enable3QueensInLineCheck, new SplittableRandom());
+    }
+
+    /** Creates a solver whose runs can be replayed by using the same seed. */
+    public GradientHeuristicSolver(int boardSize, boolean enable3QueensInLineCheck, long seed) {
+        this(boardSize, enable3QueensInLineCheck, new SplittableRandom(seed));
+    }
+
+    /** Creates a solver that draws from the given random stream, which must not be shared. */
+    public GradientHeuristicSolver(int boardSize, boolean enable3QueensInLineCheck, SplittableRandom random) {
         this.boardSize = boardSize;
         this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+        this.random = random;
 
         // Init solution with queens in the diagonals.
-        this.solution = new ArrayList<Integer>(Collections.nCopies(this.boardSize, 0));
+        this.solution = new int[this.boardSize];
         for (int i = 0; i < this.boardSize; i++) {
-            solution.set(i, i);
+            solution[i] = i;
         }
 
-        this.collisionsTracker = new CollisionsTracker(boardSize, enable3QueensInLineCheck, solution);
+        this.collisionsTracker = new CollisionsTracker(boardSize, enable3QueensInLineCheck);
+        this.collisionsTracker.recalculateAttacksTables(this.solution, this.boardSize);
+        this.best = new BestSoFar(boardSize);
+    }
+
+    @Override
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+        this.collisionsTracker.setMetrics(metrics);
     }
 
-    private Pair<Integer, Integer> positionOf(int index) {
-        return Pair.of(this.solution.get(index), index);
+    /** Counts the diagonal and line attacks against the queens in the given rows. */
+    private int countAttacksAgainst(int qaIndex, int qbIndex) {
+        int qa = this.solution[qaIndex];
+        int qb = this.solution[qbIndex];
+
+        return this.collisionsTracker.countDiagAttacksAgainst(qa, qaIndex)
+                + this.collisionsTracker.countDiagAttacksAgainst(qb, qbIndex)
+                + this.collisionsTracker.countLineAttacksAgainst(qa, qaIndex)
+                + this.collisionsTracker.countLineAttacksAgainst(qb, qbIndex);
     }
 
     private void swap(int qaIndex, int qbIndex) {
         // Clean the attack lookup table affected entries first.
-        this.collisionsTracker.recordDiagCollision(this.positionOf(qaIndex), -1);
-        this.collisionsTracker.recordDiagCollision(this.positionOf(qbIndex), -1);
+        this.collisionsTracker.recordDiagCollision(this.solution[qaIndex], qaIndex, -1);
+        this.collisionsTracker.recordDiagCollision(this.solution[qbIndex], qbIndex, -1);
 
         // Swap in the solution.
-        int tmp = this.solution.get(qaIndex);
-        this.solution.set(qaIndex, this.solution.get(qbIndex));
-        this.solution.set(qbIndex, tmp);
+        int tmp = this.solution[qaIndex];
+        this.solution[qaIndex] = this.solution[qbIndex];
+        this.solution[qbIndex] = tmp;
 
         // Recalculate the attacks lookup table for the affected entries.
-        this.collisionsTracker.recordDiagCollision(this.positionOf(qaIndex), +1);
-        this.collisionsTracker.recordDiagCollision(this.positionOf(qbIndex), +1);
+        this.collisionsTracker.recordDiagCollision(this.solution[qaIndex], qaIndex, +1);
+        this.collisionsTracker.recordDiagCollision(this.solution[qbIndex], qbIndex, +1);
     }
 
     public List<Integer> solve() {
-        while (true) {
-            // Shuffle the initial solution as a starting point for the algorithm.
-            Collections.shuffle(this.solution);
-            this.collisionsTracker.recalculateAttacksTables(this.solution);
-
-            // For each queen pairs in the board, we will do a swap if it lowers the number
-            // of conflicts in the board after the swap.
-            for (int i = 0; i < this.boardSize - 1; i++) {
-                for (int j = i + 1; j < this.boardSize; j++) {
-
-                    // Check if need to swap = if one of the queens are in conflict.
-                    var qa = Pair.of(this.solution.get(i), i);
-                    var qb = Pair.of(this.solution.get(j), j);
-                    int beforeSwapAttacks = this.collisionsTracker.countDiagAttacksAgainst(qa)
-                            + this.collisionsTracker.countDiagAttacksAgainst(qb)
-                            + this.collisionsTracker.countLineAttacksAgainst(this.solution, qa)
-                            + this.collisionsTracker.countLineAttacksAgainst(this.solution, qb);
-                    if (beforeSwapAttacks == 0) {
-                        continue;
-                    }
+        return Utils.asList(this.solveInto(new int[this.boardSize]));
+    }
+
+    @Override
+    public int[] bestSoFar(int[] out) {
+        return this.best.copyInto(out);
+    }
 
-                    // Try swapping and see if that reduces the number of attack conflicts.
-                    this.swap(i, j);
+    /**
+     * Saves the board, the next row to check and the number of restarts to the checkpoint. A resumed
+     * solve continues the pass from that row, and then draws the next boards from its own random
+     * stream, so it's only replayed exactly until the end of that pass.
+     */
+    @Override
+    public boolean setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        return true;
+    }
 
-                    qa = Pair.of(this.solution.get(i), i);
-                    qb = Pair.of(this.solution.get(j), j);
-                    int afterSwapAttacks = this.collisionsTracker.countDiagAttacksAgainst(qa)
-                            + this.collisionsTracker.countDiagAttacksAgainst(qb)
-                            + this.collisionsTracker.countLineAttacksAgainst(this.solution, qa)
-                            + this.collisionsTracker.countLineAttacksAgainst(this.solution, qb);
+    @Override
+    public int[] solveInto(int[] out) {
+        this.best.reset();
+        this.restarts = 0;
+        Integer resumed = this.checkpoint != null ? this.checkpoint.resume(this::readState) : null;
+        int row = resumed != null ? resumed : 0;
+        boolean restarting = false;
+        try {
+            while (true) {
+                if (restarting) {
+                    this.metrics.restart();
+                    this.restarts++;
+                }
+                restarting = true;
 
-                    // If the swap made it worse, revert.
-                    if (afterSwapAttacks > beforeSwapAttacks) {
-                        this.swap(i, j);
-                        continue;
+                // Shuffle the initial solution as a starting point for the algorithm.
+                if (resumed == null) {
+                    Utils.shuffle(this.solution, this.boardSize, this.random);
+                    row = 0;
+                }
+                resumed = null;
+                this.collisionsTracker.recalculateAttacksTables(this.solution, this.boardSize);
+
+                // For each queen pairs in the board, we will do a swap if it lowers the number
+                // of conflicts in the board after the swap.
+                for (; row < this.boardSize - 1; row++) {
+                    Utils.checkInterrupted();
+                    if (this.checkpoint != null && this.checkpoint.isDue()) {
+                        this.saveState(row);
+                    }
+                    for (int j = row + 1; j < this.boardSize; j++) {
+
+                        // Check if need to swap = if one of the queens are in conflict.
+                        int beforeSwapAttacks = this.countAttacksAgainst(row, j);
+                        if (beforeSwapAttacks == 0) {
+                            continue;
+                        }
+
+                        // Try swapping and see if that reduces the number of attack conflicts.
+                        this.swap(row, j);
+                        this.metrics.swapTried();
+
+                        int afterSwapAttacks = this.countAttacksAgainst(row, j);
+
+                        // If the swap made it worse, revert.
+                        if (afterSwapAttacks > beforeSwapAttacks) {
+                            this.swap(row, j);
+                            this.metrics.swapReverted();
+                            continue;
+                        }
                     }
                 }
-            }
 
-            // Termination condition. If there are no more conflicts, we celebrate and terminate.
-            if (this.collisionsTracker.countAllDiagAndLineCollisions(this.solution) == 0) {
-                break;
+                // Termination condition. If there are no more conflicts, we celebrate and terminate.
+                int collisions = this.collisionsTracker.countAllDiagAndLineCollisions(this.solution);
+                this.best.offer(this.solution, collisions);
+                if (collisions == 0) {
+                    break;
+                }
+            }
+        } finally {
+            if (this.checkpoint != null) {
+                this.saveState(row);
             }
         }
 
-        return solution;
+        System.arraycopy(this.solution, 0, out, 0, this.boardSize);
+        return out;
+    }
+
+    private void saveState(int row) {
+        this.checkpoint.write(out -> {
+            out.writeLong(this.restarts);
+            out.writeInt(row);
+            Checkpoint.writeInts(out, this.solution, this.boardSize);
+        });
+    }
+
+    /** Reads the state saved by `saveState()`, and returns the row to continue from. */
+    private int readState(DataInputStream in) throws IOException {
+        this.restarts = in.readLong();
+        int row = in.readInt();
+        if (Checkpoint.readInts(in, this.solution, this.boardSize) != this.boardSize || row < 0
+                || row >= this.boardSize) {
+            throw new IOException("Not a board of size " + this.boardSize);
+        }
+        return row;
     }
 }
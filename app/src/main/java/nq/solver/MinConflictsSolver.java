@@ -0,0 +1,308 @@
+package nq.solver;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import nq.solver.utils.BestSoFar;
+import nq.solver.utils.CollisionsTracker;
+import nq.solver.utils.SolverMetrics;
+import nq.solver.utils.Utils;
+
+/**
+ * Implements a min-conflicts local search solver for the n-queens problem.
+ *
+ * The queens start as a permutation that is placed greedily, row by row, on cells that are not
+ * attacked by the rows above. Only the last few rows are left to chance. Then, a random conflicted
+ * queen is repeatedly swapped with another random queen if that lowers the number of conflicts,
+ * which is computed from the deltas in `CollisionsTracker` instead of rescanning the board.
+ *
+ * Based on: Sosic & Gu, "Fast Search Algorithms for the N-Queens Problem" (1991).
+ */
+public class MinConflictsSolver implements Solver {
+    /** Number of rows at the bottom that are placed randomly by the greedy initialization. */
+    static final int RANDOM_ROWS = 32;
+    /** Number of random cells to try before giving up on a conflict-free placement. */
+    static final int PLACEMENT_ATTEMPTS = 16;
+    /** Number of random swap partners to try for a conflicted queen. */
+    static final int SWAP_ATTEMPTS = 32;
+
+    int boardSize;
+    boolean enable3QueensInLineCheck = false;
+    int[] solution;
+
+    CollisionsTracker collisionsTracker;
+    SolverMetrics metrics = SolverMetrics.DISABLED;
+    SplittableRandom random;
+    /** The board with the lowest search cost, since the last solve started. */
+    final BestSoFar best;
+
+    /**
+     * The rows to pick queens from. Only the rows of the moved queens are added, so a queen that
+     * they attack now may be missing until the set runs empty and the whole board is scanned, and
+     * the rows that aren't in conflict anymore are only dropped once they're picked. The progress is
+     * measured with `cost()` instead.
+     */
+    int[] conflicted;
+    /** Index of each row in `conflicted`, or -1 if it's not there. */
+    int[] conflictedIndex;
+    int conflictedCount;
+    /** The number of queens in excess of 2 on every line, or 0 without line checks. */
+    int lineExcess;
+
+    public MinConflictsSolver(int boardSize, boolean enable3QueensInLineCheck) {
+        this(boardSize, enable3QueensInLineCheck, new SplittableRandom());
+    }
+
+    /** Creates a solver whose runs can be replayed by using the same seed. */
+    public MinConflictsSolver(int boardSize, boolean enable3QueensInLineCheck, long seed) {
+        this(boardSize, enable3QueensInLineCheck, new SplittableRandom(seed));
+    }
+
+    /** Creates a solver that draws from the given random stream, which must not be shared. */
+    public MinConflictsSolver(int boardSize, boolean enable3QueensInLineCheck, SplittableRandom random) {
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+        this.random = random;
+
+        this.solution = new int[boardSize];
+        this.conflicted = new int[boardSize];
+        this.conflictedIndex = new int[boardSize];
+        this.collisionsTracker = new CollisionsTracker(boardSize, enable3QueensInLineCheck);
+        this.best = new BestSoFar(boardSize);
+    }
+
+    @Override
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+        this.collisionsTracker.setMetrics(metrics);
+    }
+
+    public List<Integer> solve() {
+        return Utils.asList(this.solveInto(new int[this.boardSize]));
+    }
+
+    @Override
+    public int[] bestSoFar(int[] out) {
+        return this.best.copyInto(out);
+    }
+
+    @Override
+    public int[] solveInto(int[] out) {
+        this.best.reset();
+        while (true) {
+            // The restarts can come faster than the checks in the search, which count steps from 0.
+            Utils.checkInterrupted();
+            this.initialize();
+            if (this.search()) {
+                this.best.offer(this.solution, 0);
+                break;
+            }
+            this.metrics.restart();
+        }
+
+        System.arraycopy(this.solution, 0, out, 0, this.boardSize);
+        return out;
+    }
+
+    /** Places the queens greedily, avoiding conflicts with the rows above where possible. */
+    void initialize() {
+        for (int i = 0; i < this.boardSize; i++) {
+            this.solution[i] = i;
+        }
+        this.collisionsTracker.recalculateAttacksTables(this.solution, 0);
+        this.lineExcess = 0;
+
+        for (int row = 0; row < this.boardSize; row++) {
+            // Pick a random column among the unused ones, which are kept in solution[row..].
+            int attempts = row < this.boardSize - RANDOM_ROWS ? PLACEMENT_ATTEMPTS : 1;
+            for (int attempt = 0; attempt < attempts; attempt++) {
+                int pick = row + this.random.nextInt(this.boardSize - row);
+                int tmp = this.solution[row];
+                this.solution[row] = this.solution[pick];
+                this.solution[pick] = tmp;
+
+                if (this.countAttacksBeforePlacing(this.solution[row], row) == 0) {
+                    break;
+                }
+            }
+            this.lineExcess += this.collisionsTracker.countLinesThrough(this.solution[row], row);
+            this.collisionsTracker.recordDiagCollision(this.solution[row], row, +1);
+        }
+
+        this.conflictedCount = 0;
+        for (int row = 0; row < this.boardSize; row++) {
+            this.conflictedIndex[row] = -1;
+            this.markIfConflicted(row);
+        }
+    }
+
+    /**
+     * Repeatedly swaps conflicted queens until there are no more conflicts. Returns false if the
+     * search got stuck and should be restarted.
+     */
+    boolean search() {
+        long maxStepsWithoutProgress = 16L * this.boardSize + 1024;
+        long stepsWithoutProgress = 0;
+        int bestCost = Integer.MAX_VALUE;
+
+        for (long step = 1; stepsWithoutProgress++ < maxStepsWithoutProgress; step++) {
+            if ((step & 0xfff) == 0) {
+                Utils.checkInterrupted();
+                // Only sampled here, since copying the board on every improvement costs O(N) per step.
+                this.best.offer(this.solution, this.cost());
+            }
+            if (this.cost() == 0) {
+                return true;
+            }
+            if (this.conflictedCount == 0) {
+                // Some queen is still in conflict, since a moved queen attacks it, but it wasn't marked.
+                for (int row = 0; row < this.boardSize; row++) {
+                    this.markIfConflicted(row);
+                }
+            }
+
+            // Pick a random row that may be in conflict, and drop it if it's not anymore.
+            int index = this.random.nextInt(this.conflictedCount);
+            int row = this.conflicted[index];
+            this.metrics.node();
+            int attacks = this.countAttacksAgainst(row);
+            if (attacks == 0) {
+                this.unmark(row);
+                continue;
+            }
+
+            // Try random swaps, keeping the first one that lowers the number of conflicts, or
+            // else the best one that doesn't make it worse.
+            int bestPartner = -1;
+            int bestDelta = 1;
+            for (int attempt = 0; attempt < SWAP_ATTEMPTS; attempt++) {
+                int partner = this.random.nextInt(this.boardSize);
+                if (partner == row) {
+                    continue;
+                }
+                int delta = this.swapDelta(row, partner);
+                this.metrics.swapTried();
+                if (delta < bestDelta) {
+                    if (bestPartner >= 0) {
+                        this.metrics.swapReverted();
+                    }
+                    bestDelta = delta;
+                    bestPartner = partner;
+                    if (delta < 0) {
+                        break;
+                    }
+                } else {
+                    this.metrics.swapReverted();
+                }
+            }
+            if (bestPartner < 0) {
+                continue;
+            }
+
+            this.move(row, bestPartner);
+            this.markIfConflicted(row);
+            this.markIfConflicted(bestPartner);
+
+            int cost = this.cost();
+            if (cost < bestCost) {
+                bestCost = cost;
+                stepsWithoutProgress = 0;
+            }
+        }
+
+        this.best.offer(this.solution, this.cost());
+        return false;
+    }
+
+    /** Returns the number of conflicts on the board: its diagonal collisions and line excess. */
+    int cost() {
+        return this.collisionsTracker.countAllDiagCollisions() + this.lineExcess;
+    }
+
+    /**
+     * Returns the change in the number of conflicts if the queens in both rows are swapped. The
+     * diagonal collisions are counted for the whole board, and the line collisions only for the
+     * swapped queens.
+     */
+    int swapDelta(int qaIndex, int qbIndex) {
+        int before = this.collisionsTracker.countAllDiagCollisions() + this.countLineAttacksAgainst(qaIndex)
+                + this.countLineAttacksAgainst(qbIndex);
+        this.swap(qaIndex, qbIndex);
+        int after = this.collisionsTracker.countAllDiagCollisions() + this.countLineAttacksAgainst(qaIndex)
+                + this.countLineAttacksAgainst(qbIndex);
+        this.swap(qaIndex, qbIndex);
+
+        return after - before;
+    }
+
+    void swap(int qaIndex, int qbIndex) {
+        int qa = this.solution[qaIndex];
+        int qb = this.solution[qbIndex];
+        this.collisionsTracker.recordDiagCollision(qa, qaIndex, -1);
+        this.collisionsTracker.recordDiagCollision(qb, qbIndex, -1);
+
+        this.solution[qaIndex] = qb;
+        this.solution[qbIndex] = qa;
+
+        this.collisionsTracker.recordDiagCollision(qb, qaIndex, +1);
+        this.collisionsTracker.recordDiagCollision(qa, qbIndex, +1);
+    }
+
+    /**
+     * Swaps the queens in both rows for good, and updates `lineExcess`. This costs O(N) with line
+     * checks, unlike `swap()`, so it's only used once a swap is picked.
+     */
+    void move(int qaIndex, int qbIndex) {
+        int qa = this.solution[qaIndex];
+        int qb = this.solution[qbIndex];
+        var tracker = this.collisionsTracker;
+
+        this.lineExcess -= tracker.countLinesThrough(qa, qaIndex);
+        tracker.recordDiagCollision(qa, qaIndex, -1);
+        this.lineExcess -= tracker.countLinesThrough(qb, qbIndex);
+        tracker.recordDiagCollision(qb, qbIndex, -1);
+
+        this.solution[qaIndex] = qb;
+        this.solution[qbIndex] = qa;
+
+        this.lineExcess += tracker.countLinesThrough(qb, qaIndex);
+        tracker.recordDiagCollision(qb, qaIndex, +1);
+        this.lineExcess += tracker.countLinesThrough(qa, qbIndex);
+        tracker.recordDiagCollision(qa, qbIndex, +1);
+    }
+
+    /** Counts the attacks against (x, row) from the queens placed above it. */
+    private int countAttacksBeforePlacing(int x, int row) {
+        this.collisionsTracker.recordDiagCollision(x, row, +1);
+        int attacks = this.collisionsTracker.countDiagAttacksAgainst(x, row)
+                + this.collisionsTracker.countLineAttacksAgainst(x, row);
+        this.collisionsTracker.recordDiagCollision(x, row, -1);
+
+        return attacks;
+    }
+
+    private int countAttacksAgainst(int row) {
+        return this.collisionsTracker.countDiagAttacksAgainst(this.solution[row], row)
+                + this.countLineAttacksAgainst(row);
+    }
+
+    private int countLineAttacksAgainst(int row) {
+        return this.collisionsTracker.countLineAttacksAgainst(this.solution[row], row);
+    }
+
+    private void markIfConflicted(int row) {
+        if (this.conflictedIndex[row] < 0 && this.countAttacksAgainst(row) > 0) {
+            this.conflictedIndex[row] = this.conflictedCount;
+            this.conflicted[this.conflictedCount++] = row;
+        }
+    }
+
+    private void unmark(int row) {
+        // Move the last row into the removed slot to keep the set contiguous.
+        int index = this.conflictedIndex[row];
+        int last = this.conflicted[--this.conflictedCount];
+        this.conflicted[index] = last;
+        this.conflictedIndex[last] = index;
+        this.conflictedIndex[row] = -1;
+    }
+}
@@ -0,0 +1,167 @@
+package nq.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import nq.solver.utils.SolverMetrics;
+import nq.solver.utils.Utils;
+
+/**
+ * Implements a parallel backtracking solver on top of `BitmaskSearch`.
+ *
+ * The search tree is split by enumerating the queens of the first few rows (prefixes). Every
+ * valid prefix becomes a fork-join task, and idle workers steal the pending prefixes from the busy
+ * ones. The first worker to find a solution cancels all the others.
+ */
+public class ParallelBacktrackingSolver implements Solver {
+    int boardSize;
+    boolean enable3QueensInLineCheck = false;
+    int threads;
+    /** Number of rows from the top that are enumerated to split the search tree. */
+    int splitDepth;
+
+    SolverMetrics metrics = SolverMetrics.DISABLED;
+
+    /** Each worker reuses a single search for all the prefixes it explores. */
+    final ThreadLocal<BitmaskSearch> searches;
+
+    public ParallelBacktrackingSolver(int boardSize, boolean enable3QueensInLineCheck, int threads) {
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+        this.threads = threads;
+
+        // Split deep enough so that there are plenty of prefixes to balance between the workers.
+        long prefixes = 1;
+        while (this.splitDepth < this.boardSize - 1 && prefixes < 32L * threads) {
+            prefixes *= this.boardSize - this.splitDepth;
+            this.splitDepth++;
+        }
+
+        this.searches = ThreadLocal.withInitial(() -> new BitmaskSearch(boardSize, enable3QueensInLineCheck));
+    }
+
+    public ParallelBacktrackingSolver(int boardSize, boolean enable3QueensInLineCheck) {
+        this(boardSize, enable3QueensInLineCheck, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public List<Integer> solve() {
+        return Utils.asList(this.solveInto(new int[this.boardSize]));
+    }
+
+    @Override
+    public int[] solveInto(int[] out) {
+        var found = new AtomicBoolean(false);
+        var solution = new AtomicReference<int[]>();
+
+        var pool = new ForkJoinPool(this.threads);
+        try {
+            pool.submit(new PrefixTask(new int[this.boardSize], 0, found, solution)).get();
+        } catch (InterruptedException e) {
+            // Stop the workers through the shared flag, since they don't see our interrupt.
+            found.set(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Solver was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            // The leaves only stop at their next check of the flag, and still merge their metrics
+            // after that, so they must be done before the solve returns.
+            Utils.awaitTermination(pool);
+        }
+
+        if (solution.get() == null) {
+            return null;
+        }
+
+        System.arraycopy(solution.get(), 0, out, 0, this.boardSize);
+        return out;
+    }
+
+    /** Checks if a queen in (x, row) conflicts with any of the queens in the rows above it. */
+    boolean isValidExtension(int[] prefix, int row, int x) {
+        for (int i = 0; i < row; i++) {
+            int dx = prefix[i] - x;
+            if (dx == 0 || Math.abs(dx) == row - i) {
+                return false;
+            }
+        }
+        if (!this.enable3QueensInLineCheck) {
+            return true;
+        }
+
+        // The prefixes are short, so a quadratic check is cheaper than setting up a tracker.
+        for (int i = 0; i < row; i++) {
+            long key = Utils.directionKey(prefix[i] - x, i - row);
+            for (int j = i + 1; j < row; j++) {
+                if (Utils.directionKey(prefix[j] - x, j - row) == key) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    class PrefixTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final int[] prefix;
+        final int length;
+        final AtomicBoolean found;
+        final AtomicReference<int[]> solution;
+
+        PrefixTask(int[] prefix, int length, AtomicBoolean found, AtomicReference<int[]> solution) {
+            this.prefix = prefix;
+            this.length = length;
+            this.found = found;
+            this.solution = solution;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.found.get()) {
+                return;
+            }
+
+            // Leaf of the split tree: search the whole subtree below the prefix.
+            if (this.length == splitDepth) {
+                var search = searches.get();
+                var local = metrics.isEnabled() ? new SolverMetrics() : SolverMetrics.DISABLED;
+                search.setMetrics(local);
+                search.cancelled = this.found;
+                search.reset(this.prefix, this.length);
+                if (search.next() && this.found.compareAndSet(false, true)) {
+                    this.solution.set(search.positions().clone());
+                }
+                metrics.merge(local);
+                return;
+            }
+
+            var children = new ArrayList<PrefixTask>();
+            for (int x = 0; x < boardSize; x++) {
+                if (!isValidExtension(this.prefix, this.length, x)) {
+                    continue;
+                }
+                var child = Arrays.copyOf(this.prefix, boardSize);
+                child[this.length] = x;
+                children.add(new PrefixTask(child, this.length + 1, this.found, this.solution));
+            }
+            invokeAll(children);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package nq.solver;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A board with some queens already placed and some cells where no queen may go, to be completed by
+ * a `CompletionSolver`.
+ *
+ * Boards can be mapped through the 8 symmetries of the square, selected by the bits of an int as in
+ * `SolutionCounter`: bit 0 flips x, bit 1 flips y and bit 2 transposes the board, in that order.
+ * Boards that are symmetric to each other share the same canonical form, so they also share their
+ * completions.
+ */
+public class PartialBoard {
+    final int boardSize;
+    /** The column of the queen placed in each row, or -1 if the row is empty. */
+    final int[] queens;
+    /** The forbidden cells, indexed by y * boardSize + x. */
+    final BitSet forbidden;
+
+    public PartialBoard(int boardSize) {
+        this.boardSize = boardSize;
+        this.queens = new int[boardSize];
+        this.forbidden = new BitSet();
+        Arrays.fill(this.queens, -1);
+    }
+
+    /**
+     * Parses a board from the queens and forbidden cells given as `row:column` pairs separated by
+     * commas, like `0:3,5:7`. Either of them may be null.
+     *
+     * @throws IllegalArgumentException if any of the cells is not valid
+     */
+    public static PartialBoard parse(int boardSize, String queens, String forbidden) {
+        var board = new PartialBoard(boardSize);
+        for (var cell : parseCells(queens)) {
+            board.place(cell[1], cell[0]);
+        }
+        for (var cell : parseCells(forbidden)) {
+            board.forbid(cell[1], cell[0]);
+        }
+        return board;
+    }
+
+    private static int[][] parseCells(String cells) {
+        if (cells == null || cells.isBlank()) {
+            return new int[0][];
+        }
+        var pairs = cells.trim().split(",");
+        var parsed = new int[pairs.length][];
+        for (int i = 0; i < pairs.length; i++) {
+            var parts = pairs[i].trim().split(":");
+            try {
+                if (parts.length != 2) {
+                    throw new NumberFormatException();
+                }
+                parsed[i] = new int[] { Integer.parseInt(parts[0]), Integer.parseInt(parts[1]) };
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(
+                        String.format("Invalid cell '%s'. Expected <row>:<column>.", pairs[i].trim()));
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Places a queen in (x, y), and returns this board.
+     *
+     * @throws IllegalArgumentException if the cell is outside the board, or its row or column has
+     *         another queen
+     */
+    public PartialBoard place(int x, int y) {
+        this.checkCell(x, y);
+        if (this.queens[y] >= 0 && this.queens[y] != x) {
+            throw new IllegalArgumentException(String.format("Row %d already has a queen.", y));
+        }
+        // The transposed board keeps a single queen per row too, as long as there's one per column.
+        for (int i = 0; i < this.boardSize; i++) {
+            if (i != y && this.queens[i] == x) {
+                throw new IllegalArgumentException(String.format("Column %d already has a queen.", x));
+            }
+        }
+        this.queens[y] = x;
+        return this;
+    }
+
+    /**
+     * Forbids placing a queen in (x, y), and returns this board.
+     *
+     * @throws IllegalArgumentException if the cell is outside the board
+     */
+    public PartialBoard forbid(int x, int y) {
+        this.checkCell(x, y);
+        this.forbidden.set(y * this.boardSize + x);
+        return this;
+    }
+
+    private void checkCell(int x, int y) {
+        if (x < 0 || x >= this.boardSize || y < 0 || y >= this.boardSize) {
+            throw new IllegalArgumentException(
+                    String.format("Cell %d:%d is outside the board of size %d.", y, x, this.boardSize));
+        }
+    }
+
+    public int getBoardSize() {
+        return this.boardSize;
+    }
+
+    /** Returns the column of the queen in row y, or -1 if the row is empty. */
+    public int getQueen(int y) {
+        return this.queens[y];
+    }
+
+    public boolean isForbidden(int x, int y) {
+        return this.forbidden.get(y * this.boardSize + x);
+    }
+
+    public int countQueens() {
+        return (int) Arrays.stream(this.queens).filter(x -> x >= 0).count();
+    }
+
+    public int countForbidden() {
+        return this.forbidden.cardinality();
+    }
+
+    /** Returns a copy of this board mapped through the given symmetry. */
+    PartialBoard transform(int symmetry) {
+        int n = this.boardSize;
+        var board = new PartialBoard(n);
+        for (int y = 0; y < n; y++) {
+            if (this.queens[y] >= 0) {
+                int cell = transformCell(n, this.queens[y], y, symmetry);
+                board.queens[cell / n] = cell % n;
+            }
+        }
+        for (int i = this.forbidden.nextSetBit(0); i >= 0; i = this.forbidden.nextSetBit(i + 1)) {
+            board.forbidden.set(transformCell(n, i % n, i / n, symmetry));
+        }
+        return board;
+    }
+
+    /**
+     * Returns the symmetry that maps this board to its canonical form, which is the smallest of its
+     * 8 symmetric boards, comparing the queens first and then the forbidden cells.
+     */
+    int canonicalSymmetry() {
+        int best = 0;
+        PartialBoard smallest = this;
+        for (int symmetry = 1; symmetry < 8; symmetry++) {
+            var board = this.transform(symmetry);
+            if (board.compareTo(smallest) < 0) {
+                best = symmetry;
+                smallest = board;
+            }
+        }
+        return best;
+    }
+
+    private int compareTo(PartialBoard other) {
+        int cmp = Arrays.compare(this.queens, other.queens);
+        if (cmp != 0) {
+            return cmp;
+        }
+        return Arrays.compare(this.forbidden.toLongArray(), other.forbidden.toLongArray());
+    }
+
+    /** Returns the symmetry that undoes the given one. */
+    static int inverse(int symmetry) {
+        // Transposing swaps which axis each flip applies to, so the flips trade places.
+        if ((symmetry & 4) == 0) {
+            return symmetry;
+        }
+        return 4 | ((symmetry & 1) << 1) | ((symmetry & 2) >> 1);
+    }
+
+    /** Maps a full solution through the given symmetry into `out`, and returns it. */
+    static int[] transformSolution(int[] solution, int symmetry, int[] out) {
+        int n = solution.length;
+        for (int y = 0; y < n; y++) {
+            int cell = transformCell(n, solution[y], y, symmetry);
+            out[cell / n] = cell % n;
+        }
+        return out;
+    }
+
+    /** Maps the cell (x, y) through the given symmetry, and returns it as y * n + x. */
+    static int transformCell(int n, int x, int y, int symmetry) {
+        int tx = (symmetry & 1) != 0 ? n - 1 - x : x;
+        int ty = (symmetry & 2) != 0 ? n - 1 - y : y;
+        return (symmetry & 4) != 0 ? tx * n + ty : ty * n + tx;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PartialBoard)) {
+            return false;
+        }
+        var other = (PartialBoard) o;
+        return this.boardSize == other.boardSize && Arrays.equals(this.queens, other.queens)
+                && this.forbidden.equals(other.forbidden);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(this.queens) + this.forbidden.hashCode();
+    }
+}
@@ -0,0 +1,123 @@
+package nq.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import nq.solver.utils.BoardValidator;
+import nq.solver.utils.SolverMetrics;
+import nq.solver.utils.Utils;
+
+/**
+ * Implements a solver that races several solvers against each other on a thread pool, and returns
+ * the first valid solution. The rest of the solvers are cancelled as soon as one wins, and the
+ * solve only returns once they have all stopped, so the portfolio can be reused right away.
+ *
+ * Mixing algorithms, or running the same randomized algorithm several times, cuts the tail of the
+ * solving time, since a single unlucky run no longer decides how long the whole solve takes.
+ */
+public class PortfolioSolver implements Solver {
+    int boardSize;
+    boolean enable3QueensInLineCheck = false;
+    int threads;
+    List<Solver> solvers;
+
+    SolverMetrics metrics = SolverMetrics.DISABLED;
+
+    public PortfolioSolver(int boardSize, boolean enable3QueensInLineCheck, List<Solver> solvers, int threads) {
+        if (solvers.isEmpty()) {
+            throw new IllegalArgumentException("A portfolio needs at least one solver.");
+        }
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+        this.solvers = solvers;
+        this.threads = threads;
+    }
+
+    @Override
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** Returns the best board of any of the solvers, by the number of conflicts left in it. */
+    @Override
+    public int[] bestSoFar(int[] out) {
+        var board = new int[this.boardSize];
+        int fewest = Integer.MAX_VALUE;
+        for (var solver : this.solvers) {
+            if (solver.bestSoFar(board) == null) {
+                continue;
+            }
+            int conflicts = SolveResult.countConflicts(board, this.enable3QueensInLineCheck);
+            if (conflicts < fewest) {
+                fewest = conflicts;
+                System.arraycopy(board, 0, out, 0, this.boardSize);
+            }
+        }
+        return fewest < Integer.MAX_VALUE ? out : null;
+    }
+
+    public List<Integer> solve() {
+        return Utils.asList(this.solveInto(new int[this.boardSize]));
+    }
+
+    @Override
+    public int[] solveInto(int[] out) {
+        var executor = Executors.newFixedThreadPool(Math.min(this.threads, this.solvers.size()));
+        var completionService = new ExecutorCompletionService<int[]>(executor);
+
+        var futures = new ArrayList<Future<int[]>>();
+        var workerMetrics = new ArrayList<SolverMetrics>();
+        for (var solver : this.solvers) {
+            var local = this.metrics.isEnabled() ? new SolverMetrics() : SolverMetrics.DISABLED;
+            solver.setMetrics(local);
+            workerMetrics.add(local);
+            futures.add(completionService.submit(() -> solver.solveInto(new int[this.boardSize])));
+        }
+
+        ExecutionException failure = null;
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                int[] solution;
+                try {
+                    solution = completionService.take().get();
+                } catch (ExecutionException e) {
+                    // A broken solver shouldn't take down the others, unless none of them succeeds.
+                    failure = failure != null ? failure : e;
+                    continue;
+                }
+
+                // Only the exhaustive solvers give up, which means that there's no solution.
+                if (solution == null) {
+                    return null;
+                }
+                if (BoardValidator.isValidSolution(this.boardSize, this.enable3QueensInLineCheck, solution)) {
+                    System.arraycopy(solution, 0, out, 0, this.boardSize);
+                    return out;
+                }
+            }
+            if (failure != null) {
+                throw new IllegalStateException("Every solver of the portfolio failed", failure.getCause());
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Solver was interrupted");
+        } finally {
+            for (var future : futures) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+            // The losers only stop at their next interrupt check. Until then, they still use their
+            // solvers and metrics, which the next solve would share with them.
+            Utils.awaitTermination(executor);
+            for (var local : workerMetrics) {
+                this.metrics.merge(local);
+            }
+        }
+    }
+}
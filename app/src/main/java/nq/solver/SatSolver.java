@@ -0,0 +1,49 @@
+package nq.solver;
+
+import java.util.List;
+
+import nq.solver.sat.CdclSolver;
+import nq.solver.sat.QueensEncoding;
+import nq.solver.utils.SolverMetrics;
+import nq.solver.utils.Utils;
+
+/**
+ * Solves the board by encoding it as a CNF formula (see `QueensEncoding`), and running the
+ * bundled `CdclSolver` on it, in process.
+ *
+ * The encoding is built once per solver, and each call to `solveInto()` runs a fresh SAT search.
+ * The decisions are counted as nodes, and the conflicts as backtracks.
+ */
+public class SatSolver implements Solver {
+    int boardSize;
+    boolean enable3QueensInLineCheck = false;
+
+    final QueensEncoding encoding;
+    SolverMetrics metrics = SolverMetrics.DISABLED;
+
+    public SatSolver(int boardSize, boolean enable3QueensInLineCheck) {
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+
+        this.encoding = new QueensEncoding(boardSize, enable3QueensInLineCheck);
+    }
+
+    @Override
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public List<Integer> solve() {
+        return Utils.asList(this.solveInto(new int[this.boardSize]));
+    }
+
+    @Override
+    public int[] solveInto(int[] out) {
+        var solver = new CdclSolver(this.encoding.getFormula());
+        solver.setMetrics(this.metrics);
+        if (!solver.solve()) {
+            return null;
+        }
+        return this.encoding.decode(solver.getModel(), out);
+    }
+}
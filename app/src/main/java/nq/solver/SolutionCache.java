@@ -0,0 +1,167 @@
+package nq.solver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches solutions by board size, line check and seed, so that repeated requests don't search
+ * again. The solutions don't depend on the algorithm that found them.
+ *
+ * The most recently used solutions are kept in memory, up to a fixed number of them. If a directory
+ * is given, every solution is also kept in a `SolutionStore` there, which outlives the process.
+ * The cache is safe to share between threads.
+ */
+public class SolutionCache implements Closeable {
+    final int capacity;
+    final Map<Key, int[]> memory;
+    final SolutionStore store;
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong diskHits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+    final AtomicLong rejected = new AtomicLong();
+
+    /** Creates a cache that only keeps up to `capacity` solutions in memory. */
+    public SolutionCache(int capacity) {
+        this(capacity, (SolutionStore) null);
+    }
+
+    /** Creates a cache that also stores all the solutions in the given directory. */
+    public SolutionCache(int capacity, Path directory) throws IOException {
+        this(capacity, new SolutionStore(directory));
+    }
+
+    private SolutionCache(int capacity, SolutionStore store) {
+        this.capacity = capacity;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+                return this.size() > SolutionCache.this.capacity;
+            }
+        };
+        this.store = store;
+    }
+
+    /**
+     * Returns the cached solution, or null if there's none. The returned array must not be
+     * modified. A null seed stands for solutions found without a fixed seed.
+     */
+    public int[] get(int boardSize, boolean enable3QueensInLineCheck, Long seed) {
+        var key = new Key(boardSize, enable3QueensInLineCheck, seed);
+        int[] solution;
+        synchronized (this.memory) {
+            solution = this.memory.get(key);
+        }
+        if (solution != null) {
+            this.hits.incrementAndGet();
+            return solution;
+        }
+
+        if (this.store != null) {
+            try {
+                solution = this.store.get(boardSize, enable3QueensInLineCheck, seed);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (solution != null) {
+                synchronized (this.memory) {
+                    this.memory.put(key, solution);
+                }
+                this.hits.incrementAndGet();
+                this.diskHits.incrementAndGet();
+                return solution;
+            }
+        }
+
+        this.misses.incrementAndGet();
+        return null;
+    }
+
+    /** Caches the solution, which must not be modified afterwards. */
+    public void put(int boardSize, boolean enable3QueensInLineCheck, Long seed, int[] solution) {
+        synchronized (this.memory) {
+            this.memory.put(new Key(boardSize, enable3QueensInLineCheck, seed), solution);
+        }
+        if (this.store != null) {
+            try {
+                this.store.put(boardSize, enable3QueensInLineCheck, seed, solution);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /** Drops a cached solution that turned out to be invalid, so that it's solved again. */
+    void reject(int boardSize, boolean enable3QueensInLineCheck, Long seed) {
+        this.rejected.incrementAndGet();
+        synchronized (this.memory) {
+            this.memory.remove(new Key(boardSize, enable3QueensInLineCheck, seed));
+        }
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /** Returns the number of hits that were read from disk. */
+    public long getDiskHits() {
+        return this.diskHits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /** Returns the number of hits that failed the validation, which are also counted as hits. */
+    public long getRejected() {
+        return this.rejected.get();
+    }
+
+    /** Returns a human readable summary of the hits and misses. */
+    public String summary() {
+        return String.format("Cache:           %d hits (%d from disk, %d rejected), %d misses", this.getHits(),
+                this.getDiskHits(), this.getRejected(), this.getMisses());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.store != null) {
+            this.store.close();
+        }
+    }
+
+    static class Key {
+        final int boardSize;
+        final boolean enable3QueensInLineCheck;
+        final Long seed;
+
+        Key(int boardSize, boolean enable3QueensInLineCheck, Long seed) {
+            this.boardSize = boardSize;
+            this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+            this.seed = seed;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            var key = (Key) other;
+            return this.boardSize == key.boardSize && this.enable3QueensInLineCheck == key.enable3QueensInLineCheck
+                    && Objects.equals(this.seed, key.seed);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.boardSize, this.enable3QueensInLineCheck, this.seed);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package nq.solver;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import nq.solver.utils.Checkpoint;
+import nq.solver.utils.SolverMetrics;
+
+/**
+ * Counts all the solutions of the n-queens problem (optionally with the 3-queens-in-a-line
+ * constraint), both in total and unique up to the 8 symmetries of the board.
+ *
+ * Only the canonical solutions are searched for, where the canonical solution is the smallest one
+ * (comparing row by row) among its rotations and reflections. Any of the symmetries maps an edge
+ * queen to the first row, so in a canonical solution where the first row queen is `c` columns away
+ * from the corner:
+ *
+ *  - the first row queen is in the left half of the board,
+ *  - every other queen on the edges of the board is at least `c` cells away from the corners, and
+ *  - if the first row queen is in the corner, the row of the queen in the second column is not
+ *    smaller than the column of the second row queen, since transposing keeps the corner queen.
+ *
+ * The search prunes every cell that breaks these rules, which leaves about 1/8 of the search tree.
+ * The remaining solutions are then checked against their 8 symmetries, and each canonical solution
+ * counts as many times as its distinct symmetries.
+ *
+ * The work is split by the queens in the first 2 rows. With a checkpoint, the counts of the finished
+ * prefixes are saved, so a count that's resumed only searches the prefixes that weren't finished.
+ */
+public class SolutionCounter {
+    int boardSize;
+    boolean enable3QueensInLineCheck = false;
+    int threads;
+
+    SolverMetrics metrics = SolverMetrics.DISABLED;
+
+    /** Each worker reuses a single search for all the prefixes it counts. */
+    final ThreadLocal<BitmaskSearch> searches;
+
+    /** Where the counts of the finished prefixes are saved, or null. */
+    Checkpoint checkpoint;
+    /** The counts of the finished prefixes, by their index in the split. */
+    final Map<Integer, Counts> finished = new ConcurrentHashMap<>();
+
+    /** The number of solutions found by a `SolutionCounter`. */
+    public static class Counts {
+        /** Total number of solutions. */
+        public final long total;
+        /** Number of solutions that are unique up to rotations and reflections. */
+        public final long unique;
+
+        public Counts(long total, long unique) {
+            this.total = total;
+            this.unique = unique;
+        }
+
+        Counts plus(Counts other) {
+            return new Counts(this.total + other.total, this.unique + other.unique);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("total=%d, unique=%d", this.total, this.unique);
+        }
+    }
+
+    public SolutionCounter(int boardSize, boolean enable3QueensInLineCheck, int threads) {
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+        this.threads = threads;
+
+        this.searches = ThreadLocal.withInitial(() -> new BitmaskSearch(boardSize, enable3QueensInLineCheck));
+    }
+
+    public SolutionCounter(int boardSize, boolean enable3QueensInLineCheck) {
+        this(boardSize, enable3QueensInLineCheck, Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Sets the metrics that are filled in while counting. */
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Saves the counts of the finished prefixes to the checkpoint now and then, and when the count
+     * is over. If the checkpoint has counts to resume from, the next count skips their prefixes.
+     */
+    public void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /** Counts all the solutions of the board. */
+    public Counts count() {
+        this.finished.clear();
+        if (this.checkpoint != null) {
+            this.checkpoint.resume(this::readFinished);
+        }
+
+        var pool = new ForkJoinPool(this.threads);
+        try {
+            return pool.invoke(new CountTask(-1, null));
+        } finally {
+            pool.shutdownNow();
+            if (this.checkpoint != null) {
+                this.saveFinished();
+            }
+        }
+    }
+
+    /** Returns the number of prefixes whose counts are known, either counted or resumed. */
+    public int getFinishedPrefixes() {
+        return this.finished.size();
+    }
+
+    /** Records the counts of a prefix, and saves all of them if the checkpoint is due. */
+    void finish(int index, Counts counts) {
+        this.finished.put(index, counts);
+        if (this.checkpoint != null && this.checkpoint.isDue()) {
+            this.saveFinished();
+        }
+    }
+
+    private void saveFinished() {
+        this.checkpoint.write(out -> {
+            // Sorted, so that the same counts always make the same file.
+            var sorted = new TreeMap<>(this.finished);
+            out.writeInt(sorted.size());
+            for (var entry : sorted.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeLong(entry.getValue().total);
+                out.writeLong(entry.getValue().unique);
+            }
+        });
+    }
+
+    private Void readFinished(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            int index = in.readInt();
+            this.finished.put(index, new Counts(in.readLong(), in.readLong()));
+        }
+        return null;
+    }
+
+    /**
+     * Counts the canonical solutions that start with the given prefix, which must have at most
+     * the first 2 rows.
+     */
+    Counts countPrefix(BitmaskSearch search, int[] prefix) {
+        int n = this.boardSize;
+        int corner = prefix[0];
+
+        // Prune the edge cells closer than the first row queen to a corner.
+        search.clearForbidden();
+        for (int i = 0; i < corner; i++) {
+            search.forbid(i, n - 1);
+            search.forbid(n - 1 - i, n - 1);
+            search.forbid(0, i);
+            search.forbid(n - 1, i);
+            search.forbid(0, n - 1 - i);
+            search.forbid(n - 1, n - 1 - i);
+        }
+        // With a queen in the corner, the transposed solution starts with the same queen, and its
+        // second row is the row of the queen in the second column.
+        if (corner == 0 && prefix.length > 1) {
+            for (int y = 2; y < prefix[1]; y++) {
+                search.forbid(1, y);
+            }
+        }
+        search.reset(prefix, prefix.length);
+
+        long total = 0;
+        long unique = 0;
+        var transformed = new int[n];
+        while (search.next()) {
+            int symmetries = this.countSymmetries(search.positions(), transformed);
+            if (symmetries > 0) {
+                total += 8 / symmetries;
+                unique += 1;
+            }
+        }
+
+        return new Counts(total, unique);
+    }
+
+    /**
+     * Returns the number of symmetries that map the solution to itself, or 0 if any of them maps
+     * it to a smaller solution (i.e. it's not canonical).
+     */
+    int countSymmetries(int[] solution, int[] transformed) {
+        int n = this.boardSize;
+        int symmetries = 0;
+
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            for (int y = 0; y < n; y++) {
+                int x = solution[y];
+                // Flip x, flip y and transpose, as selected by the bits of `symmetry`.
+                int tx = (symmetry & 1) != 0 ? n - 1 - x : x;
+                int ty = (symmetry & 2) != 0 ? n - 1 - y : y;
+                if ((symmetry & 4) != 0) {
+                    transformed[tx] = ty;
+                } else {
+                    transformed[ty] = tx;
+                }
+            }
+
+            int cmp = 0;
+            for (int y = 0; y < n && cmp == 0; y++) {
+                cmp = Integer.compare(transformed[y], solution[y]);
+            }
+            if (cmp < 0) {
+                return 0;
+            }
+            if (cmp == 0) {
+                symmetries++;
+            }
+        }
+
+        return symmetries;
+    }
+
+    class CountTask extends RecursiveTask<Counts> {
+        private static final long serialVersionUID = 1L;
+
+        /** The index of the prefix in the split. */
+        final int index;
+        /** The prefix to count, or null for the root task which splits the work. */
+        final int[] prefix;
+
+        CountTask(int index, int[] prefix) {
+            this.index = index;
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected Counts compute() {
+            if (this.prefix != null) {
+                var counts = finished.get(this.index);
+                if (counts != null) {
+                    return counts;
+                }
+                var search = searches.get();
+                var local = metrics.isEnabled() ? new SolverMetrics() : SolverMetrics.DISABLED;
+                search.setMetrics(local);
+                counts = countPrefix(search, this.prefix);
+                metrics.merge(local);
+                finish(this.index, counts);
+                return counts;
+            }
+
+            // Split by the queens in the first 2 rows, where the first one is in the left half.
+            var tasks = new ArrayList<CountTask>();
+            for (int x = 0; x <= (boardSize - 1) / 2; x++) {
+                if (boardSize == 1) {
+                    tasks.add(new CountTask(tasks.size(), new int[] { x }));
+                    continue;
+                }
+                for (int next = 0; next < boardSize; next++) {
+                    if (Math.abs(next - x) > 1) {
+                        tasks.add(new CountTask(tasks.size(), new int[] { x, next }));
+                    }
+                }
+            }
+
+            var counts = new Counts(0, 0);
+            for (var task : invokeAll(tasks)) {
+                counts = counts.plus(task.join());
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package nq.solver;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.common.primitives.Ints;
+
+import nq.solver.utils.Checkpoint;
+
+/**
+ * Enumerates all the solutions of the board lazily, one at a time, on top of `BitmaskSearch`.
+ *
+ * The solutions can be pulled with an `Iterator`, a `Stream` or a `Spliterator`, or pushed to a
+ * `Flow.Subscriber` that controls the pace with `request(n)`. Each of them only keeps the O(N)
+ * state of the search, and nothing is computed before it's asked for.
+ *
+ * The spliterator splits the search tree by the queens in the first rows, so parallel streams
+ * spread the subtrees between the workers. Use `unordered()` on parallel streams when the order of
+ * the solutions doesn't matter, since `limit(k)` can then keep the first k solutions found by any
+ * worker.
+ *
+ * With a checkpoint, the spliterator records the subtrees whose solutions were all handed out, by
+ * their prefix, so a stream that's resumed skips them. The solutions of the subtrees that were in
+ * progress are found again.
+ */
+public class SolutionEnumerator {
+    int boardSize;
+    boolean enable3QueensInLineCheck = false;
+
+    /** Where the finished subtrees are saved, or null. */
+    Checkpoint checkpoint;
+    /** The keys of the finished subtrees, as given by `key()`. */
+    final Set<Long> finished = ConcurrentHashMap.newKeySet();
+
+    public SolutionEnumerator(int boardSize, boolean enable3QueensInLineCheck) {
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+    }
+
+    /**
+     * Saves the subtrees finished by the streams to the checkpoint now and then, and on
+     * `saveCheckpoint()`. If the checkpoint has subtrees to resume from, the next stream skips them.
+     * The iterator and the publisher don't use it.
+     */
+    public void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /** Saves the finished subtrees, once the stream is done or stopped. */
+    public void saveCheckpoint() {
+        if (this.checkpoint == null) {
+            return;
+        }
+        this.checkpoint.write(out -> {
+            // Sorted, so that the same subtrees always make the same file.
+            var sorted = new TreeSet<>(this.finished);
+            out.writeInt(sorted.size());
+            for (long key : sorted) {
+                out.writeLong(key);
+            }
+        });
+    }
+
+    /** Returns the number of subtrees that are known to be finished, either searched or resumed. */
+    public int getFinishedPrefixes() {
+        return this.finished.size();
+    }
+
+    private Void readFinished(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid number of subtrees " + size);
+        }
+        for (int i = 0; i < size; i++) {
+            this.finished.add(in.readLong());
+        }
+        return null;
+    }
+
+    /**
+     * Returns the key of the subtree below the first `length` rows of the prefix: its columns as the
+     * digits of a number in base N, after a leading 1 that keeps the prefixes of each length apart.
+     */
+    long key(int[] prefix, int length) {
+        long key = 1;
+        for (int i = 0; i < length; i++) {
+            key = key * this.boardSize + prefix[i];
+        }
+        return key;
+    }
+
+    /** Checks if the subtree, or a larger one that contains it, was finished. */
+    boolean isFinished(int[] prefix, int length) {
+        if (this.finished.isEmpty()) {
+            return false;
+        }
+        for (int i = 1; i <= length; i++) {
+            if (this.finished.contains(this.key(prefix, i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Records that all the solutions of the subtree were handed out, and saves them if it's due. */
+    void finish(long key) {
+        if (this.checkpoint == null) {
+            return;
+        }
+        this.finished.add(key);
+        if (this.checkpoint.isDue()) {
+            this.saveCheckpoint();
+        }
+    }
+
+    /** Returns an iterator over all the solutions, in lexicographic order. */
+    public Iterator<List<Integer>> iterator() {
+        var search = new BitmaskSearch(this.boardSize, this.enable3QueensInLineCheck);
+
+        return new Iterator<List<Integer>>() {
+            boolean ready;
+            boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (!this.ready && !this.done) {
+                    this.ready = search.next();
+                    this.done = !this.ready;
+                }
+                return this.ready;
+            }
+
+            @Override
+            public List<Integer> next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                this.ready = false;
+                return Ints.asList(search.positions().clone());
+            }
+        };
+    }
+
+    /** Returns a spliterator over all the solutions, which splits by the queens in the first rows. */
+    public Spliterator<List<Integer>> spliterator() {
+        // Split deep enough so that there are plenty of prefixes to balance between the workers.
+        int threads = ForkJoinPool.getCommonPoolParallelism();
+        int splitDepth = 0;
+        long prefixes = 1;
+        while (splitDepth < this.boardSize - 1 && prefixes < 32L * threads) {
+            prefixes *= this.boardSize - splitDepth;
+            splitDepth++;
+        }
+
+        this.finished.clear();
+        if (this.checkpoint != null) {
+            this.checkpoint.resume(this::readFinished);
+        }
+        return new PrefixSpliterator(new int[this.boardSize], 0, 0, this.boardSize, splitDepth);
+    }
+
+    /** Returns a stream over all the solutions. */
+    public Stream<List<Integer>> stream(boolean parallel) {
+        return StreamSupport.stream(this.spliterator(), parallel);
+    }
+
+    /**
+     * Returns a publisher that searches for the solutions on the given executor, only as fast as
+     * each subscriber requests them. Every subscriber gets its own search over all the solutions.
+     */
+    public Flow.Publisher<List<Integer>> publisher(Executor executor) {
+        return subscriber -> {
+            var subscription = new SolutionSubscription(subscriber, executor);
+            subscriber.onSubscribe(subscription);
+        };
+    }
+
+    /**
+     * Splits the solutions that extend a fixed prefix, by the column of the queen in the next row.
+     * The columns in [next, end) are still pending, and the column before `next` is being searched
+     * by `search`, if `current` is the key of its subtree.
+     */
+    class PrefixSpliterator implements Spliterator<List<Integer>> {
+        final int[] prefix;
+        int length;
+        int next;
+        int end;
+        final int splitDepth;
+
+        BitmaskSearch search;
+        /** The key of the subtree being searched, or -1. */
+        long current = -1;
+
+        PrefixSpliterator(int[] prefix, int length, int next, int end, int splitDepth) {
+            this.prefix = prefix;
+            this.length = length;
+            this.next = next;
+            this.end = end;
+            this.splitDepth = splitDepth;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<Integer>> action) {
+            while (true) {
+                if (this.current >= 0) {
+                    if (this.search.next()) {
+                        action.accept(Ints.asList(this.search.positions().clone()));
+                        return true;
+                    }
+                    finish(this.current);
+                    this.current = -1;
+                }
+                if (this.next >= this.end) {
+                    return false;
+                }
+
+                // Start searching the subtree of the next column, unless a resumed stream finished it.
+                this.prefix[this.length] = this.next++;
+                if (isFinished(this.prefix, this.length + 1)) {
+                    continue;
+                }
+                if (this.search == null) {
+                    this.search = new BitmaskSearch(boardSize, enable3QueensInLineCheck);
+                }
+                this.search.reset(this.prefix, this.length + 1);
+                this.current = key(this.prefix, this.length + 1);
+            }
+        }
+
+        @Override
+        public Spliterator<List<Integer>> trySplit() {
+            // Once all the columns of this row are pending alone, go one row deeper.
+            if (this.current < 0 && this.end - this.next == 1 && this.length + 1 < this.splitDepth) {
+                this.prefix[this.length++] = this.next;
+                this.next = 0;
+                this.end = boardSize;
+            }
+
+            int pending = this.end - this.next;
+            if (pending < 2) {
+                return null;
+            }
+            // Hand over the first half with the subtree in progress, to keep the encounter order.
+            int middle = this.next + pending / 2;
+            var head = new PrefixSpliterator(Arrays.copyOf(this.prefix, boardSize), this.length, this.next, middle,
+                    this.splitDepth);
+            head.search = this.search;
+            head.current = this.current;
+            this.search = null;
+            this.current = -1;
+            this.next = middle;
+            return head;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+        }
+    }
+
+    /** Runs the search on the executor while there's demand, and stops it once cancelled. */
+    class SolutionSubscription implements Flow.Subscription, Runnable {
+        final Flow.Subscriber<? super List<Integer>> subscriber;
+        final Executor executor;
+        final BitmaskSearch search;
+
+        final AtomicLong demand = new AtomicLong();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        boolean done;
+
+        SolutionSubscription(Flow.Subscriber<? super List<Integer>> subscriber, Executor executor) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+            this.search = new BitmaskSearch(boardSize, enable3QueensInLineCheck);
+            this.search.cancelled = this.cancelled;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                this.cancel();
+                this.subscriber.onError(new IllegalArgumentException("Requested a non-positive number: " + n));
+                return;
+            }
+
+            // Only the request that raises the demand from 0 starts the search loop.
+            long previous = this.demand.getAndAccumulate(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+            if (previous == 0) {
+                this.executor.execute(this);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled.set(true);
+        }
+
+        @Override
+        public void run() {
+            long pending = this.demand.get();
+            while (true) {
+                for (long i = 0; i < pending; i++) {
+                    if (this.done || this.cancelled.get()) {
+                        return;
+                    }
+                    if (!this.search.next()) {
+                        this.done = true;
+                        if (!this.cancelled.get()) {
+                            this.subscriber.onComplete();
+                        }
+                        return;
+                    }
+                    this.subscriber.onNext(Ints.asList(this.search.positions().clone()));
+                }
+
+                // Stop if nothing else was requested meanwhile, otherwise keep going.
+                pending = this.demand.addAndGet(-pending);
+                if (pending == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package nq.solver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import nq.solver.utils.Utils;
+
+/**
+ * Stores solutions on disk, so that they survive across runs. Used by `SolutionCache`.
+ *
+ * The store is a directory with two files:
+ *
+ *  - `index.bin`, a memory mapped hash table with linear probing. Each 32 byte slot holds the board
+ *    size (0 if the slot is empty), the flags (line check, has seed), the seed and the offset of
+ *    the solution in the data file.
+ *  - `data.bin`, where the solutions are appended as little endian ints, one per row.
+ *
+ * A solution is written to the data file before its slot is filled in, and the board size is the
+ * last field written, so a crash never leaves a slot that points to a missing solution.
+ */
+class SolutionStore implements Closeable {
+    static final int MAGIC = 0x58444951;
+    static final int HEADER_BYTES = 16;
+    static final int SLOT_BYTES = 32;
+    /** Number of slots in the index. The store stops accepting solutions once it's 3/4 full. */
+    static final int SLOTS = 1 << 16;
+
+    static final int FLAG_CHECK = 1;
+    static final int FLAG_SEED = 2;
+
+    final FileChannel indexChannel;
+    final FileChannel dataChannel;
+    final MappedByteBuffer index;
+    int used;
+
+    SolutionStore(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.indexChannel = FileChannel.open(directory.resolve("index.bin"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.dataChannel = FileChannel.open(directory.resolve("data.bin"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean created = this.indexChannel.size() == 0;
+            this.index = this.indexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + (long) SLOTS * SLOT_BYTES);
+            this.index.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (created) {
+                this.index.putInt(0, MAGIC);
+                this.index.putInt(4, SLOTS);
+            } else if (this.index.getInt(0) != MAGIC || this.index.getInt(4) != SLOTS) {
+                throw new IOException("Not a solution store: " + directory);
+            }
+            for (int slot = 0; slot < SLOTS; slot++) {
+                if (this.index.getInt(offset(slot)) != 0) {
+                    this.used++;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            this.close();
+            throw e;
+        }
+    }
+
+    /** Returns the stored solution, or null if there's none. */
+    synchronized int[] get(int boardSize, boolean check, Long seed) throws IOException {
+        int slot = this.find(boardSize, check, seed);
+        if (slot < 0 || this.index.getInt(offset(slot)) == 0) {
+            return null;
+        }
+
+        var buffer = ByteBuffer.allocate(boardSize * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long position = this.index.getLong(offset(slot) + 16);
+        while (buffer.hasRemaining()) {
+            if (this.dataChannel.read(buffer, position + buffer.position()) < 0) {
+                return null;
+            }
+        }
+        buffer.flip();
+
+        var solution = new int[boardSize];
+        buffer.asIntBuffer().get(solution);
+        return solution;
+    }
+
+    /** Stores the solution, replacing any previous one. Does nothing if the store is full. */
+    synchronized void put(int boardSize, boolean check, Long seed, int[] solution) throws IOException {
+        int slot = this.find(boardSize, check, seed);
+        if (slot < 0) {
+            return;
+        }
+        int offset = offset(slot);
+        boolean empty = this.index.getInt(offset) == 0;
+        if (empty && this.used >= SLOTS / 4 * 3) {
+            return;
+        }
+
+        var buffer = ByteBuffer.allocate(solution.length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asIntBuffer().put(solution);
+        long position = this.dataChannel.size();
+        while (buffer.hasRemaining()) {
+            this.dataChannel.write(buffer, position + buffer.position());
+        }
+
+        this.index.putInt(offset + 4, flags(check, seed));
+        this.index.putLong(offset + 8, seed != null ? seed : 0);
+        this.index.putLong(offset + 16, position);
+        this.index.putInt(offset, boardSize);
+        if (empty) {
+            this.used++;
+        }
+    }
+
+    /**
+     * Finds the slot of the key, or the empty slot where it would be inserted. Returns -1 if the
+     * table is full and doesn't have the key.
+     */
+    private int find(int boardSize, boolean check, Long seed) {
+        int flags = flags(check, seed);
+        long seedValue = seed != null ? seed : 0;
+        long hash = Utils.mix(((long) boardSize << 2 | flags) * 0x9e3779b97f4a7c15L + seedValue);
+
+        int slot = (int) hash & (SLOTS - 1);
+        for (int probe = 0; probe < SLOTS; probe++) {
+            int offset = offset(slot);
+            int stored = this.index.getInt(offset);
+            if (stored == 0 || (stored == boardSize && this.index.getInt(offset + 4) == flags
+                    && this.index.getLong(offset + 8) == seedValue)) {
+                return slot;
+            }
+            slot = (slot + 1) & (SLOTS - 1);
+        }
+        return -1;
+    }
+
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private static int flags(boolean check, Long seed) {
+        return (check ? FLAG_CHECK : 0) | (seed != null ? FLAG_SEED : 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.indexChannel.close();
+        } finally {
+            this.dataChannel.close();
+        }
+    }
+}
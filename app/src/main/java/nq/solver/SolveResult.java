@@ -0,0 +1,76 @@
+package nq.solver;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import nq.solver.utils.CollisionsTracker;
+
+/**
+ * The outcome of a solve with a deadline: a solution, the best board found before the deadline, or
+ * nothing at all.
+ */
+public class SolveResult {
+    /** The solution or the best board, or null if there's neither. */
+    public final int[] board;
+    /**
+     * The number of diagonal and line collisions left in the board, as counted by
+     * `CollisionsTracker`. It's 0 for solutions, and -1 if there's no board.
+     */
+    public final int conflicts;
+    /** Whether the solve ran out of time. Otherwise, a null board means that there's no solution. */
+    public final boolean timedOut;
+
+    public SolveResult(int[] board, int conflicts, boolean timedOut) {
+        this.board = board;
+        this.conflicts = conflicts;
+        this.timedOut = timedOut;
+    }
+
+    /** Creates the result of a solve that ran to the end, with its solution or null if there's none. */
+    public static SolveResult of(int[] solution) {
+        return new SolveResult(solution, solution != null ? 0 : -1, false);
+    }
+
+    /** Creates the result of a solve that ran out of time, with the best board found, if any. */
+    static SolveResult timedOut(int[] best, boolean enable3QueensInLineCheck) {
+        if (best == null) {
+            return new SolveResult(null, -1, true);
+        }
+        return new SolveResult(best, countConflicts(best, enable3QueensInLineCheck), true);
+    }
+
+    /** Counts the diagonal and line collisions in a board that has a queen per column. */
+    public static int countConflicts(int[] board, boolean enable3QueensInLineCheck) {
+        if (!enable3QueensInLineCheck) {
+            // A diagonal with k > 0 queens counts as k - 1 collisions, so each direction has N minus
+            // its number of used diagonals. The bitsets are 32 times smaller than the counters of a
+            // tracker, which matters for the huge boards of the off-heap search.
+            int n = board.length;
+            var positive = new BitSet(2 * n - 1);
+            var negative = new BitSet(2 * n - 1);
+            for (int y = 0; y < n; y++) {
+                positive.set(board[y] - y + n - 1);
+                negative.set(board[y] + y);
+            }
+            return 2 * n - positive.cardinality() - negative.cardinality();
+        }
+        var tracker = new CollisionsTracker(board.length, enable3QueensInLineCheck, board);
+        return tracker.countAllDiagAndLineCollisions(board);
+    }
+
+    /** Returns true if the board is a solution, even if it's the best board of a solve that timed out. */
+    public boolean isSolved() {
+        return this.board != null && this.conflicts == 0;
+    }
+
+    @Override
+    public String toString() {
+        if (this.board == null) {
+            return this.timedOut ? "timeout=true solution=[]" : "solution=[]";
+        }
+        if (this.isSolved()) {
+            return "solution=" + Arrays.toString(this.board);
+        }
+        return String.format("timeout=true conflicts=%d best=%s", this.conflicts, Arrays.toString(this.board));
+    }
+}
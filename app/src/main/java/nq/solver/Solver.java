@@ -2,6 +2,9 @@ package nq.solver;
 
 import java.util.List;
 
+import nq.solver.utils.Checkpoint;
+import nq.solver.utils.SolverMetrics;
+
 /** A generic interface for an n-queens solver. */
 public interface Solver {
 
@@ -21,4 +24,49 @@ public interface Solver {
      * @return A list of queen positions for each of the row.
      */
     public List<Integer> solve();
+
+    /**
+     * Writes a solution into `out`, which must have N entries, and returns it. Returns null if
+     * there's no solution.
+     *
+     * This is the primitive version of `solve()`, which avoids boxing every position. The solvers
+     * in this package work on arrays natively, and their `solve()` is just a view over the array.
+     * By default, the positions are copied from `solve()`.
+     */
+    public default int[] solveInto(int[] out) {
+        var solution = this.solve();
+        if (solution.isEmpty()) {
+            return null;
+        }
+        for (int i = 0; i < solution.size(); i++) {
+            out[i] = solution.get(i);
+        }
+        return out;
+    }
+
+    /**
+     * Copies the board with the fewest conflicts found so far by the running (or last) solve into
+     * `out`, and returns it. It may be called from any thread, e.g. to salvage a solve that ran out
+     * of time. Returns null if the solver has no such board, which is the case by default, since
+     * the exhaustive solvers only know complete solutions.
+     */
+    public default int[] bestSoFar(int[] out) {
+        return null;
+    }
+
+    /**
+     * Sets the metrics that the solver fills in while solving. By default, solvers don't collect
+     * any metrics.
+     */
+    public default void setMetrics(SolverMetrics metrics) {
+    }
+
+    /**
+     * Saves the state of the search to the checkpoint now and then, and when the solve stops. If the
+     * checkpoint has a state to resume from, the next solve continues from it instead of starting
+     * over. Returns false if the solver can't be checkpointed, which is the case by default.
+     */
+    public default boolean setCheckpoint(Checkpoint checkpoint) {
+        return false;
+    }
 }
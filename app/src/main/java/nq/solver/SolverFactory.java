@@ -0,0 +1,107 @@
+package nq.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/** Creates the solvers by their algorithm name, as used by the command line. */
+public class SolverFactory {
+    /** The names of all the supported algorithms. */
+    public static final List<String> ALGORITHMS = List.of("backtracking", "bitmask", "parallel", "gradient",
+            "minconflicts", "annealing", "propagation", "sat", "constructive", "portfolio");
+
+    /** The algorithms whose solvers run on threads of their own, on top of the calling thread. */
+    public static final List<String> THREADED_ALGORITHMS = List.of("parallel", "annealing", "portfolio");
+
+    /** The solvers raced by the portfolio algorithm, unless configured otherwise. */
+    public static final List<String> DEFAULT_PORTFOLIO = List.of("bitmask", "minconflicts", "minconflicts",
+            "gradient");
+
+    /**
+     * Returns the algorithm used when none is given: the construction for the traditional
+     * problem, which doesn't need to search, or else the backtracking search.
+     */
+    public static String defaultAlgorithm(boolean enable3QueensInLineCheck) {
+        return enable3QueensInLineCheck ? "backtracking" : "constructive";
+    }
+
+    /**
+     * Returns the smallest board size that the solvers accept. Smaller boards either have no
+     * solutions, or are too small to be interesting, and make the local searches loop forever.
+     */
+    public static int minBoardSize(boolean enable3QueensInLineCheck) {
+        return enable3QueensInLineCheck ? 8 : 4;
+    }
+
+    /**
+     * Creates a solver for the given algorithm.
+     *
+     * @param threads the number of threads, only used by the parallel algorithms
+     * @throws IllegalArgumentException if the algorithm is not supported
+     */
+    public static Solver create(String algorithm, int boardSize, boolean enable3QueensInLineCheck, int threads) {
+        return create(algorithm, boardSize, enable3QueensInLineCheck, threads, new SplittableRandom());
+    }
+
+    /**
+     * Creates a solver for the given algorithm, where the randomized algorithms draw from the given
+     * random stream. The portfolio splits an independent stream for each of its members.
+     *
+     * @param threads the number of threads, only used by the parallel algorithms. The annealing runs
+     *                a replica per thread.
+     * @throws IllegalArgumentException if the algorithm is not supported
+     */
+    public static Solver create(String algorithm, int boardSize, boolean enable3QueensInLineCheck, int threads,
+            SplittableRandom random) {
+        switch (algorithm) {
+            case "backtracking":
+                return new BacktrackingSolver(boardSize, enable3QueensInLineCheck);
+            case "bitmask":
+                return new BitmaskBacktrackingSolver(boardSize, enable3QueensInLineCheck);
+            case "parallel":
+                return new ParallelBacktrackingSolver(boardSize, enable3QueensInLineCheck, threads);
+            case "gradient":
+                return new GradientHeuristicSolver(boardSize, enable3QueensInLineCheck, random);
+            case "minconflicts":
+                return new MinConflictsSolver(boardSize, enable3QueensInLineCheck, random);
+            case "annealing":
+                return new AnnealingSolver(boardSize, enable3QueensInLineCheck, threads, random);
+            case "propagation":
+                return new ConstraintPropagationSolver(boardSize, enable3QueensInLineCheck);
+            case "sat":
+                return new SatSolver(boardSize, enable3QueensInLineCheck);
+            case "constructive":
+                return new ConstructiveSolver(boardSize, enable3QueensInLineCheck);
+            case "portfolio":
+                return createPortfolio(DEFAULT_PORTFOLIO, boardSize, enable3QueensInLineCheck, threads, random);
+            default:
+                throw new IllegalArgumentException(String.format("Unknown algorithm '%s'. Expected one of %s.",
+                        algorithm, String.join("|", ALGORITHMS)));
+        }
+    }
+
+    /**
+     * Creates a portfolio that races the given algorithms. An algorithm may be repeated to run
+     * several independent copies of it, which is useful for the randomized ones.
+     *
+     * @throws IllegalArgumentException if any of the algorithms is not supported
+     */
+    public static PortfolioSolver createPortfolio(List<String> algorithms, int boardSize,
+            boolean enable3QueensInLineCheck, int threads) {
+        return createPortfolio(algorithms, boardSize, enable3QueensInLineCheck, threads, new SplittableRandom());
+    }
+
+    /** Creates a portfolio where each member draws from a stream split off the given one. */
+    public static PortfolioSolver createPortfolio(List<String> algorithms, int boardSize,
+            boolean enable3QueensInLineCheck, int threads, SplittableRandom random) {
+        var solvers = new ArrayList<Solver>();
+        for (var algorithm : algorithms) {
+            if (algorithm.equals("portfolio")) {
+                throw new IllegalArgumentException("A portfolio can't contain another portfolio.");
+            }
+            // Each member gets a single thread, since the portfolio already runs them in parallel.
+            solvers.add(create(algorithm, boardSize, enable3QueensInLineCheck, 1, random.split()));
+        }
+        return new PortfolioSolver(boardSize, enable3QueensInLineCheck, solvers, threads);
+    }
+}
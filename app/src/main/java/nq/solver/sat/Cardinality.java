@@ -0,0 +1,87 @@
+package nq.solver.sat;
+
+import java.util.Arrays;
+
+/**
+ * Encodes cardinality constraints over literals as clauses.
+ *
+ * Small constraints are encoded directly, by forbidding every set of k+1 true literals. Bigger
+ * ones use the sequential counter from Sinz, "Towards an Optimal CNF Encoding of Boolean
+ * Cardinality Constraints" (2005), which takes O(n*k) extra variables and clauses.
+ */
+public class Cardinality {
+    /** Constraints over up to this many literals forbid each set of k+1 literals directly. */
+    static final int DIRECT_LIMIT = 6;
+
+    private Cardinality() {
+    }
+
+    /** Adds the clauses for exactly one of the literals being true. */
+    public static void exactlyOne(CnfFormula formula, int[] literals) {
+        formula.addClause(literals);
+        atMostK(formula, literals, 1);
+    }
+
+    /** Adds the clauses for at most one of the literals being true. */
+    public static void atMostOne(CnfFormula formula, int[] literals) {
+        atMostK(formula, literals, 1);
+    }
+
+    /** Adds the clauses for at most k of the literals being true. */
+    public static void atMostK(CnfFormula formula, int[] literals, int k) {
+        int n = literals.length;
+        if (n <= k) {
+            return;
+        }
+        if (k == 0) {
+            for (int literal : literals) {
+                formula.addClause(-literal);
+            }
+        } else if (n <= DIRECT_LIMIT) {
+            forbidSubsets(formula, literals, new int[k + 1], 0, 0);
+        } else {
+            sequentialCounter(formula, literals, k);
+        }
+    }
+
+    /** Forbids every subset of k+1 literals, where `subset` has room for k+1 literals. */
+    private static void forbidSubsets(CnfFormula formula, int[] literals, int[] subset, int size, int from) {
+        if (size == subset.length) {
+            formula.addClause(Arrays.stream(subset).map(literal -> -literal).toArray());
+            return;
+        }
+        for (int i = from; i <= literals.length - (subset.length - size); i++) {
+            subset[size] = literals[i];
+            forbidSubsets(formula, literals, subset, size + 1, i + 1);
+        }
+    }
+
+    /**
+     * Adds the sequential counter, where s[i][j] is true if at least j+1 of the first i+1 literals
+     * are true.
+     */
+    private static void sequentialCounter(CnfFormula formula, int[] x, int k) {
+        int n = x.length;
+        var s = new int[n - 1][k];
+        for (int i = 0; i < n - 1; i++) {
+            for (int j = 0; j < k; j++) {
+                s[i][j] = formula.newVariable();
+            }
+        }
+
+        formula.addClause(-x[0], s[0][0]);
+        for (int j = 1; j < k; j++) {
+            formula.addClause(-s[0][j]);
+        }
+        for (int i = 1; i < n - 1; i++) {
+            formula.addClause(-x[i], s[i][0]);
+            formula.addClause(-s[i - 1][0], s[i][0]);
+            for (int j = 1; j < k; j++) {
+                formula.addClause(-x[i], -s[i - 1][j - 1], s[i][j]);
+                formula.addClause(-s[i - 1][j], s[i][j]);
+            }
+            formula.addClause(-x[i], -s[i - 1][k - 1]);
+        }
+        formula.addClause(-x[n - 1], -s[n - 2][k - 1]);
+    }
+}
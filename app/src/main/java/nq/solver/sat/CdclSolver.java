@@ -0,0 +1,561 @@
+package nq.solver.sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import nq.solver.utils.SolverMetrics;
+import nq.solver.utils.Utils;
+
+/**
+ * A small conflict-driven clause learning (CDCL) SAT solver, in the style of MiniSat.
+ *
+ * It propagates with 2 watched literals per clause, learns the first UIP clause of every conflict
+ * (minimized against the reasons of its literals), and picks the unassigned variable with the
+ * highest VSIDS activity, with its last assigned value. The search restarts on the Luby sequence,
+ * and the learnt clauses with the worst LBD are dropped as they pile up.
+ *
+ * Internally, the literal of variable v (numbered from 1) is `2 * (v - 1)` if it's positive, or
+ * `2 * (v - 1) + 1` if it's negative.
+ */
+public class CdclSolver {
+    /** Number of conflicts in a unit of the Luby restart sequence. */
+    static final int RESTART_UNIT = 100;
+    static final double VARIABLE_DECAY = 0.95;
+
+    static final byte UNASSIGNED = -1;
+
+    final int variables;
+    SolverMetrics metrics = SolverMetrics.DISABLED;
+
+    /** Whether the formula was found to be unsatisfiable while adding the clauses. */
+    boolean unsatisfiable;
+
+    final ArrayList<Clause> learnts = new ArrayList<>();
+    int maxLearnts;
+
+    // The clauses that watch each literal, i.e. that are visited when it becomes false.
+    Clause[][] watches;
+    int[] watchCounts;
+
+    // The assignment, per variable index (from 0).
+    final byte[] values;
+    final boolean[] phases;
+    final int[] levels;
+    final Clause[] reasons;
+
+    // The assigned literals in order, and where each decision level starts.
+    final int[] trail;
+    int trailSize;
+    int propagated;
+    int[] levelStarts;
+    int level;
+
+    // The VSIDS activities, and a max heap of the variables by activity.
+    final double[] activities;
+    double activityIncrement = 1;
+    final int[] heap;
+    final int[] heapIndex;
+    int heapSize;
+
+    // Scratch for the conflict analysis.
+    final boolean[] seen;
+    final int[] levelStamps;
+    int levelStamp;
+
+    static class Clause {
+        final int[] literals;
+        final boolean learnt;
+        int lbd;
+        boolean deleted;
+
+        Clause(int[] literals, boolean learnt) {
+            this.literals = literals;
+            this.learnt = learnt;
+        }
+    }
+
+    /**
+     * Loads the clauses of the formula.
+     *
+     * @throws java.util.concurrent.CancellationException if the thread is interrupted
+     */
+    public CdclSolver(CnfFormula formula) {
+        int n = formula.getVariableCount();
+        this.variables = n;
+
+        this.watches = new Clause[2 * n][];
+        this.watchCounts = new int[2 * n];
+        this.values = new byte[n];
+        Arrays.fill(this.values, UNASSIGNED);
+        this.phases = new boolean[n];
+        this.levels = new int[n];
+        this.reasons = new Clause[n];
+        this.trail = new int[n];
+        this.levelStarts = new int[16];
+
+        this.activities = new double[n];
+        this.heap = new int[n];
+        this.heapIndex = new int[n];
+        for (int v = 0; v < n; v++) {
+            this.heap[v] = v;
+            this.heapIndex[v] = v;
+        }
+        this.heapSize = n;
+
+        this.seen = new boolean[n];
+        this.levelStamps = new int[n + 1];
+
+        // Big formulas take a while to load, so their solves can be cancelled already.
+        for (int i = 0; i < formula.getClauseCount() && !this.unsatisfiable; i++) {
+            if ((i & 0xffff) == 0) {
+                Utils.checkInterrupted();
+            }
+            this.addClause(formula.getClause(i));
+        }
+        this.maxLearnts = Math.max(formula.getClauseCount() / 3, 10000);
+    }
+
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Searches for an assignment that satisfies all the clauses. Returns false if there's none.
+     *
+     * @throws java.util.concurrent.CancellationException if the thread is interrupted
+     */
+    public boolean solve() {
+        if (this.unsatisfiable || this.propagate() != null) {
+            this.unsatisfiable = true;
+            return false;
+        }
+
+        for (int restart = 0;; restart++) {
+            // The first searches are too short to reach the checks that count their conflicts.
+            Utils.checkInterrupted();
+            var result = this.search(luby(restart) * RESTART_UNIT);
+            if (result != null) {
+                return result;
+            }
+            this.metrics.restart();
+        }
+    }
+
+    /**
+     * Returns the value of each variable in the last solution, indexed from 1. Only valid after
+     * `solve()` returned true.
+     */
+    public boolean[] getModel() {
+        var model = new boolean[this.variables + 1];
+        for (int v = 0; v < this.variables; v++) {
+            model[v + 1] = this.values[v] == 1;
+        }
+        return model;
+    }
+
+    /**
+     * Runs the search until the given number of conflicts. Returns whether the formula is
+     * satisfiable, or null to restart.
+     */
+    Boolean search(long conflictBudget) {
+        long conflicts = 0;
+        while (true) {
+            var conflict = this.propagate();
+            if (conflict != null) {
+                this.metrics.backtrack();
+                if (this.level == 0) {
+                    this.unsatisfiable = true;
+                    return false;
+                }
+                if ((++conflicts & 0xff) == 0) {
+                    Utils.checkInterrupted();
+                }
+
+                var learnt = this.analyze(conflict);
+                this.cancelUntil(this.backjumpLevel(learnt));
+                if (learnt.length == 1) {
+                    this.assign(learnt[0], null);
+                } else {
+                    var clause = new Clause(learnt, true);
+                    clause.lbd = this.computeLbd(learnt);
+                    this.watch(clause);
+                    this.learnts.add(clause);
+                    this.assign(learnt[0], clause);
+                }
+                this.activityIncrement /= VARIABLE_DECAY;
+                continue;
+            }
+
+            if (conflicts >= conflictBudget) {
+                this.cancelUntil(0);
+                return null;
+            }
+            if (this.learnts.size() - this.trailSize >= this.maxLearnts) {
+                this.reduceLearnts();
+            }
+
+            int variable = this.pickBranchVariable();
+            if (variable < 0) {
+                return true;
+            }
+            this.metrics.node();
+            this.newLevel();
+            this.assign(2 * variable + (this.phases[variable] ? 0 : 1), null);
+        }
+    }
+
+    /** Adds a clause of the formula, in DIMACS literals, simplifying it against level 0. */
+    private void addClause(int[] clause) {
+        var literals = new int[clause.length];
+        int size = 0;
+        for (int dimacs : clause) {
+            int literal = dimacs > 0 ? 2 * (dimacs - 1) : 2 * (-dimacs - 1) + 1;
+            int value = this.value(literal);
+            if (value == 1) {
+                return;
+            }
+            if (value == 0) {
+                continue;
+            }
+            boolean duplicate = false;
+            for (int i = 0; i < size; i++) {
+                if (literals[i] == (literal ^ 1)) {
+                    return;
+                }
+                duplicate |= literals[i] == literal;
+            }
+            if (!duplicate) {
+                literals[size++] = literal;
+            }
+        }
+
+        if (size == 0) {
+            this.unsatisfiable = true;
+        } else if (size == 1) {
+            this.assign(literals[0], null);
+            this.unsatisfiable = this.propagate() != null;
+        } else {
+            this.watch(new Clause(Arrays.copyOf(literals, size), false));
+        }
+    }
+
+    /** Returns 1 if the literal is true, 0 if it's false, or -1 if it's unassigned. */
+    private int value(int literal) {
+        byte value = this.values[literal >> 1];
+        return value == UNASSIGNED ? -1 : value ^ (literal & 1);
+    }
+
+    private void assign(int literal, Clause reason) {
+        int variable = literal >> 1;
+        this.values[variable] = (byte) ((literal & 1) ^ 1);
+        this.levels[variable] = this.level;
+        this.reasons[variable] = reason;
+        this.trail[this.trailSize++] = literal;
+    }
+
+    private void newLevel() {
+        if (this.level + 1 == this.levelStarts.length) {
+            this.levelStarts = Arrays.copyOf(this.levelStarts, 2 * this.levelStarts.length);
+        }
+        this.levelStarts[++this.level] = this.trailSize;
+    }
+
+    /** Undoes the assignments above the given level, saving their values as the next phases. */
+    private void cancelUntil(int level) {
+        if (this.level <= level) {
+            return;
+        }
+        int start = this.levelStarts[level + 1];
+        for (int i = this.trailSize - 1; i >= start; i--) {
+            int variable = this.trail[i] >> 1;
+            this.phases[variable] = this.values[variable] == 1;
+            this.values[variable] = UNASSIGNED;
+            this.reasons[variable] = null;
+            if (this.heapIndex[variable] < 0) {
+                this.heapInsert(variable);
+            }
+        }
+        this.trailSize = start;
+        this.propagated = start;
+        this.level = level;
+    }
+
+    private void watch(Clause clause) {
+        this.addWatch(clause.literals[0], clause);
+        this.addWatch(clause.literals[1], clause);
+    }
+
+    private void addWatch(int literal, Clause clause) {
+        var list = this.watches[literal];
+        int count = this.watchCounts[literal];
+        if (list == null) {
+            list = this.watches[literal] = new Clause[4];
+        } else if (count == list.length) {
+            list = this.watches[literal] = Arrays.copyOf(list, 2 * count);
+        }
+        list[count] = clause;
+        this.watchCounts[literal] = count + 1;
+    }
+
+    /** Propagates the unit clauses, and returns the conflicting clause if any. */
+    private Clause propagate() {
+        while (this.propagated < this.trailSize) {
+            int falseLiteral = this.trail[this.propagated++] ^ 1;
+            var list = this.watches[falseLiteral];
+            int count = this.watchCounts[falseLiteral];
+            int kept = 0;
+
+            for (int i = 0; i < count; i++) {
+                var clause = list[i];
+                if (clause.deleted) {
+                    continue;
+                }
+                var literals = clause.literals;
+                // Keep the false literal in the second slot.
+                if (literals[0] == falseLiteral) {
+                    literals[0] = literals[1];
+                    literals[1] = falseLiteral;
+                }
+                int first = literals[0];
+                if (this.value(first) == 1) {
+                    list[kept++] = clause;
+                    continue;
+                }
+
+                // Look for another literal to watch instead.
+                boolean moved = false;
+                for (int k = 2; k < literals.length; k++) {
+                    if (this.value(literals[k]) != 0) {
+                        literals[1] = literals[k];
+                        literals[k] = falseLiteral;
+                        this.addWatch(literals[1], clause);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) {
+                    continue;
+                }
+
+                list[kept++] = clause;
+                if (this.value(first) == 0) {
+                    // Conflict: keep the rest of the watches, and stop propagating.
+                    System.arraycopy(list, i + 1, list, kept, count - i - 1);
+                    this.watchCounts[falseLiteral] = kept + count - i - 1;
+                    this.propagated = this.trailSize;
+                    return clause;
+                }
+                this.assign(first, clause);
+            }
+            this.watchCounts[falseLiteral] = kept;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the first UIP clause learnt from the conflict, with the asserting literal first and
+     * a literal of the backjump level second.
+     */
+    private int[] analyze(Clause conflict) {
+        var learnt = new ArrayList<Integer>();
+        learnt.add(-1);
+
+        int pending = 0;
+        int literal = -1;
+        int index = this.trailSize - 1;
+        var clause = conflict;
+        do {
+            var literals = clause.literals;
+            for (int k = literal < 0 ? 0 : 1; k < literals.length; k++) {
+                int variable = literals[k] >> 1;
+                if (this.seen[variable] || this.levels[variable] == 0) {
+                    continue;
+                }
+                this.seen[variable] = true;
+                this.bumpActivity(variable);
+                if (this.levels[variable] == this.level) {
+                    pending++;
+                } else {
+                    learnt.add(literals[k]);
+                }
+            }
+
+            // Walk back the trail to the next literal of this level in the conflict.
+            while (!this.seen[this.trail[index] >> 1]) {
+                index--;
+            }
+            literal = this.trail[index--];
+            clause = this.reasons[literal >> 1];
+            this.seen[literal >> 1] = false;
+            pending--;
+        } while (pending > 0);
+        learnt.set(0, literal ^ 1);
+
+        // Drop the literals that are implied by the others.
+        var result = new int[learnt.size()];
+        int size = 0;
+        for (int i = 0; i < learnt.size(); i++) {
+            if (i == 0 || !this.isRedundant(learnt.get(i) >> 1)) {
+                result[size++] = learnt.get(i);
+            }
+        }
+        for (int i = 1; i < learnt.size(); i++) {
+            this.seen[learnt.get(i) >> 1] = false;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /** Checks if all the other literals of the reason of the variable are in the learnt clause. */
+    private boolean isRedundant(int variable) {
+        var reason = this.reasons[variable];
+        if (reason == null) {
+            return false;
+        }
+        for (int k = 1; k < reason.literals.length; k++) {
+            int other = reason.literals[k] >> 1;
+            if (!this.seen[other] && this.levels[other] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Moves the literal with the highest level after the first one, and returns that level. */
+    private int backjumpLevel(int[] learnt) {
+        if (learnt.length == 1) {
+            return 0;
+        }
+        int best = 1;
+        for (int i = 2; i < learnt.length; i++) {
+            if (this.levels[learnt[i] >> 1] > this.levels[learnt[best] >> 1]) {
+                best = i;
+            }
+        }
+        int tmp = learnt[1];
+        learnt[1] = learnt[best];
+        learnt[best] = tmp;
+        return this.levels[learnt[1] >> 1];
+    }
+
+    /** Returns the number of distinct decision levels in the clause. */
+    private int computeLbd(int[] literals) {
+        this.levelStamp++;
+        int lbd = 0;
+        for (int literal : literals) {
+            int level = this.levels[literal >> 1];
+            if (this.levelStamps[level] != this.levelStamp) {
+                this.levelStamps[level] = this.levelStamp;
+                lbd++;
+            }
+        }
+        return lbd;
+    }
+
+    /** Drops half of the learnt clauses, keeping the ones with the lowest LBD and the reasons. */
+    private void reduceLearnts() {
+        this.learnts.sort(Comparator.comparingInt(clause -> clause.lbd));
+        int kept = 0;
+        for (int i = 0; i < this.learnts.size(); i++) {
+            var clause = this.learnts.get(i);
+            int variable = clause.literals[0] >> 1;
+            boolean locked = this.reasons[variable] == clause && this.value(clause.literals[0]) == 1;
+            if (i < this.learnts.size() / 2 || locked || clause.lbd <= 2) {
+                this.learnts.set(kept++, clause);
+            } else {
+                clause.deleted = true;
+            }
+        }
+        this.learnts.subList(kept, this.learnts.size()).clear();
+        this.maxLearnts += this.maxLearnts / 10;
+    }
+
+    private int pickBranchVariable() {
+        while (this.heapSize > 0) {
+            int variable = this.heapRemoveMax();
+            if (this.values[variable] == UNASSIGNED) {
+                return variable;
+            }
+        }
+        return -1;
+    }
+
+    private void bumpActivity(int variable) {
+        this.activities[variable] += this.activityIncrement;
+        if (this.activities[variable] > 1e100) {
+            for (int v = 0; v < this.variables; v++) {
+                this.activities[v] *= 1e-100;
+            }
+            this.activityIncrement *= 1e-100;
+        }
+        if (this.heapIndex[variable] >= 0) {
+            this.heapUp(this.heapIndex[variable]);
+        }
+    }
+
+    private void heapInsert(int variable) {
+        this.heap[this.heapSize] = variable;
+        this.heapIndex[variable] = this.heapSize;
+        this.heapUp(this.heapSize++);
+    }
+
+    private int heapRemoveMax() {
+        int max = this.heap[0];
+        this.heapIndex[max] = -1;
+        if (--this.heapSize > 0) {
+            this.heap[0] = this.heap[this.heapSize];
+            this.heapIndex[this.heap[0]] = 0;
+            this.heapDown(0);
+        }
+        return max;
+    }
+
+    private void heapUp(int i) {
+        int variable = this.heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (this.activities[this.heap[parent]] >= this.activities[variable]) {
+                break;
+            }
+            this.heap[i] = this.heap[parent];
+            this.heapIndex[this.heap[i]] = i;
+            i = parent;
+        }
+        this.heap[i] = variable;
+        this.heapIndex[variable] = i;
+    }
+
+    private void heapDown(int i) {
+        int variable = this.heap[i];
+        while (2 * i + 1 < this.heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < this.heapSize && this.activities[this.heap[child + 1]] > this.activities[this.heap[child]]) {
+                child++;
+            }
+            if (this.activities[this.heap[child]] <= this.activities[variable]) {
+                break;
+            }
+            this.heap[i] = this.heap[child];
+            this.heapIndex[this.heap[i]] = i;
+            i = child;
+        }
+        this.heap[i] = variable;
+        this.heapIndex[variable] = i;
+    }
+
+    /** Returns the i-th term of the Luby sequence: 1, 1, 2, 1, 1, 2, 4, 1, ... */
+    static long luby(int i) {
+        int size = 1;
+        int exponent = 0;
+        while (size < i + 1) {
+            size = 2 * size + 1;
+            exponent++;
+        }
+        while (size - 1 != i) {
+            size = (size - 1) >> 1;
+            exponent--;
+            i %= size;
+        }
+        return 1L << exponent;
+    }
+}
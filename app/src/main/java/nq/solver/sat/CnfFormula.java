@@ -0,0 +1,77 @@
+package nq.solver.sat;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A formula in conjunctive normal form, with the DIMACS conventions: the variables are numbered
+ * from 1, and a literal is either a variable or its negation.
+ *
+ * The clauses are stored back to back in a single array, so even formulas with millions of
+ * clauses only take a couple of objects.
+ */
+public class CnfFormula {
+    int variables;
+
+    int[] literals = new int[1024];
+    int literalCount;
+    /** The end of each clause in `literals`. Each clause starts where the previous one ends. */
+    int[] clauseEnds = new int[256];
+    int clauseCount;
+
+    /** Creates a new variable, and returns its number. */
+    public int newVariable() {
+        return ++this.variables;
+    }
+
+    /** Adds a clause, which is satisfied if any of its literals is. */
+    public void addClause(int... clause) {
+        for (int literal : clause) {
+            if (literal == 0 || Math.abs(literal) > this.variables) {
+                throw new IllegalArgumentException("Unknown variable in literal " + literal);
+            }
+        }
+        if (this.literalCount + clause.length > this.literals.length) {
+            this.literals = Arrays.copyOf(this.literals, Math.max(2 * this.literals.length,
+                    this.literalCount + clause.length));
+        }
+        if (this.clauseCount == this.clauseEnds.length) {
+            this.clauseEnds = Arrays.copyOf(this.clauseEnds, 2 * this.clauseCount);
+        }
+        System.arraycopy(clause, 0, this.literals, this.literalCount, clause.length);
+        this.literalCount += clause.length;
+        this.clauseEnds[this.clauseCount++] = this.literalCount;
+    }
+
+    public int getVariableCount() {
+        return this.variables;
+    }
+
+    public int getClauseCount() {
+        return this.clauseCount;
+    }
+
+    /** Returns a copy of the i-th clause. */
+    public int[] getClause(int i) {
+        int start = i == 0 ? 0 : this.clauseEnds[i - 1];
+        return Arrays.copyOfRange(this.literals, start, this.clauseEnds[i]);
+    }
+
+    /** Writes the formula in the DIMACS CNF format, which most SAT solvers read. */
+    public void writeDimacs(Writer out) throws IOException {
+        out.write(String.format("p cnf %d %d\n", this.variables, this.clauseCount));
+        var line = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < this.clauseCount; i++) {
+            line.setLength(0);
+            for (int k = start; k < this.clauseEnds[i]; k++) {
+                line.append(this.literals[k]).append(' ');
+            }
+            line.append("0\n");
+            out.write(line.toString());
+            start = this.clauseEnds[i];
+        }
+        out.flush();
+    }
+}
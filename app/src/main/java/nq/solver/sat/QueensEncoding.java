@@ -0,0 +1,110 @@
+package nq.solver.sat;
+
+import java.util.ArrayList;
+
+import nq.solver.utils.Utils;
+
+/**
+ * Encodes the n-queens board as a CNF formula, where the variable `variable(x, y)` is true if
+ * there's a queen in (x, y):
+ *
+ *  - exactly one queen per row and per column,
+ *  - at most one queen per diagonal, and
+ *  - with the 3-queens-in-a-line check, at most two queens per line through 3 or more cells.
+ *
+ * The lines are enumerated by their reduced direction (dx, dy) with dy > 0, skipping the columns
+ * and diagonals, which are already covered by stronger constraints.
+ */
+public class QueensEncoding {
+    final int boardSize;
+    final boolean enable3QueensInLineCheck;
+    final CnfFormula formula = new CnfFormula();
+
+    public QueensEncoding(int boardSize, boolean enable3QueensInLineCheck) {
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+
+        int n = boardSize;
+        for (int i = 0; i < n * n; i++) {
+            this.formula.newVariable();
+        }
+
+        for (int i = 0; i < n; i++) {
+            var row = new int[n];
+            var column = new int[n];
+            for (int j = 0; j < n; j++) {
+                row[j] = this.variable(j, i);
+                column[j] = this.variable(i, j);
+            }
+            Cardinality.exactlyOne(this.formula, row);
+            Cardinality.exactlyOne(this.formula, column);
+        }
+
+        // The diagonals are the lines with directions (1, 1) and (-1, 1).
+        this.addLines(1, 1, 1);
+        this.addLines(-1, 1, 1);
+
+        if (enable3QueensInLineCheck) {
+            // A line through 3 cells spans at least 2 steps in both directions.
+            int max = (n - 1) / 2;
+            for (int dy = 1; dy <= max; dy++) {
+                for (int dx = -max; dx <= max; dx++) {
+                    if (dx != 0 && Math.abs(dx) + dy > 2 && Utils.gcd(Math.abs(dx), dy) == 1) {
+                        this.addLines(dx, dy, 2);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Returns the variable of the cell (x, y). */
+    public int variable(int x, int y) {
+        return y * this.boardSize + x + 1;
+    }
+
+    public CnfFormula getFormula() {
+        return this.formula;
+    }
+
+    /**
+     * Decodes the model of the formula into the column of the queen in each row.
+     *
+     * @param model the value of each variable, indexed from 1
+     */
+    public int[] decode(boolean[] model, int[] out) {
+        for (int y = 0; y < this.boardSize; y++) {
+            out[y] = -1;
+            for (int x = 0; x < this.boardSize; x++) {
+                if (model[this.variable(x, y)]) {
+                    out[y] = x;
+                }
+            }
+        }
+        return out;
+    }
+
+    /** Allows at most `max` queens on each line with the given direction. */
+    private void addLines(int dx, int dy, int max) {
+        int n = this.boardSize;
+        var cells = new ArrayList<Integer>();
+        for (int y = 0; y < n; y++) {
+            for (int x = 0; x < n; x++) {
+                // Only start from the first cell of each line.
+                if (this.isInside(x - dx, y - dy)) {
+                    continue;
+                }
+                cells.clear();
+                for (int cx = x, cy = y; this.isInside(cx, cy); cx += dx, cy += dy) {
+                    cells.add(this.variable(cx, cy));
+                }
+                if (cells.size() > max) {
+                    Cardinality.atMostK(this.formula, cells.stream().mapToInt(Integer::intValue).toArray(), max);
+                }
+            }
+        }
+    }
+
+    private boolean isInside(int x, int y) {
+        return x >= 0 && x < this.boardSize && y >= 0 && y < this.boardSize;
+    }
+}
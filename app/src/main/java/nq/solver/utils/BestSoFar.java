@@ -0,0 +1,46 @@
+package nq.solver.utils;
+
+/**
+ * Keeps the board with the lowest cost seen by a local search, so that other threads can read it
+ * while the search is still running. Only the boards that improve on the best one are copied, so
+ * offering a board on every step costs a comparison most of the time.
+ *
+ * The costs are whatever the search minimizes, which is 0 for a solution.
+ */
+public class BestSoFar {
+    final int[] board;
+    int cost = Integer.MAX_VALUE;
+
+    public BestSoFar(int boardSize) {
+        this.board = new int[boardSize];
+    }
+
+    /** Forgets the best board, before a new search starts. */
+    public synchronized void reset() {
+        this.cost = Integer.MAX_VALUE;
+    }
+
+    /** Returns the cost of the best board, or `Integer.MAX_VALUE` if there's none yet. */
+    public synchronized int getCost() {
+        return this.cost;
+    }
+
+    /** Keeps a copy of the board if its cost is lower than the best one, and returns true if so. */
+    public synchronized boolean offer(int[] board, int cost) {
+        if (cost >= this.cost) {
+            return false;
+        }
+        System.arraycopy(board, 0, this.board, 0, this.board.length);
+        this.cost = cost;
+        return true;
+    }
+
+    /** Copies the best board into `out`, and returns it. Returns null if there's none yet. */
+    public synchronized int[] copyInto(int[] out) {
+        if (this.cost == Integer.MAX_VALUE) {
+            return null;
+        }
+        System.arraycopy(this.board, 0, out, 0, this.board.length);
+        return out;
+    }
+}
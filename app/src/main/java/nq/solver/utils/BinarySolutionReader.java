@@ -0,0 +1,116 @@
+package nq.solver.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the files written by `BinarySolutionWriter`, by memory mapping them. Any solution can be
+ * read in O(N) without reading the ones before it.
+ */
+public class BinarySolutionReader implements Closeable {
+    final FileChannel channel;
+    final int boardSize;
+    final int bitsPerRow;
+    final int recordBytes;
+    final long count;
+
+    /** The file is mapped in segments of whole solutions, since a mapping is limited to 2GB. */
+    final MappedByteBuffer[] segments;
+    final long solutionsPerSegment;
+
+    public BinarySolutionReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            var header = this.channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(this.channel.size(), BinarySolutionWriter.HEADER_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.remaining() < BinarySolutionWriter.HEADER_BYTES
+                    || header.getInt() != BinarySolutionWriter.MAGIC) {
+                throw new IOException("Not a binary solutions file: " + path);
+            }
+            short version = header.getShort();
+            if (version != BinarySolutionWriter.VERSION) {
+                throw new IOException(String.format("Unsupported binary solutions version %d: %s", version, path));
+            }
+            int headerBytes = header.getShort();
+            this.boardSize = header.getInt();
+            this.bitsPerRow = header.getInt();
+            this.recordBytes = header.getInt();
+            long declared = header.getLong();
+
+            // Trust the file length over the header, which is only complete once the writer closed.
+            long available = (this.channel.size() - headerBytes) / this.recordBytes;
+            this.count = declared > 0 ? Math.min(declared, available) : available;
+
+            this.solutionsPerSegment = Math.max(1, Integer.MAX_VALUE / this.recordBytes);
+            int segmentCount = (int) ((this.count + this.solutionsPerSegment - 1) / this.solutionsPerSegment);
+            this.segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long first = i * this.solutionsPerSegment;
+                long solutions = Math.min(this.solutionsPerSegment, this.count - first);
+                this.segments[i] = this.channel.map(FileChannel.MapMode.READ_ONLY,
+                        headerBytes + first * this.recordBytes, solutions * this.recordBytes);
+            }
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /** Checks if the file starts like a file written by `BinarySolutionWriter`. */
+    public static boolean isBinarySolutionFile(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == BinarySolutionWriter.MAGIC;
+        }
+    }
+
+    public int getBoardSize() {
+        return this.boardSize;
+    }
+
+    /** Returns the number of solutions in the file. */
+    public long size() {
+        return this.count;
+    }
+
+    /** Returns the solution at the given index. */
+    public int[] get(long index) {
+        return this.get(index, new int[this.boardSize]);
+    }
+
+    /** Reads the solution at the given index into `out`, which must have N entries. */
+    public int[] get(long index, int[] out) {
+        if (index < 0 || index >= this.count) {
+            throw new IndexOutOfBoundsException(String.format("Solution %d out of %d", index, this.count));
+        }
+        var segment = this.segments[(int) (index / this.solutionsPerSegment)];
+        int offset = (int) (index % this.solutionsPerSegment) * this.recordBytes;
+
+        int mask = (1 << this.bitsPerRow) - 1;
+        long bits = 0;
+        int pending = 0;
+        for (int y = 0; y < this.boardSize; y++) {
+            while (pending < this.bitsPerRow) {
+                bits |= (long) (segment.get(offset++) & 0xff) << pending;
+                pending += 8;
+            }
+            out[y] = (int) bits & mask;
+            bits >>>= this.bitsPerRow;
+            pending -= this.bitsPerRow;
+        }
+        return out;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -0,0 +1,117 @@
+package nq.solver.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes solutions in a compact binary format, where the column of each row is packed in
+ * ceil(log2 N) bits.
+ *
+ * The file starts with a little endian header:
+ *
+ *  - magic `NQSB` (4 bytes), format version (2 bytes) and header length (2 bytes),
+ *  - board size, bits per row and bytes per solution (4 bytes each),
+ *  - number of solutions (8 bytes), which is filled in on `close()`.
+ *
+ * Then, every solution takes the same number of bytes, with the rows packed from the lowest bit of
+ * the first byte. The fixed length records let `BinarySolutionReader` seek to any solution.
+ */
+public class BinarySolutionWriter implements SolutionWriter {
+    static final int MAGIC = 0x4253514e;
+    static final short VERSION = 1;
+    static final short HEADER_BYTES = 28;
+
+    final FileChannel channel;
+    final int boardSize;
+    final int bitsPerRow;
+    final int recordBytes;
+    final ByteBuffer buffer;
+    long count;
+
+    public BinarySolutionWriter(Path path, int boardSize) throws IOException {
+        this.boardSize = boardSize;
+        this.bitsPerRow = bitsPerRow(boardSize);
+        this.recordBytes = (int) (((long) boardSize * this.bitsPerRow + 7) / 8);
+        this.buffer = ByteBuffer.allocate(Math.max(1 << 16, this.recordBytes)).order(ByteOrder.LITTLE_ENDIAN);
+
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.writeHeader();
+    }
+
+    /** Returns the number of bits needed to store a column, i.e. ceil(log2 N), and at least 1. */
+    static int bitsPerRow(int boardSize) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(boardSize - 1));
+    }
+
+    @Override
+    public void write(int[] positions, int length) throws IOException {
+        if (length != this.boardSize) {
+            throw new IllegalArgumentException(
+                    String.format("Expected a solution with %d rows, got %d.", this.boardSize, length));
+        }
+        if (this.buffer.remaining() < this.recordBytes) {
+            this.flush();
+        }
+
+        long bits = 0;
+        int pending = 0;
+        for (int y = 0; y < length; y++) {
+            bits |= (long) positions[y] << pending;
+            pending += this.bitsPerRow;
+            while (pending >= 8) {
+                this.buffer.put((byte) bits);
+                bits >>>= 8;
+                pending -= 8;
+            }
+        }
+        if (pending > 0) {
+            this.buffer.put((byte) bits);
+        }
+        this.count++;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.buffer.flip();
+        int limit = this.buffer.limit();
+        while (this.buffer.hasRemaining()) {
+            // The channel copies heap buffers into a direct one first, so a huge board goes in chunks.
+            this.buffer.limit(Math.min(limit, this.buffer.position() + (1 << 20)));
+            this.channel.write(this.buffer);
+            this.buffer.limit(limit);
+        }
+        this.buffer.clear();
+    }
+
+    /** Flushes the pending solutions, and fills in their number in the header. */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.flush();
+            this.writeHeader();
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        var header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putShort(VERSION).putShort(HEADER_BYTES);
+        header.putInt(this.boardSize).putInt(this.bitsPerRow).putInt(this.recordBytes);
+        header.putLong(this.count);
+        header.flip();
+
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += this.channel.write(header, position);
+        }
+        if (this.channel.position() < HEADER_BYTES) {
+            this.channel.position(HEADER_BYTES);
+        }
+    }
+}
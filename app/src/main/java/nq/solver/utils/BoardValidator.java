@@ -0,0 +1,185 @@
+package nq.solver.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Validates full boards quickly, e.g. to verify the output of the solvers or boards that come from
+ * elsewhere, in bulk.
+ *
+ * The columns and both diagonals are checked in O(N) with stamped occupancy arrays, which are
+ * reused between boards without clearing them. The 3-queens-in-a-line check is exact and takes
+ * O(N^2): for each row, the directions towards the rows below it are hashed as reduced integer
+ * vectors, and any repeated direction means that 3 queens share a line. With more than one
+ * thread, the rows are checked in parallel.
+ *
+ * A validator is not thread safe, since it reuses its scratch arrays. Use one per thread.
+ */
+public class BoardValidator implements AutoCloseable {
+    final int boardSize;
+    final boolean enable3QueensInLineCheck;
+    final int threads;
+
+    /** Stamped occupancy arrays, where an entry is taken iff it equals `stamp`. */
+    final int[] columns;
+    final int[] diagPositive;
+    final int[] diagNegative;
+    int stamp;
+
+    /** The line check scratch for each thread. */
+    final ThreadLocal<LineTable> lineTables;
+    final ForkJoinPool pool;
+
+    public BoardValidator(int boardSize, boolean enable3QueensInLineCheck) {
+        this(boardSize, enable3QueensInLineCheck, 1);
+    }
+
+    /**
+     * Creates a validator that splits the line check over the given number of threads. Call
+     * `close()` to release them.
+     */
+    public BoardValidator(int boardSize, boolean enable3QueensInLineCheck, int threads) {
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+        this.threads = threads;
+
+        this.columns = new int[boardSize];
+        this.diagPositive = new int[Math.max(2 * boardSize - 1, 0)];
+        this.diagNegative = new int[Math.max(2 * boardSize - 1, 0)];
+
+        this.lineTables = ThreadLocal.withInitial(() -> new LineTable(boardSize));
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    /** Checks if the board is a valid solution. See `BoardValidator`. */
+    public static boolean isValidSolution(int boardSize, boolean enable3QueensInLineCheck, int[] solution) {
+        return new BoardValidator(boardSize, enable3QueensInLineCheck).isValid(solution);
+    }
+
+    /** Checks if the board is a valid solution. */
+    public boolean isValid(int[] solution) {
+        return this.findViolation(solution) == null;
+    }
+
+    /** Returns a description of the first problem found in the board, or null if it's valid. */
+    public String findViolation(int[] solution) {
+        int n = this.boardSize;
+        if (solution.length != n) {
+            return String.format("expected %d rows, got %d", n, solution.length);
+        }
+
+        this.stamp++;
+        if (this.stamp == 0) {
+            Arrays.fill(this.columns, 0);
+            Arrays.fill(this.diagPositive, 0);
+            Arrays.fill(this.diagNegative, 0);
+            this.stamp = 1;
+        }
+        for (int y = 0; y < n; y++) {
+            int x = solution[y];
+            if (x < 0 || x >= n) {
+                return String.format("row %d is out of the board (column %d)", y, x);
+            }
+            if (this.columns[x] == this.stamp) {
+                return String.format("row %d shares column %d with another queen", y, x);
+            }
+            if (this.diagPositive[x - y + n - 1] == this.stamp || this.diagNegative[x + y] == this.stamp) {
+                return String.format("row %d shares a diagonal with another queen", y);
+            }
+            this.columns[x] = this.stamp;
+            this.diagPositive[x - y + n - 1] = this.stamp;
+            this.diagNegative[x + y] = this.stamp;
+        }
+
+        if (!this.enable3QueensInLineCheck) {
+            return null;
+        }
+        int row;
+        if (this.pool == null) {
+            row = -1;
+            for (int y = 0; y < n - 2 && row < 0; y++) {
+                if (this.lineTables.get().hasLineBelow(solution, y)) {
+                    row = y;
+                }
+            }
+        } else {
+            row = this.findLineInParallel(solution);
+        }
+        return row < 0 ? null : String.format("row %d is in a straight line with 2 other queens", row);
+    }
+
+    /** Returns a row that is in a line with 2 queens below it, or -1 if there's none. */
+    private int findLineInParallel(int[] solution) {
+        try {
+            // A row is checked against all the rows below it, so each task takes a row from the top and
+            // one from the bottom, which evens out the work of the halves the stream is split into.
+            int rows = Math.max(this.boardSize - 2, 0);
+            return this.pool.submit(() -> IntStream.range(0, (rows + 1) / 2).parallel().map(y -> {
+                var table = this.lineTables.get();
+                if (table.hasLineBelow(solution, y)) {
+                    return y;
+                }
+                return table.hasLineBelow(solution, rows - 1 - y) ? rows - 1 - y : -1;
+            }).filter(y -> y >= 0).findAny().orElse(-1)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /** Releases the threads of the parallel mode. */
+    @Override
+    public void close() {
+        if (this.pool != null) {
+            this.pool.shutdownNow();
+        }
+    }
+
+    /** An open addressing set of directions, which is cleared by bumping its stamp. */
+    static class LineTable {
+        final long[] keys;
+        final int[] stamps;
+        int stamp;
+
+        LineTable(int boardSize) {
+            // Sized to keep the load factor at or below 1/2.
+            int capacity = Integer.highestOneBit(Math.max(boardSize, 1)) << 2;
+            this.keys = new long[capacity];
+            this.stamps = new int[capacity];
+        }
+
+        /** Checks if the queen in row y is in a line with 2 queens in the rows below it. */
+        boolean hasLineBelow(int[] solution, int y) {
+            this.stamp++;
+            if (this.stamp == 0) {
+                Arrays.fill(this.stamps, 0);
+                this.stamp = 1;
+            }
+
+            int mask = this.keys.length - 1;
+            int x = solution[y];
+            for (int i = y + 1; i < solution.length; i++) {
+                // Both components are reduced by their gcd, and dy > 0, so the key is canonical.
+                int dx = solution[i] - x;
+                int dy = i - y;
+                int g = Utils.gcd(Math.abs(dx), dy);
+                long key = ((long) (dx / g) << 32) | (dy / g);
+
+                int slot = (int) Utils.mix(key) & mask;
+                while (this.stamps[slot] == this.stamp) {
+                    if (this.keys[slot] == key) {
+                        return true;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                this.stamps[slot] = this.stamp;
+                this.keys[slot] = key;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package nq.solver.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A file with the state of a search, which is saved now and then so that the search can resume
+ * after the process dies. The searches on the heap use it for their few ints of state, e.g. the
+ * stack of a backtracking search; `OffHeapBoard` is the checkpoint of the off-heap search instead.
+ *
+ * The file has a small header (the magic, the kind of search, the board size and the line check),
+ * followed by the state as written by the search. It's written to a temporary file next to it,
+ * which is then renamed over it, so a crash leaves either the previous checkpoint or the new one.
+ *
+ * The searches ask `isDue()` at their interrupt checks, which is just a clock read, and only save
+ * their state once the interval passed.
+ */
+public class Checkpoint {
+    static final int MAGIC = 0x4b434e51;
+    public static final long INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /** Writes the state of a search after the header. */
+    public interface StateWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /** Reads the state written by a `StateWriter`, and returns what the search needs from it. */
+    public interface StateReader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    final Path file;
+    final String kind;
+    final int boardSize;
+    final boolean enable3QueensInLineCheck;
+    final long intervalNanos;
+    volatile long nextNanos;
+    long written;
+    /** The state read from the file to resume from, until it's read. */
+    byte[] resumed;
+
+    Checkpoint(Path file, String kind, int boardSize, boolean enable3QueensInLineCheck, long intervalNanos) {
+        this.file = file;
+        this.kind = kind;
+        this.boardSize = boardSize;
+        this.enable3QueensInLineCheck = enable3QueensInLineCheck;
+        this.intervalNanos = intervalNanos;
+        this.nextNanos = System.nanoTime() + intervalNanos;
+    }
+
+    /**
+     * Opens the checkpoint of a search. If `resume` is set, the file must hold a checkpoint of the
+     * same kind of search on the same board, which the search then resumes from; see `resume()`.
+     *
+     * @throws IOException if the checkpoint can't be resumed
+     */
+    public static Checkpoint open(Path file, String kind, int boardSize, boolean enable3QueensInLineCheck,
+            boolean resume) throws IOException {
+        return open(file, kind, boardSize, enable3QueensInLineCheck, resume, INTERVAL_NANOS);
+    }
+
+    /** Same as `open()`, but saves the state every `intervalNanos` instead of every 30s. */
+    public static Checkpoint open(Path file, String kind, int boardSize, boolean enable3QueensInLineCheck,
+            boolean resume, long intervalNanos) throws IOException {
+        var checkpoint = new Checkpoint(file, kind, boardSize, enable3QueensInLineCheck, intervalNanos);
+        if (resume) {
+            checkpoint.read();
+        }
+        return checkpoint;
+    }
+
+    private void read() throws IOException {
+        if (!Files.exists(this.file)) {
+            throw new IOException("No checkpoint to resume: " + this.file);
+        }
+        var bytes = Files.readAllBytes(this.file);
+        var in = new DataInputStream(new ByteArrayInputStream(bytes));
+        try {
+            if (in.readInt() == MAGIC && in.readUTF().equals(this.kind) && in.readInt() == this.boardSize
+                    && in.readBoolean() == this.enable3QueensInLineCheck) {
+                this.resumed = in.readAllBytes();
+                return;
+            }
+        } catch (IOException e) {
+            // Too short, so not a checkpoint either.
+        }
+        throw new IOException(String.format("Not a checkpoint of %s for a board of size %d: %s", this.kind,
+                this.boardSize, this.file));
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+
+    /** Returns true if there's a state to resume from, which wasn't read yet. */
+    public synchronized boolean isResuming() {
+        return this.resumed != null;
+    }
+
+    /**
+     * Reads the state to resume from, and returns the result of the reader. Returns null if there's
+     * nothing to resume from. Only the first call reads the state, so that only the first solve
+     * resumes.
+     *
+     * @throws UncheckedIOException if the state is cut short or invalid
+     */
+    public synchronized <T> T resume(StateReader<T> reader) {
+        if (this.resumed == null) {
+            return null;
+        }
+        var in = new DataInputStream(new ByteArrayInputStream(this.resumed));
+        this.resumed = null;
+        try {
+            return reader.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid checkpoint " + this.file, e);
+        }
+    }
+
+    /** Returns true if the interval passed since the state was last saved. */
+    public boolean isDue() {
+        return System.nanoTime() - this.nextNanos >= 0;
+    }
+
+    /** Returns the number of times the state was saved. */
+    public synchronized long getWritten() {
+        return this.written;
+    }
+
+    /**
+     * Saves the state, and starts the next interval. The file is only replaced once the new one is
+     * fully on the disk.
+     *
+     * @throws UncheckedIOException if the file can't be written, since the searches can't throw
+     *                              checked exceptions
+     */
+    public synchronized void write(StateWriter state) {
+        var temporary = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try {
+            try (var stream = new FileOutputStream(temporary.toFile());
+                    var out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(this.kind);
+                out.writeInt(this.boardSize);
+                out.writeBoolean(this.enable3QueensInLineCheck);
+                state.write(out);
+                out.flush();
+                // Unlike the channel, the descriptor still syncs while the thread is interrupted, e.g. by a deadline.
+                stream.getFD().sync();
+            }
+            Files.move(temporary, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't write the checkpoint " + this.file, e);
+        }
+        this.written++;
+        this.nextNanos = System.nanoTime() + this.intervalNanos;
+    }
+
+    /** Writes the first `length` ints of the array, after their count. */
+    public static void writeInts(DataOutputStream out, int[] values, int length) throws IOException {
+        out.writeInt(length);
+        for (int i = 0; i < length; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    /**
+     * Reads the ints written by `writeInts()` into `out`, and returns their count. Each of them must
+     * be in [0, bound).
+     */
+    public static int readInts(DataInputStream in, int[] out, int bound) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > out.length) {
+            throw new IOException(String.format("Invalid length %d. It must be in [0, %d].", length, out.length));
+        }
+        for (int i = 0; i < length; i++) {
+            out[i] = in.readInt();
+            if (out[i] < 0 || out[i] >= bound) {
+                throw new IOException(String.format("Invalid value %d. It must be in [0, %d).", out[i], bound));
+            }
+        }
+        return length;
+    }
+}
@@ -1,33 +1,32 @@
 package nq.solver.utils;
 
-import java.text.DecimalFormat;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
 
+import com.google.common.primitives.Ints;
+
 import org.apache.commons.lang3.tuple.Pair;
 
 public class CollisionsTracker {
     int boardSize;
 
-    /** 
+    /**
      * Tracks the number of queens attacking a top-left to bottom-right diagonal (\). The indices
      * are labeled from left to right. For example, with N=4:
-     * 
+     *
      *  ```
-     *  3 4 5 6 
+     *  3 4 5 6
      *  2 \ . \ .
      *  1 . \ . \
      *  0 \ . \ .
      *    . \ . \
      *  ```
      */
-    List<Integer> attacksDiagPositive;
-    /** 
+    int[] attacksDiagPositive;
+    /**
      * Tracks the number of queens attacking a top-right to bottom-left diagonal (/). The indices
      * are labeled from left to right. For example, with N=4:
-     * 
+     *
      *  ```
      *    0 1 2 3
      *  . / . / 4
@@ -36,54 +35,136 @@ public class CollisionsTracker {
      *  / . / .
      *  ```
      */
-    List<Integer> attacksDiagNegative;
+    int[] attacksDiagNegative;
+    /** Tracks the number of queens placed in each column. */
+    int[] attacksColumn;
+    /** Tracks the number of queens placed in each row. */
+    int[] attacksRow;
+    /** Tracks the column of the queen placed in each row, or -1 if the row is empty. */
+    int[] positions;
+    /**
+     * Tracks the number of diagonal collisions in the board, where a diagonal with k > 1 queens
+     * counts as k - 1 collisions.
+     */
+    int diagCollisions;
+
+    /**
+     * Scratch open-addressing table used to group queens by their reduced direction from a given
+     * position. Entries are only valid if their stamp matches the current `lineStamp`, which lets
+     * us clear the table in O(1) between queries.
+     */
+    long[] lineKeys;
+    int[] lineStamps;
+    int lineStamp;
+    /** Number of queens found in the direction of each valid entry of `lineKeys`. */
+    int[] lineHits;
 
     boolean enable3QueensInLineCheck;
 
+    SolverMetrics metrics = SolverMetrics.DISABLED;
+
     public CollisionsTracker(int boardSize, boolean enable3QueensInLineCheck, List<Integer> positions) {
+        this(boardSize, enable3QueensInLineCheck);
+        this.recalculateAttacksTables(positions);
+    }
+
+    public CollisionsTracker(int boardSize, boolean enable3QueensInLineCheck, int[] positions) {
+        this(boardSize, enable3QueensInLineCheck);
+        this.recalculateAttacksTables(positions, positions.length);
+    }
+
+    public CollisionsTracker(int boardSize, boolean enable3QueensInLineCheck) {
         this.boardSize = boardSize;
         this.enable3QueensInLineCheck = enable3QueensInLineCheck;
 
-        // Initialize diagonal attacks lookup arrays.
-        this.attacksDiagPositive = new ArrayList<Integer>(Collections.nCopies(this.boardSize * 2 - 1, 0));
-        this.attacksDiagNegative = new ArrayList<Integer>(Collections.nCopies(this.boardSize * 2 - 1, 0));
+        // Initialize attacks lookup arrays.
+        this.attacksDiagPositive = new int[this.boardSize * 2 - 1];
+        this.attacksDiagNegative = new int[this.boardSize * 2 - 1];
+        this.attacksColumn = new int[this.boardSize];
+        this.attacksRow = new int[this.boardSize];
+        this.positions = new int[this.boardSize];
+
+        // Initialize line lookup table, sized to keep the load factor at or below 1/2.
+        if (enable3QueensInLineCheck) {
+            int capacity = Integer.highestOneBit(Math.max(this.boardSize, 1)) << 2;
+            this.lineKeys = new long[capacity];
+            this.lineStamps = new int[capacity];
+            this.lineHits = new int[capacity];
+        }
 
-        // Initialize attack tables.
-        this.recalculateAttacksTables(positions);
+        // Start with an empty board.
+        Arrays.fill(this.positions, -1);
     }
 
-    public CollisionsTracker(int boardSize, boolean enable3QueensInLineCheck) {
-        this(boardSize, enable3QueensInLineCheck, new ArrayList<Integer>());
+    /** Sets the metrics that count the queries answered by this tracker. */
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
     }
 
-    /** Given a list of positions, recalculate the diagonal attack lookup tables. */
+    /** Given a list of positions, recalculate the attack lookup tables. */
     public void recalculateAttacksTables(List<Integer> positions) {
-        Collections.fill(this.attacksDiagPositive, 0);
-        Collections.fill(this.attacksDiagNegative, 0);
-
-        for (int i = 0; i < positions.size(); i++) {
-            int y = i;
-            int x = positions.get(i);
+        this.recalculateAttacksTables(Ints.toArray(positions), positions.size());
+    }
 
-            var pair = diagonalIndices(Pair.of(x, y));
+    /** Given the positions of the first `length` rows, recalculate the attack lookup tables. */
+    public void recalculateAttacksTables(int[] positions, int length) {
+        Arrays.fill(this.attacksDiagPositive, 0);
+        Arrays.fill(this.attacksDiagNegative, 0);
+        Arrays.fill(this.attacksColumn, 0);
+        Arrays.fill(this.attacksRow, 0);
+        Arrays.fill(this.positions, -1);
+        this.diagCollisions = 0;
+
+        for (int i = 0; i < length; i++) {
+            this.recordDiagCollision(positions[i], i, +1);
+        }
+    }
 
-            this.attacksDiagPositive.set(pair.getLeft(), this.attacksDiagPositive.get(pair.getLeft()) + 1);
-            this.attacksDiagNegative.set(pair.getRight(), this.attacksDiagNegative.get(pair.getRight()) + 1);
+    /**
+     * Given a position (x, y), modify the number of diagonal attacks on both sides in that
+     * position, as well as the column and row occupancy counters and the line index.
+     */
+    public void recordDiagCollision(int x, int y, int d) {
+        int positive = this.attacksDiagPositive[x - y + this.boardSize - 1];
+        int negative = this.attacksDiagNegative[x + y];
+        this.diagCollisions += Math.max(positive + d - 1, 0) - Math.max(positive - 1, 0);
+        this.diagCollisions += Math.max(negative + d - 1, 0) - Math.max(negative - 1, 0);
+
+        this.attacksDiagPositive[x - y + this.boardSize - 1] = positive + d;
+        this.attacksDiagNegative[x + y] = negative + d;
+        this.attacksColumn[x] += d;
+        this.attacksRow[y] += d;
+
+        if (d > 0) {
+            this.positions[y] = x;
+        } else if (this.positions[y] == x) {
+            this.positions[y] = -1;
         }
     }
 
     /** Given a position, modify the number of diagonal attacks on both sides in that position. */
     public void recordDiagCollision(Pair<Integer, Integer> position, int d) {
-        var pair = diagonalIndices(position);
-        this.attacksDiagPositive.set(pair.getLeft(), this.attacksDiagPositive.get(pair.getLeft()) + d);
-        this.attacksDiagNegative.set(pair.getRight(), this.attacksDiagNegative.get(pair.getRight()) + d);
+        this.recordDiagCollision(position.getLeft(), position.getRight(), d);
+    }
+
+    /** Count the number of diagonal queen attacks on the queen placed in (x, y). */
+    public int countDiagAttacksAgainst(int x, int y) {
+        this.metrics.trackerQuery();
+        return (this.attacksDiagPositive[x - y + this.boardSize - 1] - 1) + (this.attacksDiagNegative[x + y] - 1);
     }
 
     /** Count the number of diagonal queen attacks on the given position. */
     public int countDiagAttacksAgainst(Pair<Integer, Integer> position) {
-        var pair = diagonalIndices(position);
+        return this.countDiagAttacksAgainst(position.getLeft(), position.getRight());
+    }
 
-        return (this.attacksDiagPositive.get(pair.getLeft()) - 1) + (this.attacksDiagNegative.get(pair.getRight()) - 1);
+    /**
+     * Count the number of crosswise queen attacks on the queen placed in (x, y), using the column
+     * and row occupancy counters.
+     */
+    public int countCrossAttacksAgainst(int x, int y) {
+        this.metrics.trackerQuery();
+        return (this.attacksColumn[x] - 1) + (this.attacksRow[y] - 1);
     }
 
     /** Count the number of crosswise queen attacks on the given position. */
@@ -106,71 +187,141 @@ public class CollisionsTracker {
         return attacks;
     }
 
-    /** Count the number of 3-queens that are on the same straight line from the given position. */
-    public int countLineAttacksAgainst(List<Integer> solution, Pair<Integer, Integer> position) {
+    /**
+     * Count the number of 3-queens that are on the same straight line from (x, y), against the
+     * queens currently recorded in this tracker. The queen in row y, if any, is ignored.
+     */
+    public int countLineAttacksAgainst(int x, int y) {
+        return this.countLineAttacksAgainst(this.positions, this.boardSize, x, y);
+    }
+
+    /**
+     * Count the number of 3-queens that are on the same straight line from (x, y), considering
+     * only the first `length` rows of the given solution. Rows with negative positions are
+     * considered empty.
+     */
+    public int countLineAttacksAgainst(int[] solution, int length, int x, int y) {
         if (!this.enable3QueensInLineCheck) {
             return 0;
         }
+        this.metrics.trackerQuery();
 
         int attacks = 0;
 
-        var df = new DecimalFormat();
-        df.setMaximumFractionDigits(4);
+        this.lineStamp++;
+        if (this.lineStamp == 0) {
+            Arrays.fill(this.lineStamps, 0);
+            this.lineStamp = 1;
+        }
 
-        var lineAttacksTable = new HashSet<String>();
-        for (int i = 0; i < solution.size(); i++) {
-            if (i == position.getRight()) {
+        int mask = this.lineKeys.length - 1;
+        for (int i = 0; i < length; i++) {
+            if (i == y || solution[i] < 0) {
                 continue;
             }
 
-            int oy = i;
-            int ox = solution.get(i);
+            long key = Utils.directionKey(solution[i] - x, i - y);
 
-            var hash = df.format(Utils.slope(position, Pair.of(ox, oy)));
-            if (lineAttacksTable.contains(hash)) {
+            // Linear probing until we find either the same direction or an empty slot.
+            int slot = (int) Utils.mix(key) & mask;
+            while (this.lineStamps[slot] == this.lineStamp && this.lineKeys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (this.lineStamps[slot] == this.lineStamp) {
                 attacks += 1;
+            } else {
+                this.lineStamps[slot] = this.lineStamp;
+                this.lineKeys[slot] = key;
             }
-            lineAttacksTable.add(hash);
         }
 
         return attacks;
     }
 
+    /**
+     * Count the number of lines through (x, y) with at least 2 of the recorded queens, ignoring
+     * the queen in row y, if any. This is how much the number of queens in excess of 2 per line,
+     * summed over all the lines, grows when a queen is placed in (x, y).
+     */
+    public int countLinesThrough(int x, int y) {
+        if (!this.enable3QueensInLineCheck) {
+            return 0;
+        }
+        this.metrics.trackerQuery();
+
+        int lines = 0;
+
+        this.lineStamp++;
+        if (this.lineStamp == 0) {
+            Arrays.fill(this.lineStamps, 0);
+            this.lineStamp = 1;
+        }
+
+        int mask = this.lineKeys.length - 1;
+        for (int i = 0; i < this.boardSize; i++) {
+            if (i == y || this.positions[i] < 0) {
+                continue;
+            }
+
+            long key = Utils.directionKey(this.positions[i] - x, i - y);
+
+            int slot = (int) Utils.mix(key) & mask;
+            while (this.lineStamps[slot] == this.lineStamp && this.lineKeys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (this.lineStamps[slot] == this.lineStamp) {
+                // Only the second queen in a direction makes a line.
+                if (++this.lineHits[slot] == 2) {
+                    lines += 1;
+                }
+            } else {
+                this.lineStamps[slot] = this.lineStamp;
+                this.lineKeys[slot] = key;
+                this.lineHits[slot] = 1;
+            }
+        }
+
+        return lines;
+    }
+
+    /** Count the number of 3-queens that are on the same straight line from the given position. */
+    public int countLineAttacksAgainst(List<Integer> solution, Pair<Integer, Integer> position) {
+        return this.countLineAttacksAgainst(Ints.toArray(solution), solution.size(), position.getLeft(),
+                position.getRight());
+    }
+
+    /**
+     * Returns the number of diagonal collisions among the recorded queens in O(1), where a
+     * diagonal with k > 1 queens counts as k - 1 collisions.
+     */
+    public int countAllDiagCollisions() {
+        return this.diagCollisions;
+    }
+
     /** Given a solution, count the number of diagonal and 3-queens-in-a-line collisions. */
     public int countAllDiagAndLineCollisions(List<Integer> solution) {
+        return this.countAllDiagAndLineCollisions(Ints.toArray(solution));
+    }
+
+    /** Given a solution, count the number of diagonal and 3-queens-in-a-line collisions. */
+    public int countAllDiagAndLineCollisions(int[] solution) {
         int collisions = 0;
 
         for (int i = 0; i < this.boardSize * 2 - 1; i++) {
-            int negative = this.attacksDiagNegative.get(i);
+            int negative = this.attacksDiagNegative[i];
             if (negative > 1) {
                 collisions += negative - 1;
             }
-            int positive = this.attacksDiagPositive.get(i);
+            int positive = this.attacksDiagPositive[i];
             if (positive > 1) {
                 collisions += positive - 1;
             }
         }
 
         for (int i = 0; i < this.boardSize; i++) {
-            collisions += this.countLineAttacksAgainst(solution, Pair.of(solution.get(i), i));
+            collisions += this.countLineAttacksAgainst(solution, solution.length, solution[i], i);
         }
 
         return collisions;
     }
-
-    /**
-     * Given a position pair (x, y), find its indices in the positive and negative diagonal
-     * conflicts lookup table.
-     * 
-     * @return a pair of integers where left is positive, right is negative diagonal index
-     */
-    private Pair<Integer, Integer> diagonalIndices(Pair<Integer, Integer> pos) {
-        int x = pos.getLeft();
-        int y = pos.getRight();
-
-        int lrIndex = x - y + this.boardSize - 1;
-        int rlIndex = x + y;
-
-        return Pair.of(lrIndex, rlIndex);
-    }
 }
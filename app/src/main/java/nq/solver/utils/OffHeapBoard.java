@@ -0,0 +1,293 @@
+package nq.solver.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The board and diagonal counters of a search for the traditional n-queens problem, kept outside
+ * of the heap. Boards with hundreds of millions of queens then neither need a huge heap nor make
+ * the GC pause for seconds.
+ *
+ * The columns of the queens are ints, either in a direct buffer or in a memory mapped file. The
+ * file starts with a small header of counters, and doubles as a checkpoint of the search: after a
+ * crash, the board left in it can be resumed.
+ *
+ * The diagonal counters take a byte each, which is 4 times less than `CollisionsTracker`. A count
+ * that doesn't fit in a byte moves to a small overflow map. Only a few diagonals can ever hold
+ * 255 queens or more, and only on random boards, so the map stays tiny.
+ *
+ * The buffers are indexed by ints, so the board size is at most `MAX_BOARD_SIZE`.
+ */
+public class OffHeapBoard implements Closeable {
+    static final int MAGIC = 0x42485130;
+    /**
+     * The header of the file: the magic, the board size and the flags as ints, then the restarts
+     * and steps of the search and the number of checkpoints as longs.
+     */
+    static final int HEADER_BYTES = 40;
+    /** Set if the board was checkpointed while searching, rather than while being initialized. */
+    static final int FLAG_SEARCHING = 1;
+    public static final int MAX_BOARD_SIZE = (Integer.MAX_VALUE - HEADER_BYTES) / Integer.BYTES;
+    /** The byte value of the counters that are kept in the overflow map. */
+    static final int OVERFLOW = 0xff;
+
+    final int boardSize;
+    final FileChannel channel;
+    /** The whole file if the board is mapped, or null. */
+    final MappedByteBuffer mapped;
+    final IntBuffer positions;
+    final ByteBuffer diagPositive;
+    final ByteBuffer diagNegative;
+    final Map<Integer, Integer> overflowPositive = new HashMap<>();
+    final Map<Integer, Integer> overflowNegative = new HashMap<>();
+    /** Same as `CollisionsTracker.diagCollisions`, but a long since there may be billions of them. */
+    long diagCollisions;
+    boolean resumed;
+
+    private OffHeapBoard(int boardSize, FileChannel channel, MappedByteBuffer mapped, IntBuffer positions) {
+        this.boardSize = boardSize;
+        this.channel = channel;
+        this.mapped = mapped;
+        this.positions = positions;
+        this.diagPositive = ByteBuffer.allocateDirect(2 * boardSize - 1);
+        this.diagNegative = ByteBuffer.allocateDirect(2 * boardSize - 1);
+    }
+
+    static void checkBoardSize(int boardSize) {
+        if (boardSize < 1 || boardSize > MAX_BOARD_SIZE) {
+            throw new IllegalArgumentException(String.format("Invalid board size %d. It must be in [1, %d].",
+                    boardSize, MAX_BOARD_SIZE));
+        }
+    }
+
+    /** Creates an empty board in direct buffers. */
+    public static OffHeapBoard allocate(int boardSize) {
+        checkBoardSize(boardSize);
+        var positions = ByteBuffer.allocateDirect(boardSize * Integer.BYTES).order(ByteOrder.nativeOrder());
+        return new OffHeapBoard(boardSize, null, null, positions.asIntBuffer());
+    }
+
+    /**
+     * Maps a board to the file. If `resume` is set, the board is read from the file, which must be
+     * a board of the same size; see `isResumed()`. Otherwise, the file is created or overwritten
+     * with an empty board.
+     *
+     * The diagonal counters aren't stored, since they are rebuilt from the board in O(N) anyway.
+     *
+     * @throws IOException if the file can't be mapped, or can't be resumed
+     */
+    public static OffHeapBoard map(Path file, int boardSize, boolean resume) throws IOException {
+        checkBoardSize(boardSize);
+        if (resume && !Files.exists(file)) {
+            throw new IOException("No checkpoint to resume: " + file);
+        }
+        var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long size = HEADER_BYTES + (long) boardSize * Integer.BYTES;
+            if (resume && channel.size() != size) {
+                throw new IOException(String.format("Not a checkpoint of a board of size %d: %s", boardSize, file));
+            }
+            if (!resume) {
+                channel.truncate(0);
+            }
+            var mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (resume && (mapped.getInt(0) != MAGIC || mapped.getInt(4) != boardSize)) {
+                throw new IOException(String.format("Not a checkpoint of a board of size %d: %s", boardSize, file));
+            }
+            if (!resume) {
+                mapped.putInt(0, MAGIC);
+                mapped.putInt(4, boardSize);
+            }
+
+            var positions = mapped.slice(HEADER_BYTES, boardSize * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            var board = new OffHeapBoard(boardSize, channel, mapped, positions.asIntBuffer());
+            if (resume) {
+                board.resumed = true;
+                board.repair();
+                board.recalculateDiagTables(boardSize);
+            }
+            return board;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getBoardSize() {
+        return this.boardSize;
+    }
+
+    /** Returns true if the board was read from a checkpoint. */
+    public boolean isResumed() {
+        return this.resumed;
+    }
+
+    /** Returns the column of the queen in the row. */
+    public int get(int row) {
+        return this.positions.get(row);
+    }
+
+    /** Moves the queen of the row, without updating the diagonal counters. */
+    public void set(int row, int column) {
+        this.positions.put(row, column);
+    }
+
+    /** Copies the board into `out`, and returns it. */
+    public int[] copyInto(int[] out) {
+        this.positions.get(0, out, 0, this.boardSize);
+        return out;
+    }
+
+    /** Same as `CollisionsTracker.recordDiagCollision()`, for the diagonals only. */
+    public void recordDiagCollision(int x, int y, int d) {
+        int positiveIndex = x - y + this.boardSize - 1;
+        int positive = getCount(this.diagPositive, this.overflowPositive, positiveIndex);
+        int negative = getCount(this.diagNegative, this.overflowNegative, x + y);
+        this.diagCollisions += Math.max(positive + d - 1, 0) - Math.max(positive - 1, 0);
+        this.diagCollisions += Math.max(negative + d - 1, 0) - Math.max(negative - 1, 0);
+
+        setCount(this.diagPositive, this.overflowPositive, positiveIndex, positive + d);
+        setCount(this.diagNegative, this.overflowNegative, x + y, negative + d);
+    }
+
+    private static int getCount(ByteBuffer counters, Map<Integer, Integer> overflow, int index) {
+        int count = counters.get(index) & 0xff;
+        return count != OVERFLOW ? count : overflow.get(index);
+    }
+
+    private static void setCount(ByteBuffer counters, Map<Integer, Integer> overflow, int index, int count) {
+        boolean overflowed = (counters.get(index) & 0xff) == OVERFLOW;
+        if (count < OVERFLOW) {
+            if (overflowed) {
+                overflow.remove(index);
+            }
+            counters.put(index, (byte) count);
+        } else {
+            overflow.put(index, count);
+            if (!overflowed) {
+                counters.put(index, (byte) OVERFLOW);
+            }
+        }
+    }
+
+    /** Same as `CollisionsTracker.countDiagAttacksAgainst()`, for the queen placed in (x, y). */
+    public int countDiagAttacksAgainst(int x, int y) {
+        return getCount(this.diagPositive, this.overflowPositive, x - y + this.boardSize - 1) - 1
+                + getCount(this.diagNegative, this.overflowNegative, x + y) - 1;
+    }
+
+    public long countAllDiagCollisions() {
+        return this.diagCollisions;
+    }
+
+    /** Clears the diagonal counters, and records the queens of the first `length` rows again. */
+    public void recalculateDiagTables(int length) {
+        var zeros = new byte[Math.min(this.diagPositive.capacity(), 1 << 16)];
+        for (int i = 0; i < this.diagPositive.capacity(); i += zeros.length) {
+            int count = Math.min(zeros.length, this.diagPositive.capacity() - i);
+            this.diagPositive.put(i, zeros, 0, count);
+            this.diagNegative.put(i, zeros, 0, count);
+        }
+        this.overflowPositive.clear();
+        this.overflowNegative.clear();
+        this.diagCollisions = 0;
+
+        for (int row = 0; row < length; row++) {
+            this.recordDiagCollision(this.get(row), row, +1);
+        }
+    }
+
+    /**
+     * Turns the board back into a permutation, e.g. after a crash in the middle of a swap, where
+     * only one of the queens was moved. The queens outside of the board, or in a column that's
+     * already taken by a row above, move to the free columns. Returns the number of moved queens.
+     */
+    int repair() {
+        // A bit per column, which is 32 times smaller than the board.
+        var taken = ByteBuffer.allocateDirect(this.boardSize / 8 + 1);
+        int moved = 0;
+        int free = 0;
+        for (int row = 0; row < this.boardSize; row++) {
+            int column = this.get(row);
+            if (column >= 0 && column < this.boardSize && (taken.get(column >>> 3) & (1 << (column & 7))) == 0) {
+                taken.put(column >>> 3, (byte) (taken.get(column >>> 3) | (1 << (column & 7))));
+                continue;
+            }
+            // Mark the row for the second pass.
+            this.set(row, -1);
+            moved++;
+        }
+        for (int row = 0; moved > 0 && row < this.boardSize; row++) {
+            if (this.get(row) >= 0) {
+                continue;
+            }
+            while ((taken.get(free >>> 3) & (1 << (free & 7))) != 0) {
+                free++;
+            }
+            this.set(row, free++);
+        }
+        return moved;
+    }
+
+    /**
+     * Stores the counters of the search in the header, and writes the board to the disk. Does
+     * nothing if the board isn't mapped to a file.
+     */
+    public void checkpoint(boolean searching, long restarts, long steps) {
+        if (this.mapped == null) {
+            return;
+        }
+        this.mapped.putInt(8, searching ? FLAG_SEARCHING : 0);
+        this.mapped.putLong(16, restarts);
+        this.mapped.putLong(24, steps);
+        this.mapped.putLong(32, this.mapped.getLong(32) + 1);
+        this.mapped.force();
+    }
+
+    /**
+     * Returns true if the last checkpoint was taken while searching. Otherwise, the board may be
+     * halfway initialized, and should be initialized again.
+     */
+    public boolean isSearching() {
+        return this.mapped != null && (this.mapped.getInt(8) & FLAG_SEARCHING) != 0;
+    }
+
+    /** Returns the restarts stored by the last checkpoint, or 0. */
+    public long getRestarts() {
+        return this.mapped != null ? this.mapped.getLong(16) : 0;
+    }
+
+    /** Returns the steps stored by the last checkpoint, or 0. */
+    public long getSteps() {
+        return this.mapped != null ? this.mapped.getLong(24) : 0;
+    }
+
+    /** Returns the number of checkpoints written to the file, across all the runs. */
+    public long getCheckpoints() {
+        return this.mapped != null ? this.mapped.getLong(32) : 0;
+    }
+
+    /**
+     * Writes the board to the disk if it's mapped, and closes the file. The direct buffers are
+     * only freed by the GC, once the board is unreachable.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.mapped != null) {
+            this.mapped.force();
+            this.channel.close();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package nq.solver.utils;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.List;
+
+/** Writes solutions out one by one, in some output format. */
+public interface SolutionWriter extends Flushable, Closeable {
+    /** Writes the first `length` rows of the given positions as a solution. */
+    void write(int[] positions, int length) throws IOException;
+
+    /** Writes the given solution. */
+    default void write(List<Integer> solution) throws IOException {
+        int[] positions = new int[solution.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = solution.get(i);
+        }
+        this.write(positions, positions.length);
+    }
+}
@@ -0,0 +1,175 @@
+package nq.solver.utils;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Collects counters about the work done by a solver, plus its wall and CPU time.
+ *
+ * The counters are plain fields, so a single instance must only be updated by one thread at a
+ * time. Parallel solvers count in a separate instance per worker, and `merge()` them at the end.
+ * The shared `DISABLED` instance ignores every update, which keeps the counters off the hot path
+ * when nobody is interested in them.
+ */
+public class SolverMetrics {
+    /** A metrics instance that ignores all the updates. */
+    public static final SolverMetrics DISABLED = new SolverMetrics(false);
+
+    final boolean enabled;
+
+    /** Number of queen placements tried by the search. */
+    long nodes;
+    /** Number of placements reverted by the backtracking searches. */
+    long backtracks;
+    /** Number of swaps evaluated by the local searches. */
+    long swapsTried;
+    /** Number of evaluated swaps that were reverted. */
+    long swapsReverted;
+    /** Number of times a local search started over from a new board. */
+    long restarts;
+    /** Number of attack queries answered by `CollisionsTracker`. */
+    long trackerQueries;
+
+    long startWallNanos;
+    long startCpuNanos;
+    long wallNanos;
+    long cpuNanos;
+
+    public SolverMetrics() {
+        this(true);
+    }
+
+    SolverMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void node() {
+        if (this.enabled) {
+            this.nodes++;
+        }
+    }
+
+    public void backtrack() {
+        if (this.enabled) {
+            this.backtracks++;
+        }
+    }
+
+    public void swapTried() {
+        if (this.enabled) {
+            this.swapsTried++;
+        }
+    }
+
+    public void swapReverted() {
+        if (this.enabled) {
+            this.swapsReverted++;
+        }
+    }
+
+    public void restart() {
+        if (this.enabled) {
+            this.restarts++;
+        }
+    }
+
+    public void trackerQuery() {
+        if (this.enabled) {
+            this.trackerQueries++;
+        }
+    }
+
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    public long getBacktracks() {
+        return this.backtracks;
+    }
+
+    public long getSwapsTried() {
+        return this.swapsTried;
+    }
+
+    public long getSwapsReverted() {
+        return this.swapsReverted;
+    }
+
+    public long getRestarts() {
+        return this.restarts;
+    }
+
+    public long getTrackerQueries() {
+        return this.trackerQueries;
+    }
+
+    public long getWallNanos() {
+        return this.wallNanos;
+    }
+
+    public long getCpuNanos() {
+        return this.cpuNanos;
+    }
+
+    /** Adds the counters of another instance to this one. Safe to call from several threads. */
+    public synchronized void merge(SolverMetrics other) {
+        if (!this.enabled) {
+            return;
+        }
+        this.nodes += other.nodes;
+        this.backtracks += other.backtracks;
+        this.swapsTried += other.swapsTried;
+        this.swapsReverted += other.swapsReverted;
+        this.restarts += other.restarts;
+        this.trackerQueries += other.trackerQueries;
+    }
+
+    /** Resets all the counters to 0. */
+    public void reset() {
+        this.nodes = 0;
+        this.backtracks = 0;
+        this.swapsTried = 0;
+        this.swapsReverted = 0;
+        this.restarts = 0;
+        this.trackerQueries = 0;
+    }
+
+    /** Starts measuring the wall time, and the CPU time of the whole process. */
+    public void start() {
+        this.startWallNanos = System.nanoTime();
+        this.startCpuNanos = processCpuNanos();
+    }
+
+    /** Stops measuring the time started with `start()`. */
+    public void stop() {
+        this.wallNanos = System.nanoTime() - this.startWallNanos;
+        this.cpuNanos = processCpuNanos() - this.startCpuNanos;
+    }
+
+    /** Returns a human readable summary of the counters, times and throughputs. */
+    public String summary() {
+        double seconds = Math.max(this.wallNanos, 1) / 1e9;
+        var sb = new StringBuilder();
+        sb.append(String.format("Wall time:       %.3f ms%n", this.wallNanos / 1e6));
+        sb.append(String.format("CPU time:        %.3f ms%n", this.cpuNanos / 1e6));
+        sb.append(String.format("Nodes:           %d (%.0f/s)%n", this.nodes, this.nodes / seconds));
+        sb.append(String.format("Backtracks:      %d%n", this.backtracks));
+        sb.append(String.format("Swaps tried:     %d (%.0f/s)%n", this.swapsTried, this.swapsTried / seconds));
+        sb.append(String.format("Swaps reverted:  %d%n", this.swapsReverted));
+        sb.append(String.format("Restarts:        %d%n", this.restarts));
+        sb.append(String.format("Tracker queries: %d (%.0f/s)", this.trackerQueries, this.trackerQueries / seconds));
+        return sb.toString();
+    }
+
+    /** Returns the CPU time used by all the threads of the process, if the JVM supports it. */
+    static long processCpuNanos() {
+        var bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean).getProcessCpuTime();
+        }
+        return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+    }
+}
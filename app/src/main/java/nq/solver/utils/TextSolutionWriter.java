@@ -0,0 +1,75 @@
+package nq.solver.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes solutions as text, either as a board with one line per row, or as a list of columns like
+ * `List.toString()` does.
+ *
+ * Every board row is rendered into the same reusable buffer, which is written out in one go, so
+ * the output doesn't cost a call per cell. Consecutive boards are separated by an empty line.
+ */
+public class TextSolutionWriter implements SolutionWriter {
+    final OutputStream out;
+    final int boardSize;
+    final boolean board;
+
+    /** A rendered board row, which is reset to empty cells after each write. */
+    final byte[] row;
+    final StringBuilder line = new StringBuilder();
+    long written;
+
+    public TextSolutionWriter(OutputStream out, int boardSize, boolean board) {
+        this.out = new BufferedOutputStream(out, 1 << 16);
+        this.boardSize = boardSize;
+        this.board = board;
+
+        this.row = new byte[board ? 2 * boardSize + 1 : 0];
+        for (int i = 0; i + 1 < this.row.length; i += 2) {
+            this.row[i] = ' ';
+            this.row[i + 1] = '.';
+        }
+        if (board) {
+            this.row[this.row.length - 1] = '\n';
+        }
+    }
+
+    @Override
+    public void write(int[] positions, int length) throws IOException {
+        if (!this.board) {
+            this.line.setLength(0);
+            this.line.append(Arrays.toString(Arrays.copyOf(positions, length))).append('\n');
+            this.out.write(this.line.toString().getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+
+        if (this.written++ > 0) {
+            this.out.write('\n');
+        }
+        // Rows without a queen (beyond the given length) are printed empty.
+        for (int y = 0; y < this.boardSize; y++) {
+            int x = y < length ? positions[y] : -1;
+            if (x >= 0) {
+                this.row[2 * x + 1] = 'X';
+            }
+            this.out.write(this.row);
+            if (x >= 0) {
+                this.row[2 * x + 1] = '.';
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+}
@@ -1,9 +1,18 @@
 package nq.solver.utils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.tuple.Pair;
 
+import com.google.common.primitives.Ints;
+
 public class Utils {
     public static double slope(Pair<Integer, Integer> a, Pair<Integer, Integer> b) {
         double dx = a.getLeft() - b.getLeft();
@@ -12,21 +21,126 @@ public class Utils {
         return dx / dy;
     }
 
-    public static void printChessboard(List<Integer> positions, int boardSize) {
-        for (int i = 0; i < boardSize; i++) {
-            int x = -1;
-            if (i < positions.size()) {
-                x = positions.get(i);
-            }
+    /**
+     * Throws a `CancellationException` if the current thread was interrupted. Long running solvers
+     * call this periodically, so that they can be cancelled with `Future.cancel(true)`.
+     */
+    public static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Solver was interrupted");
+        }
+    }
 
-            for (int j = 0; j < boardSize; j++) {
-                if (j == x) {
-                    System.out.print(" X");
-                } else {
-                    System.out.print(" .");
+    /**
+     * Waits until all the tasks of the executor, which must be shut down, have exited. The wait
+     * goes on even if the current thread is interrupted, since the tasks may still be using state
+     * that the caller is about to reuse. The interrupt is restored afterwards.
+     */
+    public static void awaitTermination(ExecutorService executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
                 }
+            } catch (InterruptedException e) {
+                interrupted = true;
             }
-            System.out.println();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Shuffles the first `length` entries of the array in place (Fisher-Yates). */
+    public static void shuffle(int[] values, int length, SplittableRandom random) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+    }
+
+    /**
+     * Returns the greatest common divisor of two non-negative integers. Uses the binary algorithm,
+     * which only needs shifts and subtractions instead of divisions.
+     */
+    public static int gcd(int a, int b) {
+        if (a == 0 || b == 0) {
+            return a | b;
+        }
+        int shift = Integer.numberOfTrailingZeros(a | b);
+        a >>>= Integer.numberOfTrailingZeros(a);
+        while (b != 0) {
+            b >>>= Integer.numberOfTrailingZeros(b);
+            if (a > b) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+            b -= a;
+        }
+        return a << shift;
+    }
+
+    /**
+     * Returns a key that uniquely identifies the direction of the vector (dx, dy), such that two
+     * vectors share the same key iff they lie on the same line through the origin. The vector is
+     * reduced by the gcd of its components, and its sign is normalized so that dy > 0, or dx > 0
+     * if dy = 0.
+     */
+    public static long directionKey(int dx, int dy) {
+        int g = gcd(Math.abs(dx), Math.abs(dy));
+        if (g > 1) {
+            dx /= g;
+            dy /= g;
+        }
+        if (dy < 0 || (dy == 0 && dx < 0)) {
+            dx = -dx;
+            dy = -dy;
+        }
+        return ((long) dx << 32) | (dy & 0xffffffffL);
+    }
+
+    /** Scrambles the bits of a 64-bit key, for use in open-addressing hash tables. */
+    public static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * Returns a list view over the solution, which boxes the positions only as they are read, or an
+     * empty list if the solution is null.
+     */
+    public static List<Integer> asList(int[] solution) {
+        if (solution == null) {
+            return new ArrayList<Integer>();
+        }
+        return Ints.asList(solution);
+    }
+
+    /** Prints the positions as a board, with empty rows beyond the given positions. */
+    public static void printChessboard(List<Integer> positions, int boardSize) {
+        var writer = new TextSolutionWriter(System.out, boardSize, true);
+        try {
+            writer.write(positions);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Prints the first `length` positions as a board, with empty rows beyond them. */
+    public static void printChessboard(int[] positions, int length, int boardSize) {
+        var writer = new TextSolutionWriter(System.out, boardSize, true);
+        try {
+            writer.write(positions, length);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 }
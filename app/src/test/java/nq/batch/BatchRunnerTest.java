@@ -0,0 +1,196 @@
+package nq.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import nq.solver.SolutionCache;
+import nq.solver.utils.BoardValidator;
+import nq.solver.utils.CollisionsTracker;
+
+public class BatchRunnerTest {
+    static final Pattern RESULT = Pattern
+            .compile("n=(\\d+) algorithm=(\\w+) check=(true|false) time=[0-9.]+ms solution=\\[([0-9, ]*)\\]");
+
+    @Test
+    void testParse() {
+        var job = Job.parse(" 12  minconflicts -x --seed=7 ");
+        assertEquals(12, job.boardSize);
+        assertEquals("minconflicts", job.algorithm);
+        assertEquals(false, job.enable3QueensInLineCheck);
+        assertEquals(7L, job.seed);
+
+        job = Job.parse("9");
+        assertEquals("backtracking", job.algorithm);
+        assertEquals(true, job.enable3QueensInLineCheck);
+        assertEquals(null, job.seed);
+
+        assertThrows(IllegalArgumentException.class, () -> Job.parse("nine"));
+        assertThrows(IllegalArgumentException.class, () -> Job.parse("7"));
+        assertThrows(IllegalArgumentException.class, () -> Job.parse("12 bogus"));
+        assertThrows(IllegalArgumentException.class, () -> Job.parse("12 bitmask --bogus"));
+
+        job = Job.parse("12 -x --queens=0:3,5:7 --forbid=1:1");
+        assertEquals(Job.COMPLETION, job.algorithm);
+        assertEquals(3, job.board.getQueen(0));
+        assertTrue(job.board.isForbidden(1, 1));
+        assertEquals("n=12 algorithm=completion check=false queens=2 forbidden=1", job.toString());
+
+        assertThrows(IllegalArgumentException.class, () -> Job.parse("12 bitmask --queens=0:3"));
+        assertThrows(IllegalArgumentException.class, () -> Job.parse("12 --queens=0:3 --timeout=10"));
+
+        job = Job.parse("12 gradient --timeout=250");
+        assertEquals(Duration.ofMillis(250), job.timeout);
+        assertThrows(IllegalArgumentException.class, () -> Job.parse("12 gradient --timeout=0"));
+        assertThrows(IllegalArgumentException.class, () -> Job.parse("12 gradient --timeout=soon"));
+        assertThrows(IllegalArgumentException.class, () -> Job.parse("12 --queens=0:12"));
+    }
+
+    @Test
+    void testRunKeepsTheOrder() throws IOException {
+        var input = new StringBuilder("# board sizes from 30 down to 8\n\n");
+        for (int n = 30; n >= 8; n--) {
+            input.append(n).append(n % 2 == 0 ? " bitmask\n" : " minconflicts -x\n");
+        }
+        input.append("3 bitmask\n");
+
+        var out = new StringWriter();
+        try (var runner = new BatchRunner(4)) {
+            runner.run(new BufferedReader(new StringReader(input.toString())), out);
+        }
+
+        var lines = out.toString().split("\n");
+        assertEquals(24, lines.length);
+        for (int i = 0; i < 23; i++) {
+            var matcher = RESULT.matcher(lines[i]);
+            assertTrue(matcher.matches(), "Unexpected result line: " + lines[i]);
+            int n = Integer.parseInt(matcher.group(1));
+            assertEquals(30 - i, n);
+
+            boolean check = Boolean.parseBoolean(matcher.group(3));
+            var solution = new ArrayList<Integer>();
+            for (var column : matcher.group(4).split(", ")) {
+                solution.add(Integer.parseInt(column));
+            }
+            var checker = new CollisionsTracker(n, check, solution);
+            assertEquals(0, checker.countAllDiagAndLineCollisions(solution), "Invalid solution: " + lines[i]);
+        }
+        assertTrue(lines[23].startsWith("job=\"3 bitmask\" error="), "Unexpected result line: " + lines[23]);
+    }
+
+    @Test
+    void testRunCompletions() throws IOException {
+        // More jobs than may be pending at once, on only 5 boards up to symmetry.
+        var input = new StringBuilder();
+        for (int i = 0; i < 3 * BatchRunner.MAX_PENDING_PER_THREAD; i++) {
+            int x = i % 10;
+            input.append(i % 2 == 0 ? String.format("10 -x --queens=0:%d\n", x)
+                    : String.format("10 -x --queens=9:%d\n", 9 - x));
+        }
+
+        var out = new StringWriter();
+        try (var runner = new BatchRunner(1)) {
+            runner.run(new BufferedReader(new StringReader(input.toString())), out);
+            var solver = runner.completionSolvers.get("10/false");
+            assertEquals(5, solver.getMisses());
+        }
+
+        var lines = out.toString().split("\n");
+        assertEquals(3 * BatchRunner.MAX_PENDING_PER_THREAD, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            var matcher = RESULT.matcher(lines[i].replace(" queens=1 forbidden=0", ""));
+            assertTrue(matcher.matches(), "Unexpected result line: " + lines[i]);
+            var solution = new ArrayList<Integer>();
+            for (var column : matcher.group(4).split(", ")) {
+                solution.add(Integer.parseInt(column));
+            }
+            assertEquals(i % 2 == 0 ? i % 10 : 9 - i % 10, solution.get(i % 2 == 0 ? 0 : 9));
+            var checker = new CollisionsTracker(10, false, solution);
+            assertEquals(0, checker.countAllDiagAndLineCollisions(solution), "Invalid solution: " + lines[i]);
+        }
+    }
+
+    @Test
+    void testTimeouts() {
+        try (var runner = new BatchRunner(1)) {
+            var line = runner.run("60 gradient --timeout=300");
+            assertTrue(line.matches(".* time=[0-9.]+ms (timeout=true conflicts=\\d+ best|solution)=\\[[0-9, ]+\\]"),
+                    "Unexpected result line: " + line);
+
+            runner.setTimeout(Duration.ofMillis(20));
+            line = runner.run("40 backtracking");
+            assertTrue(line.endsWith(" timeout=true solution=[]"), "Unexpected result line: " + line);
+            assertTrue(RESULT.matcher(runner.run("12 bitmask")).matches());
+        }
+    }
+
+    @Test
+    void testReusesSolvers() {
+        try (var runner = new BatchRunner(1)) {
+            runner.run("10 minconflicts -x");
+            var solver = runner.idleSolvers.get("minconflicts/10/false").peek();
+            runner.run("10 minconflicts -x");
+            assertSame(solver, runner.idleSolvers.get("minconflicts/10/false").peek());
+            assertEquals(1, runner.idleSolvers.get("minconflicts/10/false").size());
+
+            // The jobs with a seed get a fresh solver, which isn't kept.
+            runner.run("10 minconflicts -x --seed=3");
+            assertSame(solver, runner.idleSolvers.get("minconflicts/10/false").peek());
+            assertEquals(1, runner.idleSolvers.get("minconflicts/10/false").size());
+        }
+    }
+
+    @Test
+    void testRepeatedPortfolioJobs() throws Exception {
+        // Without a cache, every job solves again.
+        try (var runner = new BatchRunner(2, new SolutionCache(0))) {
+            var results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 100; i++) {
+                results.add(runner.submit("30 portfolio -x"));
+            }
+            for (var result : results) {
+                var matcher = RESULT.matcher(result.get());
+                assertTrue(matcher.matches(), result.get());
+                var solution = Arrays.stream(matcher.group(4).split(", ")).mapToInt(Integer::parseInt).toArray();
+                assertTrue(BoardValidator.isValidSolution(30, false, solution), result.get());
+            }
+            // The portfolio runs its members on threads of its own, so it's never shared between jobs.
+            assertEquals(null, runner.idleSolvers.get("portfolio/30/false"));
+        }
+    }
+
+    @Test
+    void testAdmission() throws Exception {
+        try (var runner = new BatchRunner(1, new SolutionCache(16), 2)) {
+            runner.setMaxBoardSize(50);
+            assertTrue(runner.run("51 bitmask").endsWith(" error=\"Board size 51 is over the limit of 50.\""));
+
+            // The first job keeps the only thread busy, so the next two are queued, and the last one rejected.
+            var running = runner.submit("40 backtracking --timeout=300");
+            var queued = List.of(runner.submit("12 bitmask"), runner.submit("8 bitmask"));
+            assertEquals("job=\"9 bitmask\" error=\"Too many queued jobs (2).\"", runner.submit("9 bitmask").get());
+
+            assertTrue(running.get().endsWith(" timeout=true solution=[]"));
+            for (var result : queued) {
+                assertTrue(RESULT.matcher(result.get()).matches(), result.get());
+            }
+            assertEquals(0, runner.getExecutor().getQueueDepth());
+            assertEquals(3, runner.getExecutor().getLatencies().getCount());
+            assertTrue(runner.summary().contains("1 rejected"), runner.summary());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package nq.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.Test;
+
+public class BatchServerTest {
+    @Test
+    void testSolve() throws IOException, InterruptedException {
+        try (var server = new BatchServer(new BatchRunner(2), 0)) {
+            server.start();
+            var client = HttpClient.newHttpClient();
+            var uri = URI.create("http://localhost:" + server.getPort() + "/solve");
+
+            var request = HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofString("12 bitmask\n9 -x\n"))
+                    .build();
+            var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            var lines = response.body().split("\n");
+            assertEquals(2, lines.length);
+            assertTrue(lines[0].startsWith("n=12 algorithm=bitmask check=true "), lines[0]);
+            assertTrue(lines[1].startsWith("n=9 algorithm=constructive check=false "), lines[1]);
+
+            var get = HttpRequest.newBuilder(uri).GET().build();
+            assertEquals(405, client.send(get, HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+    }
+}
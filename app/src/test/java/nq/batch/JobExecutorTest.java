@@ -0,0 +1,92 @@
+package nq.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+public class JobExecutorTest {
+    @Test
+    void testClientsTakeTurns() throws Exception {
+        try (var executor = new JobExecutor(1, 100)) {
+            var release = new CountDownLatch(1);
+            var blocker = executor.submit("blocker", () -> {
+                release.await();
+                return null;
+            });
+
+            // While the only thread is busy, client a queues 4 jobs before b and c queue theirs.
+            var order = Collections.synchronizedList(new ArrayList<String>());
+            var futures = new ArrayList<CompletableFuture<Boolean>>();
+            for (var job : List.of("a1", "a2", "a3", "a4", "b1", "b2", "c1")) {
+                futures.add(executor.submit(job.substring(0, 1), () -> order.add(job)));
+            }
+            assertEquals(7, executor.getQueueDepth());
+
+            release.countDown();
+            blocker.get();
+            for (var future : futures) {
+                future.get();
+            }
+            assertEquals(List.of("a1", "b1", "c1", "a2", "b2", "a3", "a4"), order);
+            assertEquals(8, executor.getLatencies().getCount());
+        }
+    }
+
+    @Test
+    void testAdmission() throws Exception {
+        var executor = new JobExecutor(1, 1);
+        var release = new CountDownLatch(1);
+        var blocker = executor.submit("a", () -> {
+            release.await();
+            return 1;
+        });
+        var queued = executor.submit("a", () -> 2);
+        assertThrows(RejectedExecutionException.class, () -> executor.submit("b", () -> 3));
+
+        release.countDown();
+        assertEquals(1, blocker.get());
+        assertEquals(2, queued.get());
+        // There's room again once the queue is drained.
+        assertEquals(3, executor.submit("b", () -> 3).get());
+        assertTrue(executor.summary().contains("1 rejected"), executor.summary());
+
+        var failing = executor.submit("a", () -> {
+            throw new IllegalStateException("failed");
+        });
+        var e = assertThrows(ExecutionException.class, failing::get);
+        assertTrue(e.getCause() instanceof IllegalStateException);
+
+        executor.close();
+        assertThrows(RejectedExecutionException.class, () -> executor.submit("a", () -> 4));
+    }
+
+    @Test
+    void testCloseCancelsTheQueuedJobs() throws Exception {
+        var executor = new JobExecutor(1, 10);
+        var started = new CountDownLatch(1);
+        var running = executor.submit("a", () -> {
+            started.countDown();
+            Thread.sleep(60_000);
+            return 1;
+        });
+        var queued = executor.submit("a", () -> 2);
+        started.await();
+        executor.close();
+
+        assertTrue(queued.isCancelled());
+        var e = assertThrows(ExecutionException.class, running::get);
+        assertTrue(e.getCause() instanceof InterruptedException);
+        assertThrows(CancellationException.class, queued::get);
+    }
+}
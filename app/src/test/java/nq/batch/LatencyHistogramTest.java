@@ -0,0 +1,41 @@
+package nq.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+    @Test
+    void testBuckets() {
+        for (long value : new long[] { 0, 1, 15, 16, 17, 31, 32, 33, 1000, 123_456_789, Long.MAX_VALUE }) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.highestValueOf(bucket), "value " + value);
+            assertTrue(bucket == 0 || value > LatencyHistogram.highestValueOf(bucket - 1), "value " + value);
+            // The buckets are at most 1/16 of their values wide.
+            assertTrue(LatencyHistogram.highestValueOf(bucket) - value <= value / 16, "value " + value);
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void testPercentiles() {
+        var histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+
+        // 1 to 1000 microseconds.
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(1_000_000, histogram.getPercentile(100));
+        for (double percentile : new double[] { 1, 50, 90, 99, 99.9 }) {
+            long expected = (long) (percentile * 10_000);
+            long actual = histogram.getPercentile(percentile);
+            assertTrue(actual >= expected && actual <= expected + expected / 16,
+                    String.format("p%s=%d, expected about %d", percentile, actual, expected));
+        }
+        assertTrue(histogram.summary().startsWith("Latency:         p50=0.5"), histogram.summary());
+    }
+}
@@ -0,0 +1,74 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import nq.solver.utils.BoardValidator;
+
+public class AnnealingSolverTest {
+    @Test
+    void testSolve() {
+        for (int i = 4; i < 40; i++) {
+            var solution = new AnnealingSolver(i, false).solveInto(new int[i]);
+            assertTrue(BoardValidator.isValidSolution(i, false, solution), "Invalid solution for N=" + i);
+        }
+    }
+
+    @Test
+    void testSolveWith3QueensInLineCheck() {
+        for (int i = 8; i < 20; i++) {
+            var solver = new AnnealingSolver(i, true, 1, new SplittableRandom(i));
+            var solution = solver.solveInto(new int[i]);
+            assertTrue(BoardValidator.isValidSolution(i, true, solution), "Invalid solution for N=" + i);
+        }
+    }
+
+    @Test
+    void testParallelTempering() {
+        for (int i = 8; i < 20; i++) {
+            var solver = new AnnealingSolver(i, true, 3, 0.2, 1.5, new SplittableRandom(i));
+            var solution = solver.solveInto(new int[i]);
+            assertTrue(BoardValidator.isValidSolution(i, true, solution), "Invalid solution for N=" + i);
+        }
+    }
+
+    @Test
+    void testStopsTheReplicasBeforeReturning() {
+        // Too hard to solve before the deadline, so every solve is interrupted.
+        var solver = new AnnealingSolver(200, true, 4, new SplittableRandom(1));
+        for (int i = 0; i < 5; i++) {
+            var result = new DeadlineSolver(solver, 200, true, Duration.ofMillis(50)).solveWithDeadline();
+            assertTrue(result.timedOut);
+            boolean running = Thread.getAllStackTraces().values().stream().flatMap(Arrays::stream)
+                    .map(StackTraceElement::getClassName)
+                    .anyMatch(name -> name.equals(AnnealingSolver.class.getName())
+                            || name.startsWith(AnnealingSolver.class.getName() + "$"));
+            assertFalse(running, "A replica is still running after the solve returned");
+        }
+    }
+
+    @Test
+    void testSameSeedGivesSameSolution() {
+        for (long seed = 0; seed < 5; seed++) {
+            var first = new AnnealingSolver(12, true, 1, new SplittableRandom(seed)).solveInto(new int[12]);
+            var second = new AnnealingSolver(12, true, 1, new SplittableRandom(seed)).solveInto(new int[12]);
+            assertArrayEquals(first, second, "Solver is not reproducible with seed " + seed);
+        }
+    }
+
+    @Test
+    void testInvalidSchedule() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new AnnealingSolver(8, true, 0, new SplittableRandom()));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AnnealingSolver(8, true, 1, 2, 1, new SplittableRandom()));
+    }
+}
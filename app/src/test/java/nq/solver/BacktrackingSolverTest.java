@@ -1,9 +1,19 @@
 package nq.solver;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import nq.solver.utils.Checkpoint;
 import nq.solver.utils.CollisionsTracker;
 
 public class BacktrackingSolverTest {
@@ -30,4 +40,36 @@ public class BacktrackingSolverTest {
                     String.format("Solver generated invlid solution w/ %d conflicts: %s", collisions, solution));
         }
     }
+
+    @Test
+    void testResume(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("backtracking.ckpt");
+        int n = 14;
+        var expected = new BacktrackingSolver(n, true).solveInto(new int[n]);
+
+        // Interrupted at the first check, after a few thousand nodes.
+        var interrupted = new BacktrackingSolver(n, true);
+        interrupted.setCheckpoint(Checkpoint.open(file, "backtracking", n, true, false));
+        Thread.currentThread().interrupt();
+        assertThrows(CancellationException.class, () -> interrupted.solveInto(new int[n]));
+        assertTrue(Thread.interrupted());
+
+        var resumed = new BacktrackingSolver(n, true);
+        var checkpoint = Checkpoint.open(file, "backtracking", n, true, true);
+        resumed.setCheckpoint(checkpoint);
+        assertArrayEquals(expected, resumed.solveInto(new int[n]));
+        assertEquals(1, checkpoint.getWritten());
+
+        // The solution is saved too, so resuming again just returns it.
+        resumed.setCheckpoint(Checkpoint.open(file, "backtracking", n, true, true));
+        assertArrayEquals(expected, resumed.solveInto(new int[n]));
+
+        // And so is a search that found nothing.
+        var none = new BacktrackingSolver(3, false);
+        var empty = directory.resolve("none.ckpt");
+        none.setCheckpoint(Checkpoint.open(empty, "backtracking", 3, false, false));
+        assertNull(none.solveInto(new int[3]));
+        none.setCheckpoint(Checkpoint.open(empty, "backtracking", 3, false, true));
+        assertNull(none.solveInto(new int[3]));
+    }
 }
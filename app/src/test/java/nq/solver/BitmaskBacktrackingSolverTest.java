@@ -0,0 +1,35 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import nq.solver.utils.CollisionsTracker;
+
+public class BitmaskBacktrackingSolverTest {
+    @Test
+    void testSolve() {
+        for (int i = 4; i < 30; i++) {
+            var solver = new BitmaskBacktrackingSolver(i, false);
+            var checker = new CollisionsTracker(i, false);
+            var solution = solver.solve();
+            checker.recalculateAttacksTables(solution);
+            int collisions = checker.countAllDiagAndLineCollisions(solution);
+            assertTrue(collisions == 0,
+                    String.format("Solver generated invlid solution w/ %d conflicts: %s", collisions, solution));
+        }
+    }
+
+    @Test
+    void testSolveWith3QueensInLineCheck() {
+        for (int i = 8; i < 20; i++) {
+            var solver = new BitmaskBacktrackingSolver(i, true);
+            var checker = new CollisionsTracker(i, true);
+            var solution = solver.solve();
+            checker.recalculateAttacksTables(solution);
+            int collisions = checker.countAllDiagAndLineCollisions(solution);
+            assertTrue(collisions == 0,
+                    String.format("Solver generated invlid solution w/ %d conflicts: %s", collisions, solution));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class BitmaskSearchTest {
+    static final int[] SOLUTIONS_COUNT = { 1, 0, 0, 2, 10, 4, 40, 92, 352, 724 };
+
+    @Test
+    void enumeratesAllSolutions() {
+        for (int n = 1; n <= SOLUTIONS_COUNT.length; n++) {
+            for (boolean multiWord : new boolean[] { false, true }) {
+                var search = new BitmaskSearch(n, false, multiWord);
+                int count = 0;
+                while (search.next()) {
+                    count++;
+                }
+                assertEquals(SOLUTIONS_COUNT[n - 1], count, String.format("N=%d, multiWord=%b", n, multiWord));
+            }
+        }
+    }
+
+    @Test
+    void singleAndMultiWordLayoutsAgree() {
+        for (boolean check : new boolean[] { false, true }) {
+            var single = new BitmaskSearch(10, check, false);
+            var multi = new BitmaskSearch(10, check, true);
+            while (single.next()) {
+                assertTrue(multi.next());
+                assertArrayEquals(single.positions(), multi.positions());
+            }
+            assertFalse(multi.next());
+        }
+    }
+
+    @Test
+    void searchesWithinPrefix() {
+        var search = new BitmaskSearch(8, false);
+        search.reset(new int[] { 0, 4 }, 2);
+        int count = 0;
+        while (search.next()) {
+            assertEquals(0, search.positions()[0]);
+            assertEquals(4, search.positions()[1]);
+            count++;
+        }
+        assertEquals(1, count);
+
+        // An invalid prefix has no solutions.
+        search.reset(new int[] { 0, 1 }, 2);
+        assertFalse(search.next());
+
+        // A full prefix is its own single solution.
+        search.reset(new int[] { 0, 4, 7, 5, 2, 6, 1, 3 }, 8);
+        assertTrue(search.next());
+        assertFalse(search.next());
+    }
+}
@@ -0,0 +1,98 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.common.primitives.Ints;
+
+import nq.solver.utils.BoardValidator;
+
+public class CachingSolverTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSolvesOnlyOnce() {
+        var cache = new SolutionCache(16);
+        var solves = new AtomicInteger();
+        for (int i = 8; i < 20; i++) {
+            var bitmask = new BitmaskBacktrackingSolver(i, true);
+            Solver counting = () -> {
+                solves.incrementAndGet();
+                return bitmask.solve();
+            };
+            var solver = new CachingSolver(counting, i, true, null, cache);
+            var first = solver.solve();
+            var second = solver.solve();
+            assertEquals(first, second);
+            assertTrue(BoardValidator.isValidSolution(i, true, Ints.toArray(second)));
+        }
+        assertEquals(12, solves.get());
+        assertEquals(12, cache.getHits());
+        assertEquals(12, cache.getMisses());
+    }
+
+    @Test
+    void testKeys() {
+        var cache = new SolutionCache(16);
+        cache.put(8, true, null, new int[] { 0 });
+        assertNotNull(cache.get(8, true, null));
+        assertNull(cache.get(8, false, null));
+        assertNull(cache.get(8, true, 7L));
+        assertNull(cache.get(9, true, null));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        var cache = new SolutionCache(2);
+        cache.put(8, true, null, new int[] { 8 });
+        cache.put(9, true, null, new int[] { 9 });
+        cache.get(8, true, null);
+        cache.put(10, true, null, new int[] { 10 });
+        assertNotNull(cache.get(8, true, null));
+        assertNull(cache.get(9, true, null));
+        assertNotNull(cache.get(10, true, null));
+    }
+
+    @Test
+    void testRejectsInvalidSolutions() {
+        var cache = new SolutionCache(16);
+        cache.put(8, false, null, new int[] { 0, 1, 2, 3, 4, 5, 6, 7 });
+        var solver = new CachingSolver(new BitmaskBacktrackingSolver(8, false), 8, false, null, cache);
+        var solution = solver.solve();
+        assertTrue(BoardValidator.isValidSolution(8, false, Ints.toArray(solution)));
+        assertEquals(1, cache.getRejected());
+        assertEquals(solution, Ints.asList(cache.get(8, false, null)));
+    }
+
+    @Test
+    void testPersistsOnDisk() throws IOException {
+        var directory = this.tempDir.resolve("cache");
+        List<Integer> expected;
+        try (var cache = new SolutionCache(16, directory)) {
+            expected = new CachingSolver(new MinConflictsSolver(100, false, 7L), 100, false, 7L, cache).solve();
+            new CachingSolver(new BitmaskBacktrackingSolver(10, true), 10, true, null, cache).solve();
+        }
+
+        try (var cache = new SolutionCache(16, directory)) {
+            Solver failing = () -> {
+                throw new AssertionError("The solution should have been cached");
+            };
+            assertEquals(expected, new CachingSolver(failing, 100, false, 7L, cache).solve());
+            var solution = new CachingSolver(failing, 10, true, null, cache).solve();
+            assertTrue(BoardValidator.isValidSolution(10, true, Ints.toArray(solution)));
+            assertEquals(2, cache.getDiskHits());
+            assertNull(cache.get(100, false, 8L));
+        }
+    }
+}
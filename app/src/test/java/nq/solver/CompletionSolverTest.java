@@ -0,0 +1,123 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import nq.solver.utils.BoardValidator;
+
+public class CompletionSolverTest {
+    /** Checks that the completion is a valid solution which respects the board. */
+    static void assertCompletes(PartialBoard board, boolean check, int[] completion) {
+        int n = board.getBoardSize();
+        assertTrue(BoardValidator.isValidSolution(n, check, completion), "Invalid completion");
+        for (int y = 0; y < n; y++) {
+            if (board.getQueen(y) >= 0) {
+                assertEquals(board.getQueen(y), completion[y], "Moved the queen in row " + y);
+            }
+            assertTrue(!board.isForbidden(completion[y], y), "Placed a queen in a forbidden cell in row " + y);
+        }
+    }
+
+    @Test
+    void testComplete() {
+        var board = PartialBoard.parse(12, "0:3,5:7", "1:1");
+        var solver = new CompletionSolver(12, true);
+        assertCompletes(board, true, solver.complete(board, new int[12]));
+
+        // Big boards use the multi word layout of the search.
+        board = PartialBoard.parse(80, "0:40,79:3,20:21", "1:0,1:1,1:2");
+        solver = new CompletionSolver(80, false);
+        assertCompletes(board, false, solver.complete(board, new int[80]));
+    }
+
+    @Test
+    void testNoCompletion() {
+        var solver = new CompletionSolver(8, true);
+        // The queens attack each other through a diagonal or a line.
+        assertNull(solver.complete(PartialBoard.parse(8, "0:0,1:1", null), new int[8]));
+        assertNull(solver.complete(PartialBoard.parse(8, "0:0,1:2,2:4", null), new int[8]));
+        // A queen in a forbidden cell, and a row without allowed cells.
+        assertNull(solver.complete(PartialBoard.parse(8, "0:0", "0:0"), new int[8]));
+        assertNull(solver.complete(PartialBoard.parse(8, null, "3:0,3:1,3:2,3:3,3:4,3:5,3:6,3:7"), new int[8]));
+
+        assertThrows(IllegalArgumentException.class, () -> solver.complete(new PartialBoard(9), new int[9]));
+    }
+
+    @Test
+    void testMatchesAllSolutions() {
+        // Compare against the full list of solutions, for random boards with and without completions.
+        for (var check : new boolean[] { false, true }) {
+            int n = 8;
+            List<int[]> solutions = new SolutionEnumerator(n, check).stream(false)
+                    .map(solution -> solution.stream().mapToInt(Integer::intValue).toArray())
+                    .collect(Collectors.toList());
+            var solver = new CompletionSolver(n, check);
+            var random = new SplittableRandom(42);
+
+            for (int i = 0; i < 300; i++) {
+                var board = new PartialBoard(n);
+                // Up to 3 queens, so that the placed queens can make a line by themselves.
+                int queens = random.nextInt(4);
+                for (int q = 0; q < queens; q++) {
+                    int x = random.nextInt(n);
+                    int y = random.nextInt(n);
+                    if (board.getQueen(y) < 0 && IntStream.range(0, n).noneMatch(row -> board.getQueen(row) == x)) {
+                        board.place(x, y);
+                    }
+                }
+                int forbidden = random.nextInt(12);
+                for (int f = 0; f < forbidden; f++) {
+                    board.forbid(random.nextInt(n), random.nextInt(n));
+                }
+
+                boolean completable = solutions.stream().anyMatch(solution -> completes(board, solution));
+                var completion = solver.complete(board, new int[n]);
+                if (completable) {
+                    assertNotNull(completion, "Missed a completion");
+                    assertCompletes(board, check, completion);
+                } else {
+                    assertNull(completion, "Found an impossible completion");
+                }
+            }
+        }
+    }
+
+    private static boolean completes(PartialBoard board, int[] solution) {
+        for (int y = 0; y < solution.length; y++) {
+            if ((board.getQueen(y) >= 0 && board.getQueen(y) != solution[y]) || board.isForbidden(solution[y], y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    void testSymmetricBoardsShareTheCache() {
+        int n = 11;
+        var board = PartialBoard.parse(n, "0:2,4:7", "1:0,2:9");
+        var solver = new CompletionSolver(n, true);
+        var expected = solver.complete(board, new int[n]);
+        assertCompletes(board, true, expected);
+        assertEquals(1, solver.getMisses());
+
+        for (int symmetry = 1; symmetry < 8; symmetry++) {
+            var symmetric = board.transform(symmetry);
+            var completion = solver.complete(symmetric, new int[n]);
+            assertCompletes(symmetric, true, completion);
+            assertArrayEquals(PartialBoard.transformSolution(expected, symmetry, new int[n]), completion);
+        }
+        assertEquals(7, solver.getHits());
+        assertEquals(1, solver.getMisses());
+    }
+}
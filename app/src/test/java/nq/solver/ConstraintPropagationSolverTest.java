@@ -0,0 +1,55 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import nq.solver.utils.BoardValidator;
+
+public class ConstraintPropagationSolverTest {
+    @Test
+    void testSolve() {
+        for (int i = 4; i < 70; i++) {
+            var solution = new ConstraintPropagationSolver(i, false).solveInto(new int[i]);
+            assertTrue(BoardValidator.isValidSolution(i, false, solution), "Invalid solution for N=" + i);
+        }
+    }
+
+    @Test
+    void testSolveWith3QueensInLineCheck() {
+        for (int i = 8; i < 40; i++) {
+            var solution = new ConstraintPropagationSolver(i, true).solveInto(new int[i]);
+            assertTrue(BoardValidator.isValidSolution(i, true, solution), "Invalid solution for N=" + i);
+        }
+    }
+
+    @Test
+    void testNoSolution() {
+        assertNull(new ConstraintPropagationSolver(3, false).solveInto(new int[3]));
+        // The solver is reused, so the trail must be restored before the next run.
+        var solver = new ConstraintPropagationSolver(6, true);
+        assertNull(solver.solveInto(new int[6]));
+        assertNull(solver.solveInto(new int[6]));
+    }
+
+    @Test
+    void testDeepSearchOnSmallStack() throws InterruptedException {
+        // Only the cells of a known solution are allowed, so the search goes N rows deep at once.
+        int n = 5000;
+        var expected = new ConstructiveSolver(n, false).solveInto(new int[n]);
+        var solver = new ConstraintPropagationSolver(n, false);
+        var allowed = new long[n * solver.words];
+        for (int y = 0; y < n; y++) {
+            allowed[y * solver.words + (expected[y] >>> 6)] |= 1L << expected[y];
+        }
+
+        var found = new boolean[1];
+        var thread = new Thread(null, () -> found[0] = solver.solveWithin(allowed), "search", 64 * 1024);
+        thread.start();
+        thread.join();
+        assertTrue(found[0], "No solution found within the allowed cells");
+        assertArrayEquals(expected, solver.positions);
+    }
+}
@@ -0,0 +1,38 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.primitives.Ints;
+
+import nq.solver.utils.BoardValidator;
+
+public class ConstructiveSolverTest {
+    @Test
+    void testSolve() {
+        for (int i = 4; i < 2000; i++) {
+            var solution = new ConstructiveSolver(i, false).solve();
+            assertTrue(BoardValidator.isValidSolution(i, false, Ints.toArray(solution)),
+                    String.format("Solver generated invalid solution for N=%d: %s", i, solution));
+        }
+    }
+
+    @Test
+    void testSolveLargeBoard() {
+        // One board for each remainder of N mod 6.
+        for (int i = 1000000; i < 1000006; i++) {
+            var solution = new ConstructiveSolver(i, false).solveInto(new int[i]);
+            assertTrue(BoardValidator.isValidSolution(i, false, solution), "Invalid solution for N=" + i);
+        }
+    }
+
+    @Test
+    void testNoSolution() {
+        assertNull(new ConstructiveSolver(2, false).solveInto(new int[2]));
+        assertNull(new ConstructiveSolver(3, false).solveInto(new int[3]));
+        assertThrows(IllegalArgumentException.class, () -> new ConstructiveSolver(8, true));
+    }
+}
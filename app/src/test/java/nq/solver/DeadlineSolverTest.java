@@ -0,0 +1,146 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import nq.solver.utils.BoardValidator;
+import nq.solver.utils.Utils;
+
+public class DeadlineSolverTest {
+    /** A solver that never finds a solution, and always has the same best board. */
+    static class StuckSolver implements Solver {
+        static final int[] BEST = { 0, 1, 2, 3, 4, 5, 6, 7 };
+
+        final CountDownLatch started = new CountDownLatch(1);
+        volatile boolean interrupted;
+
+        @Override
+        public List<Integer> solve() {
+            return Utils.asList(this.solveInto(new int[8]));
+        }
+
+        @Override
+        public int[] solveInto(int[] out) {
+            this.started.countDown();
+            try {
+                while (true) {
+                    Utils.checkInterrupted();
+                    Thread.onSpinWait();
+                }
+            } catch (CancellationException e) {
+                this.interrupted = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public int[] bestSoFar(int[] out) {
+            System.arraycopy(BEST, 0, out, 0, 8);
+            return out;
+        }
+    }
+
+    @Test
+    void testTimeout() {
+        var stuck = new StuckSolver();
+        var result = new DeadlineSolver(stuck, 8, true, Duration.ofMillis(50)).solveWithDeadline();
+
+        assertTrue(stuck.interrupted);
+        assertTrue(result.timedOut);
+        assertFalse(result.isSolved());
+        assertArrayEquals(StuckSolver.BEST, result.board);
+        assertEquals(SolveResult.countConflicts(StuckSolver.BEST, true), result.conflicts);
+        assertTrue(result.conflicts > 0);
+        // Without the line check, only the diagonal that all the queens share counts.
+        assertEquals(7, SolveResult.countConflicts(StuckSolver.BEST, false));
+        // The interrupt of the deadline doesn't leak out of the solve.
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    void testSolvesBeforeTheDeadline() throws InterruptedException {
+        var solver = new DeadlineSolver(new MinConflictsSolver(30, true, 7), 30, true, Duration.ofMinutes(1));
+        var result = solver.solveWithDeadline();
+        assertFalse(result.timedOut);
+        assertTrue(result.isSolved());
+        assertTrue(BoardValidator.isValidSolution(30, true, result.board));
+        assertArrayEquals(result.board, solver.bestSoFar(new int[30]));
+
+        // The pending deadline must not interrupt whatever the thread does next.
+        Thread.sleep(10);
+        assertFalse(Thread.currentThread().isInterrupted());
+
+        result = new DeadlineSolver(new BitmaskBacktrackingSolver(3, false), 3, false, Duration.ofMinutes(1))
+                .solveWithDeadline();
+        assertFalse(result.timedOut);
+        assertNull(result.board);
+    }
+
+    @Test
+    void testBestSoFarOfLocalSearches() {
+        // Hard enough that the searches are usually stopped before they finish, but after their first pass.
+        int n = 60;
+        var solvers = List.of(new GradientHeuristicSolver(n, true, 1), new MinConflictsSolver(n, true, 1),
+                new AnnealingSolver(n, true, 1, new SplittableRandom(1)),
+                new AnnealingSolver(n, true, 2, new SplittableRandom(1)));
+        for (var solver : solvers) {
+            var result = new DeadlineSolver(solver, n, true, Duration.ofMillis(300)).solveWithDeadline();
+            assertNotNull(result.board, "No best board for " + solver.getClass().getSimpleName());
+            assertEquals(SolveResult.countConflicts(result.board, true), result.conflicts);
+            assertEquals(result.isSolved(), BoardValidator.isValidSolution(n, true, result.board));
+        }
+    }
+
+    @Test
+    void testCancelledByOthers() {
+        Solver interrupting = () -> {
+            Thread.currentThread().interrupt();
+            Utils.checkInterrupted();
+            return List.of();
+        };
+        var solver = new DeadlineSolver(interrupting, 8, true, Duration.ofMinutes(1));
+        assertThrows(CancellationException.class, solver::solveWithDeadline);
+        assertTrue(Thread.interrupted());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new DeadlineSolver(interrupting, 8, true, Duration.ZERO));
+    }
+
+    @Test
+    void testSolveAsync() throws Exception {
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var solver = new DeadlineSolver(new MinConflictsSolver(20, true, 3), 20, true, Duration.ofMinutes(1));
+            var result = solver.solveAsync(executor).get(1, TimeUnit.MINUTES);
+            assertTrue(BoardValidator.isValidSolution(20, true, result.board));
+
+            var stuck = new StuckSolver();
+            var future = new DeadlineSolver(stuck, 8, true, Duration.ofMinutes(1)).solveAsync(executor);
+            assertTrue(stuck.started.await(1, TimeUnit.MINUTES));
+            future.cancel(true);
+            assertTrue(future.isCancelled());
+
+            // The executor is free again, and its thread isn't left interrupted.
+            var next = executor.submit(() -> Thread.currentThread().isInterrupted());
+            assertFalse(next.get(1, TimeUnit.MINUTES));
+            assertTrue(stuck.interrupted);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,9 +1,19 @@
 package nq.solver;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import nq.solver.utils.BoardValidator;
+import nq.solver.utils.Checkpoint;
 import nq.solver.utils.CollisionsTracker;
 
 public class GradientHeuristicSolverTest {
@@ -30,4 +40,52 @@ public class GradientHeuristicSolverTest {
                     String.format("Solver generated invlid solution w/ %d conflicts: %s", collisions, solution));
         }
     }
+
+    @Test
+    void testSameSeedGivesSameSolution() {
+        for (long seed = 0; seed < 5; seed++) {
+            var first = new GradientHeuristicSolver(50, false, seed).solve();
+            var second = new GradientHeuristicSolver(50, false, seed).solve();
+            assertEquals(first, second, "Solver is not reproducible with seed " + seed);
+        }
+    }
+
+    @Test
+    void testResume(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("gradient.ckpt");
+        int n = 100;
+        for (long seed = 0; seed < 5; seed++) {
+            // Interrupted at the first row of the first pass, right after the shuffle.
+            var interrupted = new GradientHeuristicSolver(n, false, seed);
+            interrupted.setCheckpoint(Checkpoint.open(file, "gradient", n, false, false));
+            Thread.currentThread().interrupt();
+            assertThrows(CancellationException.class, () -> interrupted.solveInto(new int[n]));
+            assertTrue(Thread.interrupted());
+
+            // The resumed solve does the same first pass, even with another seed.
+            var resumed = new GradientHeuristicSolver(n, false, seed + 100);
+            resumed.setCheckpoint(Checkpoint.open(file, "gradient", n, false, true));
+            var solution = resumed.solveInto(new int[n]);
+            assertTrue(BoardValidator.isValidSolution(n, false, solution));
+
+            var replayed = new GradientHeuristicSolver(n, false, seed);
+            var expected = replayed.solveInto(new int[n]);
+            if (replayed.restarts == 0) {
+                assertArrayEquals(expected, solution);
+                assertEquals(0, resumed.restarts);
+            }
+        }
+
+        // A solved board at the end of a pass, after 41 restarts.
+        int[] solved = { 1, 3, 0, 2 };
+        Checkpoint.open(file, "gradient", 4, false, false).write(out -> {
+            out.writeLong(41);
+            out.writeInt(3);
+            Checkpoint.writeInts(out, solved, 4);
+        });
+        var resumed = new GradientHeuristicSolver(4, false, 1);
+        resumed.setCheckpoint(Checkpoint.open(file, "gradient", 4, false, true));
+        assertArrayEquals(solved, resumed.solveInto(new int[4]));
+        assertEquals(41, resumed.restarts);
+    }
 }
@@ -0,0 +1,71 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import nq.solver.utils.CollisionsTracker;
+
+public class MinConflictsSolverTest {
+    @Test
+    void testSolve() {
+        for (int i = 4; i < 500; i++) {
+            var solver = new MinConflictsSolver(i, false);
+            var solution = solver.solve();
+            var checker = new CollisionsTracker(i, false, solution);
+            int collisions = checker.countAllDiagAndLineCollisions(solution);
+            assertTrue(collisions == 0,
+                    String.format("Solver generated invlid solution w/ %d conflicts: %s", collisions, solution));
+        }
+    }
+
+    @Test
+    void testSolveLargeBoard() {
+        var solver = new MinConflictsSolver(100000, false);
+        var solution = solver.solve();
+        var checker = new CollisionsTracker(100000, false, solution);
+        assertTrue(checker.countAllDiagCollisions() == 0, "Solver generated invalid solution for N=100000");
+    }
+
+    @Test
+    void testSolveWith3QueensInLineCheck() {
+        for (int i = 8; i < 20; i++) {
+            var solver = new MinConflictsSolver(i, true);
+            var solution = solver.solve();
+            var checker = new CollisionsTracker(i, true, solution);
+            int collisions = checker.countAllDiagAndLineCollisions(solution);
+            assertTrue(collisions == 0,
+                    String.format("Solver generated invlid solution w/ %d conflicts: %s", collisions, solution));
+        }
+    }
+
+    @Test
+    void testCostCountsEveryConflict() {
+        var random = new SplittableRandom(7);
+        var solver = new MinConflictsSolver(12, true, 7);
+        solver.initialize();
+        for (int move = 0; move < 200; move++) {
+            solver.move(random.nextInt(12), random.nextInt(12));
+            // Place the queens one by one, so that the excess grows by the lines each one completes.
+            var checker = new CollisionsTracker(12, true);
+            int lineExcess = 0;
+            for (int row = 0; row < 12; row++) {
+                lineExcess += checker.countLinesThrough(solver.solution[row], row);
+                checker.recordDiagCollision(solver.solution[row], row, +1);
+            }
+            assertEquals(checker.countAllDiagCollisions() + lineExcess, solver.cost(), "Wrong cost after move " + move);
+        }
+    }
+
+    @Test
+    void testSameSeedGivesSameSolution() {
+        for (long seed = 0; seed < 5; seed++) {
+            var first = new MinConflictsSolver(200, false, seed).solve();
+            var second = new MinConflictsSolver(200, false, seed).solve();
+            assertEquals(first, second, "Solver is not reproducible with seed " + seed);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nq.solver.utils.BoardValidator;
+import nq.solver.utils.OffHeapBoard;
+
+public class OffHeapMinConflictsSolverTest {
+    @Test
+    void testSolve() {
+        for (int i = 4; i < 300; i++) {
+            var solver = new OffHeapMinConflictsSolver(OffHeapBoard.allocate(i), new SplittableRandom(i));
+            var solution = solver.solveInto(new int[i]);
+            assertTrue(BoardValidator.isValidSolution(i, false, solution), "Invalid solution for N=" + i);
+        }
+    }
+
+    @Test
+    void testSameSearchAsMinConflicts() {
+        // Only the storage differs, so the same seed walks through the same boards.
+        for (long seed = 0; seed < 3; seed++) {
+            var expected = new MinConflictsSolver(2000, false, seed).solveInto(new int[2000]);
+            var actual = new OffHeapMinConflictsSolver(OffHeapBoard.allocate(2000), new SplittableRandom(seed))
+                    .solveInto(new int[2000]);
+            assertArrayEquals(expected, actual, "Different solution with seed " + seed);
+        }
+    }
+
+    @Test
+    void testResume(@TempDir Path directory) throws IOException {
+        int n = 300_000;
+        var file = directory.resolve("board.bin");
+        try (var board = OffHeapBoard.map(file, n, false)) {
+            // Checkpoints as often as it can.
+            var solver = new OffHeapMinConflictsSolver(board, new SplittableRandom(1), 0);
+            var result = new DeadlineSolver(solver, n, false, Duration.ofMillis(200)).solveWithDeadline();
+            assertTrue(result.timedOut, "Solved before the deadline, so there's nothing to resume");
+        }
+
+        try (var board = OffHeapBoard.map(file, n, true)) {
+            long checkpoints = board.getCheckpoints();
+            long steps = board.getSteps();
+            assertTrue(checkpoints > 0);
+
+            var solver = new OffHeapMinConflictsSolver(board, new SplittableRandom(2), 0);
+            var solution = solver.solveInto(new int[n]);
+            assertTrue(BoardValidator.isValidSolution(n, false, solution));
+            assertTrue(solver.steps >= steps);
+            assertTrue(board.getCheckpoints() > checkpoints);
+            assertEquals(board.getSteps(), solver.steps);
+        }
+
+        // The solution was checkpointed too.
+        try (var board = OffHeapBoard.map(file, n, true)) {
+            assertTrue(BoardValidator.isValidSolution(n, false, board.copyInto(new int[n])));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import nq.solver.utils.CollisionsTracker;
+
+public class ParallelBacktrackingSolverTest {
+    @Test
+    void testSolve() {
+        for (int i = 4; i < 30; i++) {
+            var solver = new ParallelBacktrackingSolver(i, false, 4);
+            var checker = new CollisionsTracker(i, false);
+            var solution = solver.solve();
+            checker.recalculateAttacksTables(solution);
+            int collisions = checker.countAllDiagAndLineCollisions(solution);
+            assertTrue(collisions == 0,
+                    String.format("Solver generated invlid solution w/ %d conflicts: %s", collisions, solution));
+        }
+    }
+
+    @Test
+    void testSolveWith3QueensInLineCheck() {
+        for (int i = 8; i < 20; i++) {
+            var solver = new ParallelBacktrackingSolver(i, true, 4);
+            var checker = new CollisionsTracker(i, true);
+            var solution = solver.solve();
+            checker.recalculateAttacksTables(solution);
+            int collisions = checker.countAllDiagAndLineCollisions(solution);
+            assertTrue(collisions == 0,
+                    String.format("Solver generated invlid solution w/ %d conflicts: %s", collisions, solution));
+        }
+    }
+
+    @Test
+    void testStopsTheWorkersBeforeReturning() {
+        // Too hard to solve before the deadline, so every solve is interrupted.
+        var solver = new ParallelBacktrackingSolver(30, true, 4);
+        for (int i = 0; i < 5; i++) {
+            var result = new DeadlineSolver(solver, 30, true, Duration.ofMillis(50)).solveWithDeadline();
+            assertTrue(result.timedOut);
+            boolean running = Thread.getAllStackTraces().values().stream().flatMap(Arrays::stream)
+                    .map(StackTraceElement::getClassName)
+                    .anyMatch(name -> name.equals(ParallelBacktrackingSolver.class.getName())
+                            || name.startsWith(ParallelBacktrackingSolver.class.getName() + "$"));
+            assertFalse(running, "A worker is still running after the solve returned");
+        }
+    }
+}
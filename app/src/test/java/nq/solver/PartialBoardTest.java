@@ -0,0 +1,55 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class PartialBoardTest {
+    @Test
+    void testParse() {
+        var board = PartialBoard.parse(8, "0:3, 5:7", "1:1");
+        assertEquals(3, board.getQueen(0));
+        assertEquals(7, board.getQueen(5));
+        assertEquals(-1, board.getQueen(1));
+        assertTrue(board.isForbidden(1, 1));
+        assertEquals(2, board.countQueens());
+        assertEquals(1, board.countForbidden());
+
+        assertEquals(0, PartialBoard.parse(8, null, " ").countQueens());
+        assertThrows(IllegalArgumentException.class, () -> PartialBoard.parse(8, "0:8", null));
+        assertThrows(IllegalArgumentException.class, () -> PartialBoard.parse(8, "0:1,0:2", null));
+        assertThrows(IllegalArgumentException.class, () -> PartialBoard.parse(8, "0:1,5:1", null));
+        assertThrows(IllegalArgumentException.class, () -> PartialBoard.parse(8, null, "1-1"));
+        assertThrows(IllegalArgumentException.class, () -> PartialBoard.parse(8, "a:b", null));
+    }
+
+    @Test
+    void testInverse() {
+        var board = PartialBoard.parse(9, "0:3,4:1,8:8", "2:5,7:0");
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            assertEquals(board, board.transform(symmetry).transform(PartialBoard.inverse(symmetry)),
+                    "Symmetry " + symmetry);
+        }
+
+        var solution = new int[] { 0, 4, 7, 5, 2, 6, 1, 3 };
+        var transformed = new int[8];
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            PartialBoard.transformSolution(solution, symmetry, transformed);
+            assertArrayEquals(solution,
+                    PartialBoard.transformSolution(transformed, PartialBoard.inverse(symmetry), new int[8]));
+        }
+    }
+
+    @Test
+    void testCanonicalForm() {
+        var board = PartialBoard.parse(10, "1:2,6:9", "0:0,3:4");
+        var canonical = board.transform(board.canonicalSymmetry());
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            var symmetric = board.transform(symmetry);
+            assertEquals(canonical, symmetric.transform(symmetric.canonicalSymmetry()), "Symmetry " + symmetry);
+        }
+    }
+}
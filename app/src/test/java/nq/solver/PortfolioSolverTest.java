@@ -0,0 +1,129 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import nq.solver.utils.BoardValidator;
+import nq.solver.utils.CollisionsTracker;
+
+public class PortfolioSolverTest {
+    @Test
+    void testSolve() {
+        for (int i = 4; i < 30; i++) {
+            var solver = SolverFactory.create("portfolio", i, false, 4);
+            var checker = new CollisionsTracker(i, false);
+            var solution = solver.solve();
+            checker.recalculateAttacksTables(solution);
+            int collisions = checker.countAllDiagAndLineCollisions(solution);
+            assertTrue(collisions == 0,
+                    String.format("Solver generated invlid solution w/ %d conflicts: %s", collisions, solution));
+        }
+    }
+
+    @Test
+    void testSolveWith3QueensInLineCheck() {
+        for (int i = 8; i < 20; i++) {
+            var solver = SolverFactory.createPortfolio(List.of("bitmask", "minconflicts"), i, true, 2);
+            var checker = new CollisionsTracker(i, true);
+            var solution = solver.solve();
+            checker.recalculateAttacksTables(solution);
+            int collisions = checker.countAllDiagAndLineCollisions(solution);
+            assertTrue(collisions == 0,
+                    String.format("Solver generated invlid solution w/ %d conflicts: %s", collisions, solution));
+        }
+    }
+
+    @Test
+    void testSkipsInvalidSolutionsAndCancelsTheRest() throws InterruptedException {
+        var interrupted = new CountDownLatch(1);
+        Solver invalid = () -> List.of(0, 1, 2, 3, 4, 5, 6, 7);
+        Solver failing = () -> {
+            throw new IllegalStateException("Broken solver");
+        };
+        Solver slow = () -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return new ArrayList<Integer>();
+        };
+        Solver valid = () -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(3, 6, 2, 7, 1, 4, 0, 5);
+        };
+
+        var solver = new PortfolioSolver(8, false, List.of(invalid, failing, slow, valid), 4);
+        assertEquals(List.of(3, 6, 2, 7, 1, 4, 0, 5), solver.solve());
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS), "The slow solver was not cancelled");
+    }
+
+    /** Counts the solves of the wrapped solver that start while another one is still running. */
+    static class OverlapCountingSolver implements Solver {
+        final Solver solver;
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps;
+
+        OverlapCountingSolver(Solver solver, AtomicInteger overlaps) {
+            this.solver = solver;
+            this.overlaps = overlaps;
+        }
+
+        @Override
+        public List<Integer> solve() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int[] solveInto(int[] out) {
+            if (this.running.incrementAndGet() > 1) {
+                this.overlaps.incrementAndGet();
+            }
+            try {
+                return this.solver.solveInto(out);
+            } finally {
+                this.running.decrementAndGet();
+            }
+        }
+    }
+
+    @Test
+    void testReusedPortfolioWaitsForItsSolvers() {
+        int n = 40;
+        var overlaps = new AtomicInteger();
+        var solvers = new ArrayList<Solver>();
+        for (int seed = 0; seed < 3; seed++) {
+            solvers.add(new OverlapCountingSolver(new MinConflictsSolver(n, false, seed), overlaps));
+            solvers.add(new OverlapCountingSolver(new GradientHeuristicSolver(n, false, seed), overlaps));
+        }
+        var portfolio = new PortfolioSolver(n, false, solvers, solvers.size());
+        for (int i = 0; i < 300; i++) {
+            var solution = portfolio.solveInto(new int[n]);
+            assertTrue(BoardValidator.isValidSolution(n, false, solution));
+        }
+        assertEquals(0, overlaps.get());
+    }
+
+    @Test
+    void testFailsIfEverySolverFails() {
+        Solver failing = () -> {
+            throw new IllegalStateException("Broken solver");
+        };
+        var solver = new PortfolioSolver(8, false, List.of(failing, failing), 2);
+        var e = assertThrows(IllegalStateException.class, solver::solve);
+        assertEquals("Broken solver", e.getCause().getMessage());
+    }
+}
@@ -0,0 +1,32 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import nq.solver.utils.BoardValidator;
+
+public class SatSolverTest {
+    @Test
+    void testSolve() {
+        for (int i = 4; i < 30; i++) {
+            var solution = new SatSolver(i, false).solveInto(new int[i]);
+            assertTrue(BoardValidator.isValidSolution(i, false, solution), "Invalid solution for N=" + i);
+        }
+    }
+
+    @Test
+    void testSolveWith3QueensInLineCheck() {
+        for (int i = 8; i < 30; i++) {
+            var solution = new SatSolver(i, true).solveInto(new int[i]);
+            assertTrue(BoardValidator.isValidSolution(i, true, solution), "Invalid solution for N=" + i);
+        }
+    }
+
+    @Test
+    void testNoSolution() {
+        assertNull(new SatSolver(3, false).solveInto(new int[3]));
+        assertNull(new SatSolver(6, true).solveInto(new int[6]));
+    }
+}
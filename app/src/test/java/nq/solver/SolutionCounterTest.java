@@ -0,0 +1,107 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nq.solver.utils.Checkpoint;
+import nq.solver.utils.SolverMetrics;
+
+public class SolutionCounterTest {
+    static final long[] TOTAL_COUNT = { 1, 0, 0, 2, 10, 4, 40, 92, 352, 724, 2680 };
+    static final long[] UNIQUE_COUNT = { 1, 0, 0, 1, 2, 1, 6, 12, 46, 92, 341 };
+
+    @Test
+    void testCount() {
+        for (int n = 1; n <= TOTAL_COUNT.length; n++) {
+            var counts = new SolutionCounter(n, false, 2).count();
+            assertEquals(TOTAL_COUNT[n - 1], counts.total, "Total for N=" + n);
+            assertEquals(UNIQUE_COUNT[n - 1], counts.unique, "Unique for N=" + n);
+        }
+    }
+
+    @Test
+    void testCountWith3QueensInLineCheck() {
+        for (int n = 8; n <= 11; n++) {
+            // Brute force all the solutions and group them by their smallest symmetry.
+            var search = new BitmaskSearch(n, true);
+            var canonicals = new HashSet<String>();
+            long total = 0;
+            while (search.next()) {
+                total++;
+                canonicals.add(Arrays.toString(smallestSymmetry(search.positions())));
+            }
+
+            var counts = new SolutionCounter(n, true, 2).count();
+            assertEquals(total, counts.total, "Total for N=" + n);
+            assertEquals(canonicals.size(), counts.unique, "Unique for N=" + n);
+        }
+    }
+
+    @Test
+    void testResume(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("count.ckpt");
+        int n = 10;
+        var counter = new SolutionCounter(n, false, 2);
+        counter.setCheckpoint(Checkpoint.open(file, "count", n, false, false, 0));
+        counter.count();
+        int prefixes = counter.getFinishedPrefixes();
+
+        // All the prefixes are finished, so nothing is searched again.
+        var resumed = new SolutionCounter(n, false, 2);
+        var metrics = new SolverMetrics();
+        resumed.setMetrics(metrics);
+        resumed.setCheckpoint(Checkpoint.open(file, "count", n, false, true));
+        var counts = resumed.count();
+        assertEquals(TOTAL_COUNT[n - 1], counts.total);
+        assertEquals(UNIQUE_COUNT[n - 1], counts.unique);
+        assertEquals(0, metrics.getNodes());
+        assertEquals(prefixes, resumed.getFinishedPrefixes());
+
+        // Only the first prefix, (0, 2), is finished, with made up counts that replace its own.
+        Checkpoint.open(file, "count", n, false, false).write(out -> {
+            out.writeInt(1);
+            out.writeInt(0);
+            out.writeLong(1000);
+            out.writeLong(100);
+        });
+        var first = counter.countPrefix(new BitmaskSearch(n, false), new int[] { 0, 2 });
+        resumed = new SolutionCounter(n, false, 2);
+        resumed.setCheckpoint(Checkpoint.open(file, "count", n, false, true));
+        counts = resumed.count();
+        assertEquals(TOTAL_COUNT[n - 1] - first.total + 1000, counts.total);
+        assertEquals(UNIQUE_COUNT[n - 1] - first.unique + 100, counts.unique);
+    }
+
+    static int[] smallestSymmetry(int[] solution) {
+        int n = solution.length;
+        int[] smallest = null;
+        for (int rotation = 0; rotation < 4; rotation++) {
+            for (boolean mirror : new boolean[] { false, true }) {
+                var board = solution.clone();
+                for (int r = 0; r < rotation; r++) {
+                    var rotated = new int[n];
+                    for (int y = 0; y < n; y++) {
+                        rotated[board[y]] = n - 1 - y;
+                    }
+                    board = rotated;
+                }
+                if (mirror) {
+                    for (int y = 0; y < n; y++) {
+                        board[y] = n - 1 - board[y];
+                    }
+                }
+                if (smallest == null || Arrays.compare(board, smallest) < 0) {
+                    smallest = board;
+                }
+            }
+        }
+        return smallest;
+    }
+}
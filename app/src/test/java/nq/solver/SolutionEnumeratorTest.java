@@ -0,0 +1,142 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nq.solver.utils.Checkpoint;
+import nq.solver.utils.CollisionsTracker;
+
+public class SolutionEnumeratorTest {
+    /** Known number of solutions of the traditional n-queens, for N = 0..10. */
+    static final long[] TOTALS = { 1, 1, 0, 0, 2, 10, 4, 40, 92, 352, 724 };
+
+    @Test
+    void testIterator() {
+        for (int i = 4; i <= 10; i++) {
+            var seen = new HashSet<List<Integer>>();
+            var iterator = new SolutionEnumerator(i, false).iterator();
+            while (iterator.hasNext()) {
+                var solution = iterator.next();
+                var checker = new CollisionsTracker(i, false, solution);
+                assertEquals(0, checker.countAllDiagAndLineCollisions(solution), "Invalid solution " + solution);
+                assertTrue(seen.add(solution), "Duplicate solution " + solution);
+            }
+            assertEquals(TOTALS[i], seen.size(), "Wrong number of solutions for N=" + i);
+        }
+    }
+
+    @Test
+    void testParallelStreamMatchesSequential() {
+        for (int i = 4; i <= 10; i++) {
+            var enumerator = new SolutionEnumerator(i, false);
+            var sequential = enumerator.stream(false).collect(Collectors.toList());
+            var parallel = enumerator.stream(true).collect(Collectors.toList());
+            assertEquals(sequential, parallel, "Parallel stream lost the order for N=" + i);
+        }
+
+        for (int i = 8; i <= 11; i++) {
+            var enumerator = new SolutionEnumerator(i, true);
+            long count = enumerator.stream(true).count();
+            assertEquals(new SolutionCounter(i, true, 2).count().total, count, "Wrong number of solutions for N=" + i);
+        }
+    }
+
+    @Test
+    void testParallelStreamLimit() {
+        var solutions = new SolutionEnumerator(16, false).stream(true).unordered().limit(10)
+                .collect(Collectors.toList());
+        assertEquals(10, solutions.size());
+        for (var solution : solutions) {
+            var checker = new CollisionsTracker(16, false, solution);
+            assertEquals(0, checker.countAllDiagAndLineCollisions(solution), "Invalid solution " + solution);
+        }
+    }
+
+    @Test
+    void testResume(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("all.ckpt");
+        int n = 10;
+        // Stop partway through the subtrees of the first row.
+        var enumerator = new SolutionEnumerator(n, false);
+        enumerator.setCheckpoint(Checkpoint.open(file, "all", n, false, false, 0));
+        var first = enumerator.stream(false).limit(200).collect(Collectors.toList());
+        enumerator.saveCheckpoint();
+        assertNotEquals(0, enumerator.getFinishedPrefixes());
+
+        // The finished subtrees are skipped, and the one in progress is searched again.
+        var resumed = new SolutionEnumerator(n, false);
+        resumed.setCheckpoint(Checkpoint.open(file, "all", n, false, true));
+        var rest = resumed.stream(true).collect(Collectors.toSet());
+        assertFalse(rest.contains(first.get(0)), "Searched a finished subtree again");
+        var all = new HashSet<>(first);
+        all.addAll(rest);
+        assertEquals(TOTALS[n], all.size());
+
+        // Once a stream is done, every subtree is finished.
+        resumed.saveCheckpoint();
+        var done = new SolutionEnumerator(n, false);
+        done.setCheckpoint(Checkpoint.open(file, "all", n, false, true));
+        assertEquals(0, done.stream(true).count());
+    }
+
+    @Test
+    void testPublisherBackpressure() throws InterruptedException {
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var received = new ArrayList<List<Integer>>();
+            var firstBatch = new CountDownLatch(3);
+            var completed = new CountDownLatch(1);
+            var subscription = new Flow.Subscription[1];
+
+            new SolutionEnumerator(8, false).publisher(executor).subscribe(new Flow.Subscriber<List<Integer>>() {
+                @Override
+                public void onSubscribe(Flow.Subscription s) {
+                    subscription[0] = s;
+                    s.request(3);
+                }
+
+                @Override
+                public void onNext(List<Integer> item) {
+                    received.add(item);
+                    firstBatch.countDown();
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                }
+
+                @Override
+                public void onComplete() {
+                    completed.countDown();
+                }
+            });
+
+            assertTrue(firstBatch.await(10, TimeUnit.SECONDS));
+            // Nothing else is pushed until more solutions are requested.
+            assertFalse(completed.await(100, TimeUnit.MILLISECONDS));
+            assertEquals(3, received.size());
+
+            subscription[0].request(Long.MAX_VALUE);
+            assertTrue(completed.await(10, TimeUnit.SECONDS));
+            assertEquals(92, received.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
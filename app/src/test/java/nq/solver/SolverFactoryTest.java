@@ -0,0 +1,46 @@
+package nq.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import nq.solver.utils.BoardValidator;
+
+public class SolverFactoryTest {
+    @Test
+    void testSolveInto() {
+        for (var algorithm : SolverFactory.ALGORITHMS) {
+            for (int i = 8; i < 14; i++) {
+                var solver = SolverFactory.create(algorithm, i, false, 2);
+                var out = new int[i];
+                var solution = solver.solveInto(out);
+                assertSame(out, solution, "Solver didn't write into the given array for " + algorithm);
+                assertTrue(BoardValidator.isValidSolution(i, false, solution),
+                        String.format("Invalid solution from %s for N=%d", algorithm, i));
+            }
+        }
+    }
+
+    @Test
+    void testSolveIntoWithoutSolution() {
+        assertNull(SolverFactory.create("bitmask", 3, false, 1).solveInto(new int[3]));
+        assertNull(SolverFactory.create("backtracking", 3, false, 1).solveInto(new int[3]));
+        assertEquals(List.of(), SolverFactory.create("bitmask", 3, false, 1).solve());
+
+        // The default implementation copies from solve().
+        Solver boxed = () -> List.of(1, 3, 0, 2);
+        var out = boxed.solveInto(new int[4]);
+        assertTrue(BoardValidator.isValidSolution(4, false, out));
+    }
+
+    @Test
+    void testUnknownAlgorithm() {
+        assertThrows(IllegalArgumentException.class, () -> SolverFactory.create("bogus", 8, true, 1));
+    }
+}
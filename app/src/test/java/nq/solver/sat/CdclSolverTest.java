@@ -0,0 +1,117 @@
+package nq.solver.sat;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+public class CdclSolverTest {
+    @Test
+    void testCardinality() {
+        // Force every assignment of the literals, and check that only the allowed ones are SAT.
+        for (int n = 2; n <= 9; n++) {
+            for (int k = 1; k <= 2; k++) {
+                for (int mask = 0; mask < 1 << n; mask++) {
+                    var formula = new CnfFormula();
+                    var literals = new int[n];
+                    for (int i = 0; i < n; i++) {
+                        literals[i] = formula.newVariable();
+                    }
+                    Cardinality.atMostK(formula, literals, k);
+                    for (int i = 0; i < n; i++) {
+                        formula.addClause((mask >> i & 1) != 0 ? literals[i] : -literals[i]);
+                    }
+                    assertEquals(Integer.bitCount(mask) <= k, new CdclSolver(formula).solve(),
+                            String.format("n=%d k=%d mask=%d", n, k, mask));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testPigeonhole() {
+        // 7 pigeons don't fit in 6 holes, but 6 do.
+        for (int pigeons = 6; pigeons <= 7; pigeons++) {
+            int holes = 6;
+            var formula = new CnfFormula();
+            var variables = new int[pigeons][holes];
+            for (int p = 0; p < pigeons; p++) {
+                for (int h = 0; h < holes; h++) {
+                    variables[p][h] = formula.newVariable();
+                }
+                formula.addClause(variables[p]);
+            }
+            for (int h = 0; h < holes; h++) {
+                var hole = new int[pigeons];
+                for (int p = 0; p < pigeons; p++) {
+                    hole[p] = variables[p][h];
+                }
+                Cardinality.atMostOne(formula, hole);
+            }
+            assertEquals(pigeons <= holes, new CdclSolver(formula).solve());
+        }
+    }
+
+    @Test
+    void testRandom3Sat() {
+        // Below the threshold of ~4.26 clauses per variable most formulas are SAT, and the
+        // models must satisfy every clause.
+        var random = new SplittableRandom(3);
+        for (int attempt = 0; attempt < 50; attempt++) {
+            var formula = new CnfFormula();
+            for (int i = 0; i < 60; i++) {
+                formula.newVariable();
+            }
+            for (int i = 0; i < 240; i++) {
+                formula.addClause(random.nextBoolean() ? 1 + random.nextInt(60) : -1 - random.nextInt(60),
+                        random.nextBoolean() ? 1 + random.nextInt(60) : -1 - random.nextInt(60),
+                        random.nextBoolean() ? 1 + random.nextInt(60) : -1 - random.nextInt(60));
+            }
+            var solver = new CdclSolver(formula);
+            if (!solver.solve()) {
+                continue;
+            }
+            var model = solver.getModel();
+            for (int i = 0; i < formula.getClauseCount(); i++) {
+                boolean satisfied = false;
+                for (int literal : formula.getClause(i)) {
+                    satisfied |= model[Math.abs(literal)] == literal > 0;
+                }
+                assertTrue(satisfied, "Clause " + i + " is not satisfied");
+            }
+        }
+    }
+
+    @Test
+    void testEmptyClause() {
+        var formula = new CnfFormula();
+        int x = formula.newVariable();
+        formula.addClause(x);
+        formula.addClause(-x);
+        assertFalse(new CdclSolver(formula).solve());
+    }
+
+    @Test
+    void testDimacs() throws Exception {
+        var formula = new CnfFormula();
+        int x = formula.newVariable();
+        int y = formula.newVariable();
+        formula.addClause(x, -y);
+        formula.addClause(y);
+        var out = new StringWriter();
+        formula.writeDimacs(out);
+        assertEquals("p cnf 2 2\n1 -2 0\n2 0\n", out.toString());
+    }
+
+    @Test
+    void testLuby() {
+        assertArrayEquals(new long[] { 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8 },
+                LongStream.range(0, 15).map(i -> CdclSolver.luby((int) i)).toArray());
+    }
+}
@@ -0,0 +1,33 @@
+package nq.solver.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class BestSoFarTest {
+    @Test
+    void testKeepsTheLowestCost() {
+        var best = new BestSoFar(4);
+        assertNull(best.copyInto(new int[4]));
+        assertEquals(Integer.MAX_VALUE, best.getCost());
+
+        var board = new int[] { 0, 1, 2, 3 };
+        assertTrue(best.offer(board, 5));
+        // The board is copied, so the search can keep changing its own.
+        board[0] = 3;
+        board[3] = 0;
+        assertFalse(best.offer(board, 5));
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, best.copyInto(new int[4]));
+
+        assertTrue(best.offer(board, 2));
+        assertEquals(2, best.getCost());
+        assertArrayEquals(new int[] { 3, 1, 2, 0 }, best.copyInto(new int[4]));
+
+        best.reset();
+        assertNull(best.copyInto(new int[4]));
+    }
+}
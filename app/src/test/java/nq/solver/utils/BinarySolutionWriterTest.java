@@ -0,0 +1,64 @@
+package nq.solver.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BinarySolutionWriterTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRoundTrip() throws IOException {
+        var random = new SplittableRandom(42);
+        for (int n : new int[] { 1, 2, 4, 5, 8, 9, 31, 64, 100, 1000, 1025 }) {
+            var path = this.tempDir.resolve("solutions-" + n + ".bin");
+            var expected = new ArrayList<int[]>();
+            try (var writer = new BinarySolutionWriter(path, n)) {
+                for (int k = 0; k < 50; k++) {
+                    int[] positions = new int[n];
+                    for (int i = 0; i < n; i++) {
+                        positions[i] = i;
+                    }
+                    Utils.shuffle(positions, n, random);
+                    writer.write(positions, n);
+                    expected.add(positions);
+                }
+            }
+
+            int bits = BinarySolutionWriter.bitsPerRow(n);
+            assertEquals(BinarySolutionWriter.HEADER_BYTES + 50L * ((n * bits + 7) / 8), Files.size(path));
+            try (var reader = new BinarySolutionReader(path)) {
+                assertEquals(n, reader.getBoardSize());
+                assertEquals(50, reader.size());
+                // Read them backwards, to make sure that they are not read sequentially.
+                for (int k = 49; k >= 0; k--) {
+                    assertArrayEquals(expected.get(k), reader.get(k), "Wrong solution " + k + " for N=" + n);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testRejectsOtherFiles() throws IOException {
+        var path = this.tempDir.resolve("not-solutions.txt");
+        Files.writeString(path, "These are not the solutions you are looking for.");
+        assertThrows(IOException.class, () -> new BinarySolutionReader(path));
+    }
+
+    @Test
+    void testRejectsWrongBoardSize() throws IOException {
+        try (var writer = new BinarySolutionWriter(this.tempDir.resolve("solutions.bin"), 8)) {
+            assertThrows(IllegalArgumentException.class, () -> writer.write(new int[] { 0, 1, 2 }, 3));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package nq.solver.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import nq.solver.ConstructiveSolver;
+import nq.solver.MinConflictsSolver;
+
+public class BoardValidatorTest {
+    @Test
+    void testViolations() {
+        var validator = new BoardValidator(4, true);
+        assertNull(validator.findViolation(new int[] { 1, 3, 0, 2 }));
+        assertNotNull(validator.findViolation(new int[] { 1, 3, 0 }));
+        assertNotNull(validator.findViolation(new int[] { 1, 3, 0, 4 }));
+        assertNotNull(validator.findViolation(new int[] { 1, 1, 3, 0 }));
+        assertNotNull(validator.findViolation(new int[] { 0, 1, 3, 2 }));
+        // The board is reused, so a valid board after invalid ones must still pass.
+        assertTrue(validator.isValid(new int[] { 2, 0, 3, 1 }));
+    }
+
+    @Test
+    void testLineCheck() {
+        // Q1, Q2 and Q3 are in a line, from the README example.
+        var solution = new int[] { 1, 3, 5, 0, 2, 4 };
+        assertTrue(BoardValidator.isValidSolution(6, false, solution));
+        assertFalse(BoardValidator.isValidSolution(6, true, solution));
+    }
+
+    @Test
+    void testMatchesCollisionsTracker() {
+        var random = new SplittableRandom(17);
+        for (int n = 1; n <= 12; n++) {
+            var validator = new BoardValidator(n, true);
+            var tracker = new CollisionsTracker(n, true);
+            var solution = new int[n];
+            for (int i = 0; i < n; i++) {
+                solution[i] = i;
+            }
+            for (int attempt = 0; attempt < 2000; attempt++) {
+                Utils.shuffle(solution, n, random);
+                tracker.recalculateAttacksTables(solution, n);
+                boolean expected = tracker.countAllDiagAndLineCollisions(solution) == 0;
+                assertEquals(expected, validator.isValid(solution), "N=" + n);
+            }
+        }
+    }
+
+    @Test
+    void testParallel() {
+        var random = new SplittableRandom(5);
+        try (var parallel = new BoardValidator(64, true, 4)) {
+            var sequential = new BoardValidator(64, true);
+            var solution = new int[64];
+            for (int i = 0; i < 64; i++) {
+                solution[i] = i;
+            }
+            for (int attempt = 0; attempt < 200; attempt++) {
+                Utils.shuffle(solution, 64, random);
+                assertEquals(sequential.isValid(solution), parallel.isValid(solution));
+            }
+        }
+    }
+
+    @Test
+    void testParallelLineCheck() {
+        // Free of diagonal attacks, so only the lines decide, wherever they are on the board.
+        for (int n = 8; n < 24; n++) {
+            var sequential = new BoardValidator(n, true);
+            try (var parallel = new BoardValidator(n, true, 4)) {
+                for (long seed = 0; seed < 20; seed++) {
+                    var solution = new MinConflictsSolver(n, false, seed).solveInto(new int[n]);
+                    assertEquals(sequential.isValid(solution), parallel.isValid(solution), "N=" + n + " seed " + seed);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testLargeBoard() {
+        int n = 1_000_000;
+        var solution = new ConstructiveSolver(n, false).solveInto(new int[n]);
+        assertTrue(new BoardValidator(n, false).isValid(solution));
+
+        solution[n - 1] = solution[0];
+        assertFalse(new BoardValidator(n, false).isValid(solution));
+    }
+}
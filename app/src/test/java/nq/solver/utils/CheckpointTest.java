@@ -0,0 +1,74 @@
+package nq.solver.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CheckpointTest {
+    @Test
+    void testWriteAndResume(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("search.ckpt");
+        var checkpoint = Checkpoint.open(file, "backtracking", 8, true, false);
+        assertFalse(checkpoint.isResuming());
+        assertNull(checkpoint.resume(in -> in.readInt()));
+
+        checkpoint.write(out -> Checkpoint.writeInts(out, new int[] { 0, 4, 7, 5, 9 }, 4));
+        checkpoint.write(out -> Checkpoint.writeInts(out, new int[] { 0, 4, 7, 5, 2 }, 5));
+        assertEquals(2, checkpoint.getWritten());
+        // The temporary file was renamed over the checkpoint.
+        assertEquals(1, Files.list(directory).count());
+
+        var resumed = Checkpoint.open(file, "backtracking", 8, true, true);
+        assertTrue(resumed.isResuming());
+        var stack = new int[8];
+        int depth = resumed.resume(in -> Checkpoint.readInts(in, stack, 8));
+        assertEquals(5, depth);
+        assertArrayEquals(new int[] { 0, 4, 7, 5, 2, 0, 0, 0 }, stack);
+        // Only the first solve resumes.
+        assertFalse(resumed.isResuming());
+        assertNull(resumed.resume(in -> Checkpoint.readInts(in, stack, 8)));
+    }
+
+    @Test
+    void testRejectsOtherSearches(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("search.ckpt");
+        assertThrows(IOException.class, () -> Checkpoint.open(file, "backtracking", 8, true, true));
+
+        Checkpoint.open(file, "backtracking", 8, true, false).write(out -> out.writeInt(0));
+        assertThrows(IOException.class, () -> Checkpoint.open(file, "gradient", 8, true, true));
+        assertThrows(IOException.class, () -> Checkpoint.open(file, "backtracking", 9, true, true));
+        assertThrows(IOException.class, () -> Checkpoint.open(file, "backtracking", 8, false, true));
+
+        Files.write(file, new byte[] { 1, 2 });
+        assertThrows(IOException.class, () -> Checkpoint.open(file, "backtracking", 8, true, true));
+
+        // A column outside of the board.
+        Checkpoint.open(file, "backtracking", 8, true, false)
+                .write(out -> Checkpoint.writeInts(out, new int[] { 3, 8 }, 2));
+        var checkpoint = Checkpoint.open(file, "backtracking", 8, true, true);
+        assertThrows(UncheckedIOException.class, () -> checkpoint.resume(in -> Checkpoint.readInts(in, new int[8], 8)));
+    }
+
+    @Test
+    void testIsDue(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("search.ckpt");
+        var always = Checkpoint.open(file, "count", 8, false, false, 0);
+        assertTrue(always.isDue());
+        always.write(out -> out.writeInt(0));
+        assertTrue(always.isDue());
+
+        var rarely = Checkpoint.open(file, "count", 8, false, false);
+        assertFalse(rarely.isDue());
+    }
+}
@@ -28,6 +28,33 @@ public class CollisionsTrackerTest {
         assertEquals(tracker.countAllDiagAndLineCollisions(positions), 6);
     }
 
+    @Test
+    void lineAttacksAreExactOnLargeBoards() {
+        var tracker = new CollisionsTracker(2002, true);
+        // Slopes 1/1000 and 1/1001 are only ~1e-6 apart, and used to collide when rounded.
+        tracker.recordDiagCollision(1, 1000, +1);
+        tracker.recordDiagCollision(1, 1001, +1);
+        assertEquals(0, tracker.countLineAttacksAgainst(0, 0));
+
+        tracker.recordDiagCollision(2, 2000, +1);
+        assertEquals(1, tracker.countLineAttacksAgainst(0, 0));
+
+        tracker.recordDiagCollision(2, 2000, -1);
+        assertEquals(0, tracker.countLineAttacksAgainst(0, 0));
+    }
+
+    @Test
+    void countLinesThrough() {
+        var tracker = new CollisionsTracker(8, true, new int[] { 0, 1, 2, 7, 5 });
+        // (0, 0), (1, 1) and (2, 2) are on one line, and (7, 3) and (5, 4) on another one.
+        assertEquals(1, tracker.countLinesThrough(5, 5));
+        assertEquals(1, tracker.countLinesThrough(3, 5));
+        assertEquals(0, tracker.countLinesThrough(4, 6));
+        // The queen in the same row is ignored.
+        assertEquals(0, tracker.countLinesThrough(6, 4));
+        assertEquals(0, new CollisionsTracker(8, false, VALID_BOARD).countLinesThrough(3, 3));
+    }
+
     @TestFactory
     Stream<DynamicTest> testCountAttacksAgainst() {
         class TestData {
@@ -94,6 +121,12 @@ public class CollisionsTrackerTest {
                         tracker.countCrossAttacksAgainst(entry.positions, entry.checkPosition));
                 assertEquals(entry.expectedLineAttacks,
                         tracker.countLineAttacksAgainst(entry.positions, entry.checkPosition));
+
+                // The primitive overloads should agree with the pair-based ones.
+                int x = entry.checkPosition.getLeft();
+                int y = entry.checkPosition.getRight();
+                assertEquals(entry.expectedDiagAttacks, tracker.countDiagAttacksAgainst(x, y));
+                assertEquals(entry.expectedCrossAttacks, tracker.countCrossAttacksAgainst(x, y));
             });
         });
     }
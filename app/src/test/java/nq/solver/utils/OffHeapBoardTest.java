@@ -0,0 +1,111 @@
+package nq.solver.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OffHeapBoardTest {
+    static void assertSameCounts(int[] positions, OffHeapBoard board) {
+        var tracker = new CollisionsTracker(positions.length, false, positions);
+        assertEquals(tracker.countAllDiagCollisions(), board.countAllDiagCollisions());
+        for (int row = 0; row < positions.length; row++) {
+            assertEquals(tracker.countDiagAttacksAgainst(positions[row], row),
+                    board.countDiagAttacksAgainst(positions[row], row));
+        }
+    }
+
+    @Test
+    void testCountsLikeTheTracker() {
+        // All the queens on the same diagonal, which overflows its byte counter.
+        int n = 600;
+        var positions = new int[n];
+        var board = OffHeapBoard.allocate(n);
+        for (int row = 0; row < n; row++) {
+            positions[row] = row;
+            board.set(row, row);
+        }
+        board.recalculateDiagTables(n);
+        assertEquals(n - 1, board.countAllDiagCollisions());
+        assertEquals(1, board.overflowPositive.size());
+        assertSameCounts(positions, board);
+
+        // Shuffling the queens one swap at a time brings the counters back under the overflow.
+        var random = new SplittableRandom(1);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i);
+            board.recordDiagCollision(positions[i], i, -1);
+            board.recordDiagCollision(positions[j], j, -1);
+            int tmp = positions[i];
+            positions[i] = positions[j];
+            positions[j] = tmp;
+            board.set(i, positions[i]);
+            board.set(j, positions[j]);
+            board.recordDiagCollision(positions[i], i, +1);
+            board.recordDiagCollision(positions[j], j, +1);
+        }
+        assertTrue(board.overflowPositive.isEmpty());
+        assertSameCounts(positions, board);
+        assertArrayEquals(positions, board.copyInto(new int[n]));
+
+        assertThrows(IllegalArgumentException.class, () -> OffHeapBoard.allocate(OffHeapBoard.MAX_BOARD_SIZE + 1));
+    }
+
+    @Test
+    void testCheckpoint(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("board.bin");
+        assertThrows(IOException.class, () -> OffHeapBoard.map(file, 8, true));
+
+        var positions = new int[] { 2, 4, 6, 0, 3, 1, 7, 5 };
+        try (var board = OffHeapBoard.map(file, 8, false)) {
+            assertFalse(board.isResumed());
+            for (int row = 0; row < 8; row++) {
+                board.set(row, positions[row]);
+            }
+            board.checkpoint(true, 3, 4096);
+        }
+
+        try (var board = OffHeapBoard.map(file, 8, true)) {
+            assertTrue(board.isResumed());
+            assertTrue(board.isSearching());
+            assertEquals(3, board.getRestarts());
+            assertEquals(4096, board.getSteps());
+            assertEquals(1, board.getCheckpoints());
+            assertArrayEquals(positions, board.copyInto(new int[8]));
+            // The counters are rebuilt from the board.
+            assertSameCounts(positions, board);
+        }
+
+        assertThrows(IOException.class, () -> OffHeapBoard.map(file, 9, true));
+        try (var board = OffHeapBoard.map(file, 9, false)) {
+            assertEquals(0, board.getCheckpoints());
+        }
+    }
+
+    @Test
+    void testRepair(@TempDir Path directory) throws IOException {
+        // As if the process died halfway through some swaps.
+        var file = directory.resolve("board.bin");
+        try (var board = OffHeapBoard.map(file, 8, false)) {
+            var positions = new int[] { 2, 4, 2, 0, 9, 1, -1, 4 };
+            for (int row = 0; row < 8; row++) {
+                board.set(row, positions[row]);
+            }
+        }
+
+        try (var board = OffHeapBoard.map(file, 8, true)) {
+            var repaired = board.copyInto(new int[8]);
+            assertArrayEquals(new int[] { 2, 4, 3, 0, 5, 1, 6, 7 }, repaired);
+            assertSameCounts(repaired, board);
+            assertFalse(board.isSearching());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package nq.solver.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import nq.solver.SolverFactory;
+
+public class SolverMetricsTest {
+    @Test
+    void countsSearchWork() {
+        for (var algorithm : SolverFactory.ALGORITHMS) {
+            // The construction doesn't search, and doesn't support the line check anyway.
+            if (algorithm.equals("constructive")) {
+                continue;
+            }
+            var metrics = new SolverMetrics();
+            var solver = SolverFactory.create(algorithm, 10, true, 2);
+            solver.setMetrics(metrics);
+            metrics.start();
+            solver.solve();
+            metrics.stop();
+
+            assertTrue(metrics.getNodes() + metrics.getSwapsTried() > 0, "No work counted for " + algorithm);
+            // The propagation and SAT solvers keep their own state instead of querying a tracker.
+            if (!algorithm.equals("propagation") && !algorithm.equals("sat")) {
+                assertTrue(metrics.getTrackerQueries() > 0, "No tracker queries counted for " + algorithm);
+            }
+            assertTrue(metrics.getWallNanos() > 0, "No wall time measured for " + algorithm);
+        }
+    }
+
+    @Test
+    void disabledMetricsIgnoreUpdates() {
+        var solver = SolverFactory.create("bitmask", 10, true, 1);
+        solver.setMetrics(SolverMetrics.DISABLED);
+        solver.solve();
+
+        assertEquals(0, SolverMetrics.DISABLED.getNodes());
+        assertEquals(0, SolverMetrics.DISABLED.getTrackerQueries());
+    }
+
+    @Test
+    void mergesCounters() {
+        var total = new SolverMetrics();
+        var worker = new SolverMetrics();
+        worker.node();
+        worker.node();
+        worker.backtrack();
+        total.merge(worker);
+        total.merge(worker);
+
+        assertEquals(4, total.getNodes());
+        assertEquals(2, total.getBacktracks());
+    }
+}
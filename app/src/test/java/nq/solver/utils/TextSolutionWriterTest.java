@@ -0,0 +1,33 @@
+package nq.solver.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class TextSolutionWriterTest {
+    @Test
+    void testBoard() throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var writer = new TextSolutionWriter(out, 4, true)) {
+            writer.write(List.of(1, 3, 0, 2));
+            writer.write(List.of(2, 0));
+        }
+        var expected = String.join("\n", " . X . .", " . . . X", " X . . .", " . . X .", "", " . . X .",
+                " X . . .", " . . . .", " . . . .", "");
+        assertEquals(expected, out.toString());
+    }
+
+    @Test
+    void testList() throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var writer = new TextSolutionWriter(out, 4, false)) {
+            writer.write(List.of(1, 3, 0, 2));
+            writer.write(List.of(2, 0, 3, 1));
+        }
+        assertEquals("[1, 3, 0, 2]\n[2, 0, 3, 1]\n", out.toString());
+    }
+}